@@ -0,0 +1,86 @@
+package com.example.tododemo.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.controller.TodoController;
+import com.example.tododemo.model.Todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * rows per second of POST /todos/batch compared to one POST /todos per todo
+ * 
+ * the controller is called directly, so HTTP parsing is left out of both
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private TodoController controller;
+    private JdbcTemplate jdbc;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApp.start("batchbench");
+        controller = context.getBean(TodoController.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        jdbc.update("delete from todos");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singlePosts(Blackhole bh) {
+        for (Todo todo : todos()) {
+            bh.consume(controller.createTodo(todo));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void batchPost(Blackhole bh) {
+        bh.consume(controller.createTodos(todos()));
+    }
+
+    private static List<Todo> todos() {
+        List<Todo> todos = new ArrayList<>(ROWS);
+        Instant due = Instant.parse("2030-01-01T00:00:00Z");
+        for (int i = 0; i < ROWS; i++) {
+            todos.add(new Todo(0, "bench " + i, "benchmark todo", due.plusSeconds(i), false));
+        }
+        return todos;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.tododemo.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.tododemo.TodoDemoApplication;
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.service.TodoBatchService;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * starts the application without web server against its own in-memory H2
+ */
+public final class BenchmarkApp {
+
+    private BenchmarkApp() {
+    }
+
+    /**
+     * @param database name of the H2 database, one per benchmark
+     * @param args     additional properties as key=value
+     * @return running context, close it in the trial tear down
+     */
+    public static ConfigurableApplicationContext start(String database, String... args) {
+        List<String> properties = new ArrayList<>();
+        properties.add("spring.jpa.show-sql=false");
+        properties.add("spring.datasource.url=jdbc:h2:mem:" + database);
+        for (String arg : args) {
+            properties.add(arg);
+        }
+        return new SpringApplicationBuilder(TodoDemoApplication.class).web(WebApplicationType.NONE)
+                .properties(properties.toArray(new String[0])).run();
+    }
+
+    /**
+     * inserts todos with batched inserts, every second one is done
+     * 
+     * @param context running application
+     * @param rows    number of todos
+     */
+    public static void seed(ConfigurableApplicationContext context, int rows) {
+        List<Todo> todos = new ArrayList<>(rows);
+        Instant due = Instant.parse("2030-01-01T00:00:00Z");
+        for (int i = 0; i < rows; i++) {
+            todos.add(new Todo(0, "todo " + i, "benchmark todo " + i, due.plusSeconds(i), i % 2 == 1));
+        }
+        context.getBean(TodoBatchService.class).createAll(todos);
+    }
+}
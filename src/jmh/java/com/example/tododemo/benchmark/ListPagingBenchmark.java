@@ -0,0 +1,106 @@
+package com.example.tododemo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.controller.TodoCursor;
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.support.PagedListHolder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * one page of unfinished todos at several table sizes
+ * 
+ * inMemory is the former GET /todos: findAll, filterFinished and
+ * PagedListHolder. The others are the current offset and keyset queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListPagingBenchmark {
+
+    private static final int LIMIT = 10;
+
+    @Param({ "100", "10000", "100000" })
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private TodoRepository todoRepo;
+    private TodoCursor middle;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApp.start("paging" + rows);
+        BenchmarkApp.seed(context, rows);
+        todoRepo = context.getBean(TodoRepository.class);
+        List<Todo> page = todoRepo.findByDoneFalseOrderByDueDateAscIdAsc(PageRequest.of(rows / 4 / LIMIT, LIMIT));
+        middle = TodoCursor.after(page.get(page.size() - 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Todo> inMemory() {
+        ArrayList<Todo> list = new ArrayList<>();
+        todoRepo.findAll().forEach(list::add);
+        filterFinished(list);
+        PagedListHolder<Todo> pl = new PagedListHolder<>(list);
+        pl.setPage(0);
+        pl.setPageSize(LIMIT);
+        return pl.getPageList();
+    }
+
+    @Benchmark
+    public List<Todo> databaseOffset() {
+        return todoRepo.findByDoneFalseOrderByDueDateAscIdAsc(PageRequest.of(0, LIMIT));
+    }
+
+    @Benchmark
+    public List<Todo> databaseOffsetDeep() {
+        return todoRepo.findByDoneFalseOrderByDueDateAscIdAsc(PageRequest.of(rows / 4 / LIMIT, LIMIT));
+    }
+
+    @Benchmark
+    public List<Todo> databaseKeysetDeep() {
+        return todoRepo.findUnfinishedKeysetAfter(middle.getDueDate(), middle.getId(), PageRequest.of(0, LIMIT));
+    }
+
+    @Benchmark
+    public long databaseFingerprint() {
+        return todoRepo.fingerprintUnfinished().getTotal();
+    }
+
+    /**
+     * former TodoController.filterFinished, kept as is for comparison
+     */
+    private static void filterFinished(ArrayList<Todo> list) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).isDone()) {
+                list.remove(i);
+            }
+        }
+    }
+}
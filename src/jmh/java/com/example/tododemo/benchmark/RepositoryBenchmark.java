@@ -0,0 +1,76 @@
+package com.example.tododemo.benchmark;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * repository round trips against embedded H2 with 10000 todos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int ROWS = 10000;
+
+    private ConfigurableApplicationContext context;
+    private TodoRepository todoRepo;
+    private int minId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApp.start("repository");
+        BenchmarkApp.seed(context, ROWS);
+        todoRepo = context.getBean(TodoRepository.class);
+        minId = todoRepo.findAllByOrderByDueDateAscIdAsc(PageRequest.of(0, 1)).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Todo save() {
+        return todoRepo.save(new Todo(0, "bench", "benchmark todo", Instant.EPOCH, false));
+    }
+
+    @Benchmark
+    public Optional<Todo> findById() {
+        return todoRepo.findById(minId + ThreadLocalRandom.current().nextInt(ROWS));
+    }
+
+    @Benchmark
+    public List<Todo> findPage() {
+        return todoRepo.findAllByOrderByDueDateAscIdAsc(PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Iterable<Todo> findAll() {
+        return todoRepo.findAll();
+    }
+}
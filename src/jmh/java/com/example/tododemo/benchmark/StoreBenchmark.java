@@ -0,0 +1,94 @@
+package com.example.tododemo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * point reads and writes on the log store next to embedded H2, 10000 todos
+ * each
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+
+    private static final int ROWS = 10000;
+
+    private static final Path LOG = Paths.get("target", "benchmark", "todos.log");
+
+    @Param({ "h2", "logstore" })
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private TodoRepository todoRepo;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        if (store.equals("logstore")) {
+            Files.deleteIfExists(LOG);
+            context = BenchmarkApp.start("store", "spring.profiles.active=logstore", "todo.logstore.path=" + LOG,
+                    "todo.reminder.enabled=false");
+        } else {
+            context = BenchmarkApp.start("store", "todo.reminder.enabled=false");
+        }
+        BenchmarkApp.seed(context, ROWS);
+        todoRepo = context.getBean(TodoRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private int randomId() {
+        // seeded in both: H2 has the todos of data.sql in front, the log starts at 1
+        return 8 + ThreadLocalRandom.current().nextInt(ROWS - 8);
+    }
+
+    @Benchmark
+    public Optional<Todo> findById() {
+        return todoRepo.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<Long> findVersionById() {
+        return todoRepo.findVersionById(randomId());
+    }
+
+    @Benchmark
+    public Todo insert() {
+        return todoRepo.save(new Todo(0, "bench", "benchmark todo", Instant.EPOCH, false));
+    }
+
+    @Benchmark
+    public int updateDone() {
+        return todoRepo.updateDone(randomId(), ThreadLocalRandom.current().nextBoolean());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.tododemo.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import com.example.tododemo.json.TodoJson;
+import com.example.tododemo.model.Todo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * encode time and payload size of a todo page in JSON, CBOR and Smile, plain
+ * and gzipped like server.compression does it
+ * 
+ * the payload size of every combination is printed once at setup, the
+ * benchmark gives the time to encode the page into a stream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoFormatBenchmark {
+
+    @Param({ "json", "cbor", "smile" })
+    public String format;
+
+    @Param({ "false", "true" })
+    public boolean gzip;
+
+    @Param({ "100" })
+    public int pageSize;
+
+    private List<Todo> page;
+    private JsonFactory factory;
+    private ObjectWriter writer;
+    private OutputStream sink;
+
+    /**
+     * bytes written to the sink, keeps the output from being optimized away
+     */
+    public long written;
+
+    @Setup
+    public void setup() throws IOException {
+        page = new ArrayList<>();
+        Instant due = Instant.parse("2019-06-01T08:00:00Z");
+        for (int i = 1; i <= pageSize; i++) {
+            page.add(new Todo(i, "todo " + i, "description of todo " + i + ", somewhat longer than the title",
+                    due.plusSeconds(3600L * i), i % 2 == 0));
+        }
+        switch (format) {
+        case "cbor":
+            factory = TodoJson.cborFactory();
+            writer = TodoJson.binaryWriter(TodoJson.listWriter());
+            break;
+        case "smile":
+            factory = TodoJson.smileFactory();
+            writer = TodoJson.binaryWriter(TodoJson.listWriter());
+            break;
+        default:
+            factory = TodoJson.mapper().getFactory();
+            writer = TodoJson.listWriter();
+        }
+        sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written += len;
+            }
+        };
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        encode(payload);
+        System.out.println(format + (gzip ? "+gzip" : "") + ", " + pageSize + " todos: " + payload.size() + " bytes");
+    }
+
+    @Benchmark
+    public void encodePage() throws IOException {
+        encode(sink);
+    }
+
+    private void encode(OutputStream out) throws IOException {
+        if (gzip) {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+            write(compressed);
+            compressed.finish();
+        } else {
+            write(out);
+        }
+    }
+
+    private void write(OutputStream out) throws IOException {
+        try (JsonGenerator gen = factory.createGenerator(out)) {
+            writer.writeValue(gen, page);
+        }
+    }
+}
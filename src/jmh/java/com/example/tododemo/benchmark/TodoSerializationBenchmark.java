@@ -0,0 +1,93 @@
+package com.example.tododemo.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.json.TodoJson;
+import com.example.tododemo.model.Todo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * serialization cost per request, before and after the shared writer
+ * 
+ * compare gc.alloc.rate.norm (bytes per operation) of the gc profiler:
+ * perRequestMapper is the old Todo.toJSON, which built and configured a new
+ * ObjectMapper on every call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoSerializationBenchmark {
+
+    private Todo todo;
+    private List<Todo> page;
+    private OutputStream sink;
+
+    /**
+     * bytes written to the sink, keeps the output from being optimized away
+     */
+    public long written;
+
+    @Setup
+    public void setup() {
+        todo = new Todo(42, "clean fridge", "It's a mess", Instant.parse("2018-08-27T12:34:56.789Z"), false);
+        page = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            page.add(new Todo(i, "todo " + i, "description of todo " + i, Instant.EPOCH.plusSeconds(i), i % 2 == 0));
+        }
+        sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written += len;
+            }
+        };
+    }
+
+    @Benchmark
+    public String perRequestMapper() throws IOException {
+        ObjectMapper om = new ObjectMapper();
+        om.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        om.registerModule(new JavaTimeModule());
+        return om.writeValueAsString(todo);
+    }
+
+    @Benchmark
+    public String todoToJson() {
+        return todo.toJSON();
+    }
+
+    @Benchmark
+    public void sharedWriterToStream() throws IOException {
+        TodoJson.todoWriter().writeValue(sink, todo);
+    }
+
+    @Benchmark
+    public void listToStream() throws IOException {
+        TodoJson.listWriter().writeValue(sink, page);
+    }
+}
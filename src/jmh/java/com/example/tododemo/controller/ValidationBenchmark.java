@@ -0,0 +1,57 @@
+package com.example.tododemo.controller;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.model.ErrorResponse;
+import com.example.tododemo.model.Todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * input validation of the controller, in the controller package to reach the
+ * package-private validators
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private final TodoController controller = new TodoController();
+
+    private final Todo valid = new Todo(1, "clean fridge", "It's a mess", Instant.EPOCH, false);
+
+    private final Todo invalid = new Todo(2, "", new String(new char[501]).replace('\0', 'x'), null, false);
+
+    @Benchmark
+    public List<ErrorResponse> validateInputValid() {
+        return controller.validateInput(valid);
+    }
+
+    @Benchmark
+    public List<ErrorResponse> validateInputInvalid() {
+        return controller.validateInput(invalid);
+    }
+
+    @Benchmark
+    public List<ErrorResponse> validQueryInputValid() {
+        return controller.validQueryInput("unfinished", 5, 0);
+    }
+
+    @Benchmark
+    public List<ErrorResponse> validQueryInputInvalid() {
+        return controller.validQueryInput("done", 11, 101);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.tododemo.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * minimal blocking HTTP/1.1 client with one keep-alive connection, one per
+ * worker
+ * 
+ * HttpURLConnection cannot send PATCH, and the load test has to stay free of
+ * extra client libraries
+ */
+final class HttpClient implements AutoCloseable {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final String host;
+
+    private final int port;
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private Socket socket;
+
+    private InputStream in;
+
+    private OutputStream out;
+
+    HttpClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    static String todoJson(String title) {
+        return "{\"title\": \"" + title + "\",\"description\": \"created by the load test\","
+                + "\"dueDate\": \"2030-01-01T00:00:00Z\",\"done\": false}";
+    }
+
+    /**
+     * @param method HTTP method
+     * @param path   path and query
+     * @param json   request body, may be null
+     * @return HTTP status
+     * @throws IOException if the connection failed, the connection is closed
+     *                     then and reopened on the next request
+     */
+    int request(String method, String path, String json) throws IOException {
+        try {
+            return exchange(method, path, json);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return body of the last response
+     */
+    String body() {
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param json response body
+     * @return every "id" in the body, empty if there is none
+     */
+    static IntStream ids(String json) {
+        IntStream.Builder ids = IntStream.builder();
+        Matcher m = ID.matcher(json);
+        while (m.find()) {
+            ids.add(Integer.parseInt(m.group(1)));
+        }
+        return ids.build();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to do
+            }
+            socket = null;
+        }
+    }
+
+    private int exchange(String method, String path, String json) throws IOException {
+        if (socket == null) {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream(), 16384);
+            out = socket.getOutputStream();
+        }
+        byte[] payload = json == null ? new byte[0] : json.getBytes(StandardCharsets.UTF_8);
+        StringBuilder head = new StringBuilder(128)
+                .append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(host).append(':').append(port).append("\r\n")
+                .append("Accept: application/json\r\n");
+        if (json != null) {
+            head.append("Content-Type: application/json\r\n")
+                    .append("Content-Length: ").append(payload.length).append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.write(payload);
+        out.flush();
+
+        String statusLine = readLine();
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        long length = -1;
+        boolean chunked = false;
+        boolean closeAfter = false;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                length = Long.parseLong(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.equalsIgnoreCase("chunked");
+            } else if (name.equalsIgnoreCase("Connection")) {
+                closeAfter = value.equalsIgnoreCase("close");
+            }
+        }
+
+        body.reset();
+        if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine().split(";")[0].trim(), 16)) > 0) {
+                readBody(size);
+                readLine();
+            }
+            while (!readLine().isEmpty()) {
+                // trailers
+            }
+        } else if (length > 0) {
+            readBody(length);
+        }
+        if (closeAfter) {
+            close();
+        }
+        return status;
+    }
+
+    private void readBody(long length) throws IOException {
+        for (long i = 0; i < length; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("connection closed in response body");
+            }
+            body.write(b);
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("connection closed in response head");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
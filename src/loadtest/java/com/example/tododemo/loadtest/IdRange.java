@@ -0,0 +1,36 @@
+package com.example.tododemo.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ids the load test picks from: the seeded range plus everything created
+ * since. Deleted ids are not tracked, requests for them count as 404.
+ */
+final class IdRange {
+
+    private final int min;
+
+    private final AtomicInteger max;
+
+    IdRange(int min, int max) {
+        this.min = min;
+        this.max = new AtomicInteger(max);
+    }
+
+    int random() {
+        return min + ThreadLocalRandom.current().nextInt(max.get() - min + 1);
+    }
+
+    int min() {
+        return min;
+    }
+
+    int max() {
+        return max.get();
+    }
+
+    void created(int id) {
+        max.accumulateAndGet(id, Math::max);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.tododemo.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.example.tododemo.TodoDemoApplication;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * load generator for the todo API
+ *
+ * starts the application on a random port with its own in-memory H2 (or uses
+ * --url), seeds todos and sends a mix of requests either at a fixed rate (open
+ * model) or from a fixed number of busy workers (closed model). Latencies are
+ * measured from the intended start of each request so that a stalled server
+ * shows up in the percentiles instead of silently slowing the generator down
+ * (coordinated omission).
+ *
+ * <pre>
+ * make loadtest LOADTEST_ARGS="--rate=2000 --duration=60"
+ * </pre>
+ *
+ * options, all --key=value:
+ * <ul>
+ * <li>url: base url of a running app, default starts one in-process</li>
+ * <li>seed: todos inserted before the run, default 10000</li>
+ * <li>rate: requests per second, 0 for the closed model, default 1000</li>
+ * <li>concurrency: workers, bounds the requests in flight, default 32</li>
+ * <li>duration / warmup: seconds, default 30 / 5</li>
+ * <li>mix: weights per operation, default get=60,list=20,create=10,update=7,delete=3</li>
+ * <li>out: directory for the .hgrm percentile files, default target/loadtest</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private static final int SEED_CHUNK = 1000;
+
+    private final Map<String, String> options;
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    private final Operation[] mix = new Operation[100];
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        for (Operation op : Operation.values()) {
+            stats.put(op, new OperationStats());
+        }
+        parseMix(option("mix", "get=60,list=20,create=10,update=7,delete=3"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("expected --key=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadTest(options).run();
+    }
+
+    private void run() throws Exception {
+        ConfigurableApplicationContext context = null;
+        String url = options.get("url");
+        if (url == null) {
+            context = new SpringApplicationBuilder(TodoDemoApplication.class)
+                    .properties("server.port=0", "spring.jpa.show-sql=false",
+                            "spring.datasource.url=jdbc:h2:mem:loadtest", "logging.level.root=WARN")
+                    .run();
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            String host = url.replaceFirst("^http://", "").replaceFirst("/.*$", "");
+            int colon = host.indexOf(':');
+            String hostName = colon < 0 ? host : host.substring(0, colon);
+            int port = colon < 0 ? 80 : Integer.parseInt(host.substring(colon + 1));
+
+            IdRange ids = seed(hostName, port, Integer.parseInt(option("seed", "10000")));
+            System.out.printf("seeded ids %d..%d, running against %s%n", ids.min(), ids.max(), url);
+            drive(hostName, port, ids);
+            report(System.out);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static IdRange seed(String host, int port, int rows) throws IOException {
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        try (HttpClient client = new HttpClient(host, port)) {
+            for (int from = 0; from < rows; from += SEED_CHUNK) {
+                StringBuilder body = new StringBuilder("[");
+                for (int i = from; i < Math.min(rows, from + SEED_CHUNK); i++) {
+                    if (i > from) {
+                        body.append(',');
+                    }
+                    body.append(HttpClient.todoJson("seed " + i));
+                }
+                int status = client.request("POST", "/todos/batch", body.append(']').toString());
+                if (status != 207) {
+                    throw new IllegalStateException("seeding failed with status " + status);
+                }
+                for (int id : HttpClient.ids(client.body()).toArray()) {
+                    min = Math.min(min, id);
+                    max = Math.max(max, id);
+                }
+            }
+        }
+        if (max == 0) {
+            throw new IllegalStateException("nothing seeded, use --seed greater than 0");
+        }
+        return new IdRange(min, max);
+    }
+
+    /**
+     * runs the workers until the end of warmup plus duration
+     */
+    private void drive(String host, int port, IdRange ids) throws InterruptedException {
+        long rate = Long.parseLong(option("rate", "1000"));
+        int concurrency = Integer.parseInt(option("concurrency", "32"));
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(Long.parseLong(option("warmup", "5")));
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(Long.parseLong(option("duration", "30")));
+        AtomicLong ticket = new AtomicLong();
+
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(() -> work(host, port, ids, ticket, start, interval, measureFrom, end),
+                    "load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * in the open model every request has a slot on the schedule start + n *
+     * interval and its latency counts from that slot, also when the worker got
+     * to it late. In the closed model there is no schedule, the latency is
+     * corrected with the mean service time of the warmup as expected interval
+     * instead.
+     */
+    private void work(String host, int port, IdRange ids, AtomicLong ticket, long start, long interval,
+            long measureFrom, long end) {
+        long warmupNanos = 0;
+        long warmupRequests = 0;
+        long expectedInterval = 0;
+        try (HttpClient client = new HttpClient(host, port)) {
+            while (true) {
+                long intended;
+                if (interval > 0) {
+                    intended = start + ticket.getAndIncrement() * interval;
+                    if (intended >= end) {
+                        return;
+                    }
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intended = System.nanoTime();
+                    if (intended >= end) {
+                        return;
+                    }
+                }
+
+                Operation op = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+                long sent = System.nanoTime();
+                int status;
+                try {
+                    status = op.send(client, ids);
+                } catch (IOException e) {
+                    status = -1;
+                }
+                long done = System.nanoTime();
+
+                if (intended < measureFrom) {
+                    warmupNanos += done - sent;
+                    warmupRequests++;
+                    continue;
+                }
+                if (interval == 0 && expectedInterval == 0 && warmupRequests > 0) {
+                    expectedInterval = TimeUnit.NANOSECONDS.toMicros(warmupNanos / warmupRequests);
+                }
+                OperationStats s = stats.get(op);
+                if (status < 0) {
+                    s.ioErrors.increment();
+                } else {
+                    s.status(status);
+                }
+                s.record(TimeUnit.NANOSECONDS.toMicros(done - intended), TimeUnit.NANOSECONDS.toMicros(done - sent),
+                        expectedInterval);
+            }
+        }
+    }
+
+    private void report(PrintStream out) throws IOException {
+        long rate = Long.parseLong(option("rate", "1000"));
+        double seconds = Double.parseDouble(option("duration", "30"));
+        Path dir = Paths.get(option("out", "target/loadtest"));
+        Files.createDirectories(dir);
+
+        OperationStats total = new OperationStats();
+        for (OperationStats s : stats.values()) {
+            s.addTo(total);
+        }
+        double achieved = total.requests() / seconds;
+        out.printf(Locale.ROOT, "%s model, %s workers, target %s/s, achieved %.1f/s over %.0f s%n",
+                rate > 0 ? "open" : "closed", option("concurrency", "32"), rate > 0 ? rate : "-", achieved,
+                seconds);
+        if (rate > 0 && achieved < rate * 0.95) {
+            out.println("target rate not reached, latencies include the time requests waited behind the schedule");
+        }
+        out.printf(Locale.ROOT, "%-8s %9s %9s %9s %9s %9s %9s %9s %9s %7s %7s %7s%n", "op", "requests", "rps",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "raw p99", "4xx", "5xx", "io");
+        for (Map.Entry<Operation, OperationStats> e : stats.entrySet()) {
+            if (e.getValue().requests() > 0) {
+                row(out, e.getKey().name(), e.getValue(), seconds, dir);
+            }
+        }
+        row(out, "TOTAL", total, seconds, dir);
+        out.println("percentile distributions in " + dir.toAbsolutePath());
+    }
+
+    private static void row(PrintStream out, String name, OperationStats s, double seconds, Path dir)
+            throws IOException {
+        Histogram h = s.corrected;
+        out.printf(Locale.ROOT, "%-8s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %7d %7d %7d%n", name,
+                s.requests(), s.requests() / seconds, ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+                ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()),
+                ms(s.raw.getValueAtPercentile(99)), s.clientErrors.sum(), s.serverErrors.sum(), s.ioErrors.sum());
+        try (PrintStream file = new PrintStream(Files.newOutputStream(dir.resolve(name.toLowerCase(Locale.ROOT)
+                + ".hgrm")))) {
+            h.outputPercentileDistribution(file, 1000.0);
+        }
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    private void parseMix(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        int sum = 0;
+        for (String part : spec.split(",")) {
+            String[] kv = part.split("=");
+            int weight = Integer.parseInt(kv[1].trim());
+            weights.put(Operation.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), weight);
+            sum += weight;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("mix needs at least one positive weight: " + spec);
+        }
+        int slot = 0;
+        int acc = 0;
+        for (Map.Entry<Operation, Integer> e : weights.entrySet()) {
+            acc += e.getValue();
+            int until = Math.round(acc * (float) mix.length / sum);
+            while (slot < until) {
+                mix[slot++] = e.getKey();
+            }
+        }
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.tododemo.loadtest;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * requests the load test sends, each against a random todo of the seeded
+ * range
+ */
+enum Operation {
+
+    GET {
+        @Override
+        int send(HttpClient client, IdRange ids) throws IOException {
+            return client.request("GET", "/todos/" + ids.random(), null);
+        }
+    },
+    LIST {
+        @Override
+        int send(HttpClient client, IdRange ids) throws IOException {
+            int offset = ThreadLocalRandom.current().nextInt(10);
+            return client.request("GET", "/todos?state=unfinished&limit=10&offset=" + offset, null);
+        }
+    },
+    CREATE {
+        @Override
+        int send(HttpClient client, IdRange ids) throws IOException {
+            int status = client.request("POST", "/todos", HttpClient.todoJson("load " + ids.max()));
+            if (status == 201) {
+                HttpClient.ids(client.body()).findFirst().ifPresent(ids::created);
+            }
+            return status;
+        }
+    },
+    UPDATE {
+        @Override
+        int send(HttpClient client, IdRange ids) throws IOException {
+            boolean done = ThreadLocalRandom.current().nextBoolean();
+            return client.request("PATCH", "/todos/" + ids.random(), "{\"done\": " + done + "}");
+        }
+    },
+    DELETE {
+        @Override
+        int send(HttpClient client, IdRange ids) throws IOException {
+            return client.request("DELETE", "/todos/" + ids.random(), null);
+        }
+    };
+
+    /**
+     * sends one request
+     * 
+     * @param client connection of the calling worker
+     * @param ids    ids that can be used
+     * @return HTTP status
+     * @throws IOException if the request failed
+     */
+    abstract int send(HttpClient client, IdRange ids) throws IOException;
+}
@@ -0,0 +1,65 @@
+package com.example.tododemo.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * latencies in microseconds and status counts of one operation, shared by all
+ * workers
+ */
+final class OperationStats {
+
+    /** from the intended start of the request, corrected for coordinated omission */
+    final Histogram corrected = new ConcurrentHistogram(3);
+
+    /** from the actual send of the request, service time only */
+    final Histogram raw = new ConcurrentHistogram(3);
+
+    final LongAdder ok = new LongAdder();
+
+    final LongAdder clientErrors = new LongAdder();
+
+    final LongAdder serverErrors = new LongAdder();
+
+    final LongAdder ioErrors = new LongAdder();
+
+    /**
+     * @param correctedMicros   latency from the intended start
+     * @param rawMicros         latency from the actual send
+     * @param expectedInterval  closed loop only: interval between requests of
+     *                          one worker, 0 in rate mode
+     */
+    void record(long correctedMicros, long rawMicros, long expectedInterval) {
+        if (expectedInterval > 0) {
+            corrected.recordValueWithExpectedInterval(correctedMicros, expectedInterval);
+        } else {
+            corrected.recordValue(correctedMicros);
+        }
+        raw.recordValue(rawMicros);
+    }
+
+    void status(int status) {
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        } else {
+            ok.increment();
+        }
+    }
+
+    long requests() {
+        return ok.sum() + clientErrors.sum() + serverErrors.sum() + ioErrors.sum();
+    }
+
+    void addTo(OperationStats total) {
+        total.corrected.add(corrected);
+        total.raw.add(raw);
+        total.ok.add(ok.sum());
+        total.clientErrors.add(clientErrors.sum());
+        total.serverErrors.add(serverErrors.sum());
+        total.ioErrors.add(ioErrors.sum());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.tododemo.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * concurrency limit that follows the latency of the requests it admits
+ * 
+ * a gradient limit: every finished request compares the short-term average
+ * latency with the long-term one. While they are close the limit grows by
+ * about its square root, when the short-term latency rises above tolerance
+ * times the long-term one the limit shrinks in proportion. So a database that
+ * slows down gets fewer concurrent requests instead of a longer queue. The
+ * limit only grows while it is actually used, idle time teaches it nothing.
+ */
+public class AdaptiveLimit {
+
+    /** weight of a sample in the short-term average, about 10 requests */
+    private static final double SHORT_ALPHA = 2.0 / 11;
+
+    /** weight of a sample in the long-term average, about 500 requests */
+    private static final double LONG_ALPHA = 2.0 / 501;
+
+    /** share of the new limit taken per sample */
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder admitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /** guarded by this */
+    private double limit;
+
+    /** guarded by this, 0 before the first sample */
+    private double shortNanos;
+
+    /** guarded by this, 0 before the first sample */
+    private double longNanos;
+
+    private volatile int currentLimit;
+
+    /**
+     * @param initialLimit limit before the first request
+     * @param minLimit     lowest limit, at least 1
+     * @param maxLimit     highest limit
+     * @param tolerance    short-term latency over long-term latency that is
+     *                     still not congestion, at least 1
+     */
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || maxLimit < minLimit || tolerance < 1) {
+            throw new IllegalArgumentException("limits must be 1 <= min <= max and tolerance at least 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.currentLimit = (int) limit;
+    }
+
+    /**
+     * @return true if the request may run, it must call
+     *         {@link #release(long, int)} when done
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int n = inFlight.get();
+            if (n >= currentLimit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(n, n + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos    time the request ran
+     * @param inFlightAtStart {@link #getInFlight()} right after acquiring
+     */
+    public void release(long latencyNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        double sample = Math.max(1, latencyNanos);
+        synchronized (this) {
+            if (longNanos == 0) {
+                shortNanos = sample;
+                longNanos = sample;
+                return;
+            }
+            shortNanos += SHORT_ALPHA * (sample - shortNanos);
+            longNanos += LONG_ALPHA * (sample - longNanos);
+            if (longNanos > 2 * shortNanos) {
+                // latency dropped again, forget the slow past sooner
+                longNanos *= 0.95;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longNanos / shortNanos));
+            double next = limit * gradient + Math.sqrt(limit);
+            if (next > limit && inFlightAtStart * 2 < limit) {
+                // not limited by the limit, so no reason to raise it
+                return;
+            }
+            limit = limit * (1 - SMOOTHING) + next * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, limit));
+            currentLimit = (int) limit;
+        }
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return long-term average latency in milliseconds, 0 before the first
+     *         request
+     */
+    public synchronized double getLatencyMs() {
+        return longNanos / 1e6;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.tododemo.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * admission control of the todo endpoints, on with
+ * todo.admission.enabled=true
+ * 
+ * every {@link EndpointClass} gets its own {@link AdaptiveLimit}, bulk
+ * requests hold a connection long and have a lower maximum
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.admission.enabled", havingValue = "true")
+public class AdmissionConfig {
+
+    @Bean
+    public AdmissionFilter admissionFilter(@Value("${todo.admission.initial-limit:20}") int initialLimit,
+            @Value("${todo.admission.min-limit:2}") int minLimit,
+            @Value("${todo.admission.max-limit:200}") int maxLimit,
+            @Value("${todo.admission.bulk-max-limit:10}") int bulkMaxLimit,
+            @Value("${todo.admission.tolerance:1.5}") double tolerance,
+            @Value("${todo.admission.priority-share:0.75}") double priorityShare,
+            @Value("${todo.admission.reject-status:503}") int rejectStatus) {
+        return new AdmissionFilter(type -> {
+            int max = type == EndpointClass.BULK ? bulkMaxLimit : maxLimit;
+            return new AdaptiveLimit(Math.min(initialLimit, max), minLimit, max, tolerance);
+        }, priorityShare, rejectStatus);
+    }
+
+    @Bean
+    public MeterBinder admissionMetrics(AdmissionFilter admissionFilter) {
+        return registry -> {
+            for (EndpointClass type : EndpointClass.values()) {
+                String name = type.name().toLowerCase();
+                AdaptiveLimit limit = admissionFilter.limit(type);
+                Gauge.builder("todo.admission.limit", limit, AdaptiveLimit::getLimit).tag("class", name)
+                        .register(registry);
+                Gauge.builder("todo.admission.in-flight", limit, AdaptiveLimit::getInFlight).tag("class", name)
+                        .register(registry);
+                Gauge.builder("todo.admission.latency", limit, AdaptiveLimit::getLatencyMs).tag("class", name)
+                        .baseUnit("milliseconds").register(registry);
+                FunctionCounter.builder("todo.admission.rejected", limit, AdaptiveLimit::getRejected)
+                        .tags("class", name, "reason", "limit").register(registry);
+                FunctionCounter.builder("todo.admission.rejected", admissionFilter, f -> f.getShed(type))
+                        .tags("class", name, "reason", "priority").register(registry);
+            }
+        };
+    }
+}
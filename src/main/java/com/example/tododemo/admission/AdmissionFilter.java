@@ -0,0 +1,171 @@
+package com.example.tododemo.admission;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.example.tododemo.json.TodoJson;
+import com.example.tododemo.model.ErrorResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * admits todo requests up to the {@link AdaptiveLimit} of their
+ * {@link EndpointClass}, the rest is rejected right away with Retry-After
+ * 
+ * lists and bulk requests are also shed while a priority class uses more than
+ * priorityShare of its limit, so point reads and writes keep the database
+ * when it slows down. Async requests hold their slot until they complete.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final Map<EndpointClass, AdaptiveLimit> limits = new EnumMap<>(EndpointClass.class);
+
+    private final Map<EndpointClass, LongAdder> shed = new EnumMap<>(EndpointClass.class);
+
+    private final double priorityShare;
+
+    private final int rejectStatus;
+
+    /**
+     * @param limits        creates the limit of each class
+     * @param priorityShare used share of a priority limit above which lists
+     *                      and bulk requests are shed
+     * @param rejectStatus  429 or 503
+     */
+    public AdmissionFilter(Function<EndpointClass, AdaptiveLimit> limits, double priorityShare, int rejectStatus) {
+        if (rejectStatus != 429 && rejectStatus != 503) {
+            throw new IllegalArgumentException("todo.admission.reject-status must be 429 or 503, not " + rejectStatus);
+        }
+        for (EndpointClass type : EndpointClass.values()) {
+            this.limits.put(type, limits.apply(type));
+            this.shed.put(type, new LongAdder());
+        }
+        this.priorityShare = priorityShare;
+        this.rejectStatus = rejectStatus;
+    }
+
+    /**
+     * @param type endpoint class
+     * @return its limit
+     */
+    public AdaptiveLimit limit(EndpointClass type) {
+        return limits.get(type);
+    }
+
+    /**
+     * @param type endpoint class
+     * @return requests rejected to leave room for the priority classes
+     */
+    public long getShed(EndpointClass type) {
+        return shed.get(type).sum();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass type = EndpointClass.of(request);
+        if (type == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        AdaptiveLimit limit = limits.get(type);
+        if (!type.isPriority() && prioritiesBusy()) {
+            shed.get(type).increment();
+            reject(response, limit, "SHED", "todo database busy with point requests, retry later");
+            return;
+        }
+        if (!limit.tryAcquire()) {
+            reject(response, limit, "OVERLOADED", "too many " + type.name().toLowerCase() + " requests, retry later");
+            return;
+        }
+        Release release = new Release(limit);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(release);
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private boolean prioritiesBusy() {
+        for (Map.Entry<EndpointClass, AdaptiveLimit> entry : limits.entrySet()) {
+            AdaptiveLimit limit = entry.getValue();
+            if (entry.getKey().isPriority() && limit.getInFlight() >= limit.getLimit() * priorityShare) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reject(HttpServletResponse response, AdaptiveLimit limit, String code, String message)
+            throws IOException {
+        long retryAfter = Math.max(1, (long) Math.ceil(limit.getLatencyMs() / 1000));
+        response.setStatus(rejectStatus);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        TodoJson.mapper().writeValue(response.getOutputStream(),
+                Collections.singletonList(new ErrorResponse(code, message)));
+    }
+
+    /**
+     * gives the slot back once, with the time the request ran
+     */
+    private static final class Release implements AsyncListener {
+
+        private final AdaptiveLimit limit;
+
+        private final int inFlightAtStart;
+
+        private final long start = System.nanoTime();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Release(AdaptiveLimit limit) {
+            this.limit = limit;
+            this.inFlightAtStart = limit.getInFlight();
+        }
+
+        void run() {
+            if (released.compareAndSet(false, true)) {
+                limit.release(System.nanoTime() - start, inFlightAtStart);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.tododemo.admission;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * classes of todo endpoints with their own concurrency limit
+ * 
+ * point reads and writes touch one todo and have priority, lists and bulk
+ * requests read or write many and are shed first
+ */
+public enum EndpointClass {
+
+    /** GET of one todo and the counters */
+    READ(true),
+
+    /** create, update and delete of one todo */
+    WRITE(true),
+
+    /** pages of the list and search */
+    LIST(false),
+
+    /** the whole table and batches */
+    BULK(false);
+
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    private final boolean priority;
+
+    EndpointClass(boolean priority) {
+        this.priority = priority;
+    }
+
+    public boolean isPriority() {
+        return priority;
+    }
+
+    /**
+     * @param request incoming request
+     * @return class of the todo endpoint, null for other paths and the change
+     *         feed, whose connections stay open
+     */
+    public static EndpointClass of(HttpServletRequest request) {
+        if ("OPTIONS".equals(request.getMethod())) {
+            return null;
+        }
+        String path = PATHS.getPathWithinApplication(request);
+        boolean get = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        if (path.equals("/todos")) {
+            if (!get) {
+                return WRITE;
+            }
+            // without state the handler streams all todos
+            return request.getParameter("state") != null ? LIST : BULK;
+        }
+        if (!path.startsWith("/todos/") || path.indexOf('/', "/todos/".length()) >= 0) {
+            return null;
+        }
+        switch (path.substring("/todos/".length())) {
+        case "changes":
+            return null;
+        case "search":
+            return LIST;
+        case "export":
+        case "batch":
+            return BULK;
+        default:
+            return get ? READ : WRITE;
+        }
+    }
+}
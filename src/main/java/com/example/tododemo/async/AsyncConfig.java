@@ -0,0 +1,51 @@
+package com.example.tododemo.async;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+/**
+ * async mode, on with todo.async.enabled=true
+ * 
+ * controller handlers run on a {@link BoundedExecutor} sized to the connection
+ * pool instead of the servlet threads, see {@link OffloadingHandlerAdapter}
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.async.enabled", havingValue = "true")
+public class AsyncConfig {
+
+    @Bean(destroyMethod = "close")
+    public BoundedExecutor persistenceExecutor(@Value("${todo.async.threads:10}") int threads,
+            @Value("${todo.async.queue-capacity:100}") int queueCapacity,
+            @Value("${todo.async.virtual-threads:false}") boolean virtualThreads) {
+        return new BoundedExecutor(threads, queueCapacity, virtualThreads);
+    }
+
+    @Bean
+    public WebMvcRegistrations offloadingHandlerAdapter(BoundedExecutor persistenceExecutor,
+            @Value("${todo.async.timeout-ms:30000}") long timeoutMs) {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new OffloadingHandlerAdapter(persistenceExecutor, timeoutMs);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder persistenceExecutorMetrics(BoundedExecutor persistenceExecutor) {
+        return registry -> {
+            Gauge.builder("todo.async.active", persistenceExecutor, BoundedExecutor::getActive).register(registry);
+            Gauge.builder("todo.async.queued", persistenceExecutor, BoundedExecutor::getQueued).register(registry);
+            FunctionCounter.builder("todo.async.rejected", persistenceExecutor, BoundedExecutor::getRejected)
+                    .register(registry);
+        };
+    }
+}
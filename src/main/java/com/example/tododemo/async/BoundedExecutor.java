@@ -0,0 +1,164 @@
+package com.example.tododemo.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * executor for repository work with a fixed number of running tasks and a
+ * bounded number of waiting ones
+ * 
+ * {@link #tryExecute(Runnable)} never blocks, it rejects when threads and queue
+ * are full. Runs on platform threads or, on a JDK with virtual threads, on one
+ * virtual thread per task limited to the same number of running tasks.
+ */
+public class BoundedExecutor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BoundedExecutor.class);
+
+    private final ExecutorService delegate;
+
+    /** running plus waiting tasks */
+    private final Semaphore admission;
+
+    /** running tasks */
+    private final Semaphore running;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final int threads;
+
+    private final boolean virtual;
+
+    /**
+     * @param threads        tasks running at the same time, usually the size of
+     *                       the connection pool
+     * @param queueCapacity  tasks waiting for a thread
+     * @param virtualThreads use virtual threads if the JDK has them
+     */
+    public BoundedExecutor(int threads, int queueCapacity, boolean virtualThreads) {
+        if (threads < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("threads must be positive and queue capacity not negative");
+        }
+        this.threads = threads;
+        this.admission = new Semaphore(threads + queueCapacity);
+        this.running = new Semaphore(threads);
+        ExecutorService virtualExecutor = virtualThreads ? virtualThreadExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.delegate = virtual ? virtualExecutor : Executors.newFixedThreadPool(threads, platformThreads());
+    }
+
+    /**
+     * @param task work to run
+     * @return false if the executor is saturated and the task was not accepted
+     */
+    public boolean tryExecute(Runnable task) {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+        inFlight.incrementAndGet();
+        try {
+            delegate.execute(() -> run(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            admission.release();
+            rejected.increment();
+            return false;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            running.acquireUninterruptibly();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                running.release();
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            admission.release();
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return accepted tasks that wait for a thread
+     */
+    public int getQueued() {
+        return Math.max(0, inFlight.get() - active.get());
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdown();
+        try {
+            delegate.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory platformThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "persistence-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory()) through
+     * reflection, the project still compiles for Java 8
+     * 
+     * @return null if the JDK has no virtual threads
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = Class.forName("java.lang.Thread$Builder").getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, "persistence-virtual-", 1L);
+            ThreadFactory factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory")
+                    .invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual threads are not available on Java {}, using platform threads",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.tododemo.async;
+
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.example.tododemo.metrics.QueryCountInspector;
+import com.example.tododemo.model.ErrorResponse;
+import com.example.tododemo.replica.ReadRouting;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+/**
+ * runs the ResponseEntity handlers of rest controllers on the
+ * {@link BoundedExecutor} and returns a DeferredResult instead, so the servlet
+ * thread is free while the handler waits for the database
+ * 
+ * arguments are still resolved on the servlet thread, the read routing of the
+ * request goes along to the executor. The shard of a sharded call is chosen
+ * per repository call and needs nothing. Handlers that write the response
+ * themselves stay synchronous. A saturated executor answers 503 right away. A
+ * handler still waiting for a thread when the timeout expires never runs and
+ * answers 503 too. One that already runs is not stopped, it answers 504
+ * without Retry-After since its write may still commit, the client has to
+ * read the todo before it repeats the request.
+ */
+public class OffloadingHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    private final BoundedExecutor executor;
+
+    private final long timeoutMs;
+
+    public OffloadingHandlerAdapter(BoundedExecutor executor, long timeoutMs) {
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        if (offloaded(handlerMethod)) {
+            return new OffloadedHandlerMethod(handlerMethod);
+        }
+        return super.createInvocableHandlerMethod(handlerMethod);
+    }
+
+    static boolean offloaded(HandlerMethod handlerMethod) {
+        return AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), RestController.class)
+                && ResponseEntity.class.isAssignableFrom(handlerMethod.getMethod().getReturnType());
+    }
+
+    static ResponseEntity<?> unavailable(String message) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(Collections.singletonList(new ErrorResponse("SATURATED", message)));
+    }
+
+    static ResponseEntity<?> outcomeUnknown() {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Collections.singletonList(new ErrorResponse(
+                "TIMED_OUT", "request still running after the timeout, its outcome is unknown")));
+    }
+
+    /**
+     * decides between the handler and the timeout, whichever comes first
+     * answers the request
+     */
+    private static final class Work {
+
+        /** guarded by this */
+        private boolean started;
+
+        /** guarded by this */
+        private boolean timedOut;
+
+        synchronized boolean start() {
+            started = !timedOut;
+            return started;
+        }
+
+        synchronized void finish(HttpServletRequest request, DeferredResult<Object> result, Object value,
+                Throwable error) {
+            if (timedOut) {
+                // the request is answered and may be recycled already
+                QueryCountInspector.reset();
+                return;
+            }
+            QueryCountInspector.addTo(request);
+            if (error != null) {
+                result.setErrorResult(error);
+            } else {
+                result.setResult(value);
+            }
+        }
+
+        synchronized void timeout(DeferredResult<Object> result) {
+            if (result.isSetOrExpired()) {
+                return;
+            }
+            timedOut = true;
+            result.setResult(started ? outcomeUnknown()
+                    : unavailable("request timed out waiting for the persistence executor, it did not run"));
+        }
+    }
+
+    private class OffloadedHandlerMethod extends ServletInvocableHandlerMethod {
+
+        OffloadedHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer,
+                Object... providedArgs) throws Exception {
+            Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);
+            HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+            DeferredResult<Object> result = new DeferredResult<>(timeoutMs);
+            Work work = new Work();
+            result.onTimeout(() -> work.timeout(result));
+            boolean accepted = executor.tryExecute(ReadRouting.propagate(() -> {
+                if (!work.start()) {
+                    return;
+                }
+                QueryCountInspector.reset();
+                Object value = null;
+                Throwable error = null;
+                try {
+                    value = doInvoke(args);
+                } catch (Throwable e) {
+                    error = e;
+                }
+                work.finish(servletRequest, result, value, error);
+            }));
+            if (!accepted) {
+                return unavailable("too many requests waiting for the database, try again later");
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.tododemo.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * bounded in-process todo cache with least recently used eviction and a time
+ * to live
+ * 
+ * the ids are spread over segments with their own lock, so concurrent reads of
+ * different todos rarely wait for each other. Every segment counts its
+ * invalidations, a load that overlaps an invalidation of its segment is not
+ * cached, so a slow read can not put an outdated todo back.
+ */
+public class LruTodoCache implements TodoCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize maximal number of cached todos
+     * @param ttl     time after which a cached todo is loaded again
+     */
+    public LruTodoCache(int maxSize, Duration ttl) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("maxSize must be at least " + SEGMENTS);
+        }
+        int segmentSize = (maxSize + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public Optional<Todo> getOrLoad(int id, IntFunction<Optional<Todo>> loader) {
+        Segment segment = segmentFor(id);
+        long now = System.nanoTime();
+        long epoch;
+        synchronized (segment) {
+            Entry entry = segment.get(id);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return Optional.of(entry.todo);
+                }
+                segment.remove(id);
+                evictions.increment();
+            }
+            epoch = segment.epoch;
+        }
+        misses.increment();
+        Optional<Todo> loaded = loader.apply(id);
+        if (!loaded.isPresent()) {
+            return loaded;
+        }
+        // keep a detached copy, the loaded entity belongs to the caller
+        Todo todo = loaded.get().copy();
+        synchronized (segment) {
+            if (segment.epoch == epoch) {
+                segment.put(id, new Entry(todo, now));
+            }
+        }
+        return Optional.of(todo);
+    }
+
+    @Override
+    public void invalidate(int id) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            segment.epoch++;
+            segment.remove(id);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.epoch++;
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private Segment segmentFor(int id) {
+        int h = id * 0x9E3779B9;
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Entry {
+        final Todo todo;
+        final long loadedAt;
+
+        Entry(Todo todo, long loadedAt) {
+            this.todo = todo;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * access ordered map, guarded by its own monitor
+     */
+    private final class Segment extends LinkedHashMap<Integer, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private long epoch;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.tododemo.cache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * cache that always loads, used with todo.cache.type=none
+ */
+public class NoOpTodoCache implements TodoCache {
+
+    private final LongAdder misses = new LongAdder();
+
+    @Override
+    public Optional<Todo> getOrLoad(int id, IntFunction<Optional<Todo>> loader) {
+        misses.increment();
+        return loader.apply(id);
+    }
+
+    @Override
+    public void invalidate(int id) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(0, misses.sum(), 0, 0);
+    }
+}
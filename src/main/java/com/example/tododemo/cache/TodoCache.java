@@ -0,0 +1,43 @@
+package com.example.tododemo.cache;
+
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * read-through cache for single todos
+ * 
+ * cached todos are shared between requests and must not be modified
+ */
+public interface TodoCache {
+
+    /**
+     * gives the cached todo or loads and caches it
+     * 
+     * a todo that is invalidated while it is loaded is returned, but not
+     * cached
+     * 
+     * @param id     of the todo
+     * @param loader reads the todo from the database
+     * @return todo, empty if the loader did not find it
+     */
+    Optional<Todo> getOrLoad(int id, IntFunction<Optional<Todo>> loader);
+
+    /**
+     * removes a todo from the cache
+     * 
+     * @param id of the todo
+     */
+    void invalidate(int id);
+
+    /**
+     * removes all todos from the cache
+     */
+    void clear();
+
+    /**
+     * @return counters since startup
+     */
+    CacheStats stats();
+}
@@ -0,0 +1,50 @@
+package com.example.tododemo.cache;
+
+import java.time.Duration;
+
+import com.example.tododemo.event.TodoChangedEvent;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * provides the {@link TodoCache}
+ * 
+ * todo.cache.type selects lru or none, another implementation can be plugged
+ * in as @Primary TodoCache bean
+ */
+@Configuration
+public class TodoCacheConfig {
+
+    @Bean
+    public TodoCache todoCache(@Value("${todo.cache.type:lru}") String type,
+            @Value("${todo.cache.max-size:10000}") int maxSize, @Value("${todo.cache.ttl-seconds:60}") long ttl) {
+        if (type.equalsIgnoreCase("none")) {
+            return new NoOpTodoCache();
+        }
+        if (type.equalsIgnoreCase("lru")) {
+            return new LruTodoCache(maxSize, Duration.ofSeconds(ttl));
+        }
+        throw new IllegalArgumentException("todo.cache.type must be lru or none, not " + type);
+    }
+
+    /**
+     * drops written todos from the cache
+     */
+    @Configuration
+    static class Invalidation {
+
+        private final TodoCache todoCache;
+
+        Invalidation(TodoCache todoCache) {
+            this.todoCache = todoCache;
+        }
+
+        @EventListener
+        public void onTodoChanged(TodoChangedEvent event) {
+            todoCache.invalidate(event.getId());
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.tododemo.changes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.tododemo.event.TodoChangedEvent;
+import com.example.tododemo.event.TodoOverdueEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * server-sent events of todo changes
+ * 
+ * every change is serialized once into a ring buffer of the latest events.
+ * Subscribers only keep their position in the ring, a small pool of sender
+ * threads brings the ones that are behind up to date, idle subscribers hold
+ * no thread. A subscriber that falls more than max-lag events behind is
+ * disconnected and can resume with Last-Event-ID as long as the ring still
+ * has the events, otherwise it gets a reset event and has to read the list
+ * again.
+ * 
+ * a send blocks while the TCP window of the client is full. One that takes
+ * longer than the send timeout disconnects the subscriber, its sender thread
+ * is interrupted and replaced until the write gives up, so stalled clients
+ * cannot hold up the others.
+ */
+public class ChangeFeed implements AutoCloseable {
+
+    static final String RESET_EVENT = "reset";
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final ObjectMapper mapper;
+
+    private final Entry[] ring;
+
+    private final int maxLag;
+
+    private final long timeoutMs;
+
+    private final long sendTimeoutNanos;
+
+    /** sequence of the latest event, guarded by the ring */
+    private long head;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor senders;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private static final class Entry {
+
+        final long id;
+
+        final String name;
+
+        final String data;
+
+        Entry(long id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    /** {@link Subscriber#sendStart} while no send runs */
+    private static final long IDLE = Long.MIN_VALUE;
+
+    /** {@link Subscriber#sendStart} of a send given up on */
+    private static final long STALLED = Long.MAX_VALUE;
+
+    private final class Subscriber {
+
+        final SseEmitter emitter;
+
+        /** id of the last event sent, only touched by the sender holding busy */
+        long position;
+
+        final AtomicBoolean busy = new AtomicBoolean();
+
+        /** nano time the running send started */
+        final AtomicLong sendStart = new AtomicLong(IDLE);
+
+        volatile Thread sender;
+
+        volatile boolean heartbeatDue;
+
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, long position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+    }
+
+    /**
+     * @param mapper           serializes the events
+     * @param capacity         events kept for resuming
+     * @param maxLag           events a subscriber may be behind
+     * @param senderThreads    threads writing to subscribers
+     * @param timeoutMs        connection lifetime, clients reconnect after
+     * @param heartbeatSeconds interval of keep-alive comments
+     * @param sendTimeoutMs    time one send may block before the subscriber
+     *                         is disconnected
+     */
+    public ChangeFeed(ObjectMapper mapper, int capacity, int maxLag, int senderThreads, long timeoutMs,
+            long heartbeatSeconds, long sendTimeoutMs) {
+        if (maxLag > capacity) {
+            throw new IllegalArgumentException("max lag must not exceed the buffer size");
+        }
+        this.mapper = mapper;
+        this.ring = new Entry[capacity];
+        this.maxLag = maxLag;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        AtomicInteger count = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> daemon(r, "changes-" + count.incrementAndGet()));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "changes-heartbeat"));
+        this.heartbeat.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        long checkMs = Math.max(1, sendTimeoutMs / 2);
+        this.heartbeat.scheduleAtFixedRate(this::disconnectStalled, checkMs, checkMs, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener
+    public void onTodoChanged(TodoChangedEvent event) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("type", event.getType());
+        data.put("id", event.getId());
+        if (event.getTodo() != null) {
+            data.put("todo", event.getTodo());
+        }
+        append(event.getType().name().toLowerCase(), data);
+    }
+
+    @EventListener
+    public void onTodoOverdue(TodoOverdueEvent event) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("type", "OVERDUE");
+        data.put("id", event.getId());
+        data.put("dueDate", event.getDueDate());
+        append("overdue", data);
+    }
+
+    /**
+     * @return id of the latest event, 0 if there was none
+     */
+    public long lastEventId() {
+        synchronized (ring) {
+            return head;
+        }
+    }
+
+    public int getSubscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return subscribers disconnected for being too slow
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @param lastEventId id of the last event the client has seen, null for
+     *                    only new events
+     * @return open stream, events missed since lastEventId are sent first
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        return subscribe(new SseEmitter(timeoutMs), lastEventId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long lastEventId) {
+        long position;
+        boolean reset = false;
+        synchronized (ring) {
+            position = head;
+            if (lastEventId != null) {
+                if (lastEventId < Math.max(0, head - maxLag) || lastEventId > head) {
+                    reset = true;
+                } else {
+                    position = lastEventId;
+                }
+            }
+        }
+        Subscriber subscriber = new Subscriber(emitter, position);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscriber.busy.set(true);
+        subscribers.add(subscriber);
+        try {
+            if (reset) {
+                send(subscriber, SseEmitter.event().id(String.valueOf(position)).name(RESET_EVENT).data("{}"));
+            }
+        } catch (IOException e) {
+            remove(subscriber);
+            return emitter;
+        }
+        // the replay runs right here, sends before the stream is open are buffered
+        drain(subscriber);
+        return emitter;
+    }
+
+    private void append(String name, Map<String, Object> data) {
+        String json;
+        try {
+            json = mapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            log.error("change event could not be serialized", e);
+            return;
+        }
+        synchronized (ring) {
+            head++;
+            ring[(int) (head % ring.length)] = new Entry(head, name, json);
+        }
+        for (Subscriber subscriber : subscribers) {
+            schedule(subscriber);
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.busy.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.busy.set(false);
+            }
+        }
+    }
+
+    /**
+     * sends everything the subscriber is missing, the caller holds busy
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                List<Entry> pending = new ArrayList<>();
+                synchronized (ring) {
+                    if (head - subscriber.position > maxLag || subscriber.position < oldestLocked() - 1) {
+                        dropped.increment();
+                        subscriber.closed = true;
+                    } else {
+                        for (long id = subscriber.position + 1; id <= head; id++) {
+                            pending.add(ring[(int) (id % ring.length)]);
+                        }
+                    }
+                }
+                if (subscriber.closed) {
+                    log.debug("disconnecting slow change subscriber");
+                    subscriber.emitter.complete();
+                    break;
+                }
+                if (pending.isEmpty()) {
+                    if (subscriber.heartbeatDue) {
+                        subscriber.heartbeatDue = false;
+                        send(subscriber, SseEmitter.event().comment("keep-alive"));
+                    }
+                    subscriber.busy.set(false);
+                    // an event appended after the check would otherwise wait for the next one
+                    if (!hasPending(subscriber) || !subscriber.busy.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                for (Entry entry : pending) {
+                    send(subscriber,
+                            SseEmitter.event().id(String.valueOf(entry.id)).name(entry.name).data(entry.data));
+                    subscriber.position = entry.id;
+                }
+                subscriber.heartbeatDue = false;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // client went away, the emitter callbacks clean up
+            subscriber.closed = true;
+            subscriber.emitter.completeWithError(e);
+        }
+        remove(subscriber);
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        long start = System.nanoTime();
+        subscriber.sender = Thread.currentThread();
+        subscriber.sendStart.set(start);
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            if (!subscriber.sendStart.compareAndSet(start, IDLE)) {
+                // given up on, the thread that took over stays
+                resizeSenders(-1);
+                Thread.interrupted();
+                throw new IOException("change subscriber stalled");
+            }
+        }
+    }
+
+    /**
+     * disconnects subscribers whose send blocks longer than the send timeout
+     * and lets another thread take over the blocked one
+     */
+    private void disconnectStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long start = subscriber.sendStart.get();
+            if (start != IDLE && start != STALLED && now - start > sendTimeoutNanos
+                    && subscriber.sendStart.compareAndSet(start, STALLED)) {
+                log.debug("disconnecting stalled change subscriber");
+                dropped.increment();
+                remove(subscriber);
+                resizeSenders(1);
+                // the emitter is locked by the send, it is completed once the write returns
+                subscriber.sender.interrupt();
+            }
+        }
+    }
+
+    private synchronized void resizeSenders(int delta) {
+        int size = senders.getCorePoolSize() + delta;
+        if (delta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private boolean hasPending(Subscriber subscriber) {
+        synchronized (ring) {
+            return head > subscriber.position;
+        }
+    }
+
+    private long oldestLocked() {
+        return Math.max(1, head - ring.length + 1);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
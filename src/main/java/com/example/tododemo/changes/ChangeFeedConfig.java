@@ -0,0 +1,38 @@
+package com.example.tododemo.changes;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * change feed behind GET /todos/changes
+ */
+@Configuration
+public class ChangeFeedConfig {
+
+    @Bean(destroyMethod = "close")
+    public ChangeFeed changeFeed(ObjectMapper mapper, @Value("${todo.changes.buffer-size:10000}") int bufferSize,
+            @Value("${todo.changes.max-lag:1000}") int maxLag, @Value("${todo.changes.sender-threads:4}") int senders,
+            @Value("${todo.changes.timeout-minutes:30}") long timeoutMinutes,
+            @Value("${todo.changes.heartbeat-seconds:15}") long heartbeatSeconds,
+            @Value("${todo.changes.send-timeout-ms:5000}") long sendTimeoutMs) {
+        return new ChangeFeed(mapper, bufferSize, maxLag, senders, TimeUnit.MINUTES.toMillis(timeoutMinutes),
+                heartbeatSeconds, sendTimeoutMs);
+    }
+
+    @Bean
+    public MeterBinder changeFeedMetrics(ChangeFeed changeFeed) {
+        return registry -> {
+            Gauge.builder("todo.changes.subscribers", changeFeed, ChangeFeed::getSubscribers).register(registry);
+            FunctionCounter.builder("todo.changes.dropped", changeFeed, ChangeFeed::getDropped).register(registry);
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.tododemo.coalesce;
+
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.service.TodoListService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * provides the {@link CoalescingTodoReader}, todo.coalesce.max-keys=0 turns
+ * coalescing off
+ */
+@Configuration
+public class CoalesceConfig {
+
+    @Bean
+    public CoalescingTodoReader coalescingTodoReader(TodoRepository todoRepo, TodoListService todoList,
+            @Value("${todo.coalesce.max-keys:1000}") int maxKeys,
+            @Value("${todo.coalesce.timeout-ms:2000}") long timeoutMs) {
+        return new CoalescingTodoReader(todoRepo, todoList, maxKeys, timeoutMs);
+    }
+
+    @Bean
+    public MeterBinder coalesceMetrics(CoalescingTodoReader reader) {
+        return registry -> {
+            FunctionCounter.builder("todo.coalesce.coalesced", reader, CoalescingTodoReader::getCoalesced)
+                    .description("requests that got the database read of another request").register(registry);
+            FunctionCounter.builder("todo.coalesce.timeouts", reader, CoalescingTodoReader::getTimeouts)
+                    .description("requests that stopped waiting and read on their own").register(registry);
+            Gauge.builder("todo.coalesce.in-flight", reader, CoalescingTodoReader::getInFlight).register(registry);
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.tododemo.coalesce;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.example.tododemo.event.TodoChangedEvent;
+import com.example.tododemo.json.TodoFields;
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.replica.ReadRouting;
+import com.example.tododemo.repository.TodoListFingerprint;
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.repository.TodoSummary;
+import com.example.tododemo.service.TodoListService;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * the reads of GET /todos/{id} and GET /todos, concurrent identical reads
+ * share one database call
+ * 
+ * works below the {@link com.example.tododemo.cache.TodoCache}, so it also
+ * keeps cache misses of a popular todo from all reaching the database. Waiters
+ * get detached copies of the todos, the loading request keeps its entities.
+ * Every write through the API forgets the running reads it may change.
+ * Requests that have to see the primary read alone.
+ */
+public class CoalescingTodoReader {
+
+    private final TodoRepository todoRepo;
+
+    private final TodoListService todoList;
+
+    private final SingleFlight<Integer, Optional<Todo>> todos;
+
+    private final SingleFlight<Boolean, TodoListFingerprint> fingerprints;
+
+    private final SingleFlight<String, List<? extends TodoSummary>> pages;
+
+    /**
+     * @param todoRepo  repository
+     * @param todoList  reads the pages
+     * @param maxKeys   reads shared at once per kind, 0 turns coalescing off
+     * @param timeoutMs time a request waits for the read of another one
+     */
+    public CoalescingTodoReader(TodoRepository todoRepo, TodoListService todoList, int maxKeys, long timeoutMs) {
+        this.todoRepo = todoRepo;
+        this.todoList = todoList;
+        this.todos = new SingleFlight<>(maxKeys, timeoutMs, todo -> todo.map(Todo::copy));
+        // fingerprints are read-only projections
+        this.fingerprints = new SingleFlight<>(maxKeys, timeoutMs, fingerprint -> fingerprint);
+        this.pages = new SingleFlight<>(maxKeys, timeoutMs, CoalescingTodoReader::detach);
+    }
+
+    /**
+     * @param id of the todo
+     * @return todo, empty if there is none
+     */
+    public Optional<Todo> findById(int id) {
+        if (ReadRouting.isPrimaryForced()) {
+            return todoRepo.findById(id);
+        }
+        return todos.load(id, todoRepo::findById);
+    }
+
+    /**
+     * @param unfinished only unfinished todos
+     * @return fingerprint of the list
+     */
+    public TodoListFingerprint fingerprint(boolean unfinished) {
+        if (ReadRouting.isPrimaryForced()) {
+            return read(unfinished);
+        }
+        return fingerprints.load(unfinished, this::read);
+    }
+
+    /**
+     * @param unfinished only unfinished todos
+     * @param pageable   page to read
+     * @param fields     requested fields, null for whole todos
+     * @return entities or list rows, see {@link TodoListService}
+     */
+    public List<? extends TodoSummary> page(boolean unfinished, Pageable pageable, TodoFields fields) {
+        if (ReadRouting.isPrimaryForced()) {
+            return todoList.page(unfinished, pageable, fields);
+        }
+        String key = (unfinished ? "unfinished" : "all") + "|" + pageable.getPageNumber() + "|"
+                + pageable.getPageSize() + "|" + fields;
+        return pages.load(key, k -> todoList.page(unfinished, pageable, fields));
+    }
+
+    @EventListener
+    public void onTodoChanged(TodoChangedEvent event) {
+        todos.forget(event.getId());
+        // any write can move a todo into or out of any page
+        fingerprints.forgetAll();
+        pages.forgetAll();
+    }
+
+    /**
+     * @return requests that got the read of another request
+     */
+    public long getCoalesced() {
+        return todos.getCoalesced() + fingerprints.getCoalesced() + pages.getCoalesced();
+    }
+
+    /**
+     * @return requests that stopped waiting and read on their own
+     */
+    public long getTimeouts() {
+        return todos.getTimeouts() + fingerprints.getTimeouts() + pages.getTimeouts();
+    }
+
+    /**
+     * @return reads running and shared
+     */
+    public int getInFlight() {
+        return todos.getInFlight() + fingerprints.getInFlight() + pages.getInFlight();
+    }
+
+    private TodoListFingerprint read(boolean unfinished) {
+        return unfinished ? todoRepo.fingerprintUnfinished() : todoRepo.fingerprintAll();
+    }
+
+    private static List<? extends TodoSummary> detach(List<? extends TodoSummary> page) {
+        List<TodoSummary> copy = new ArrayList<>(page.size());
+        for (TodoSummary todo : page) {
+            copy.add(todo instanceof Todo ? ((Todo) todo).copy() : todo);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.tododemo.coalesce;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * runs concurrent loads of the same key once
+ * 
+ * the first caller of a key loads it on its own thread, callers arriving
+ * while it runs wait for its result instead of loading again. Waiting is
+ * bounded: a waiter that gets no result in time loads on its own. At most
+ * maxKeys loads are shared at once, further keys are loaded alone. A key that
+ * is forgotten, because its data was written, is loaded anew by the next
+ * caller, so nobody gets a result read before a write it has seen.
+ * 
+ * @param <K> key, with equals and hashCode
+ * @param <V> loaded value
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    private final int maxKeys;
+
+    private final long timeoutMs;
+
+    private final UnaryOperator<V> share;
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * @param maxKeys   loads shared at once
+     * @param timeoutMs time a waiter waits for the shared load
+     * @param share     makes the value of the loading caller safe to hand to
+     *                  the waiters, called once per load
+     */
+    public SingleFlight(int maxKeys, long timeoutMs, UnaryOperator<V> share) {
+        this.maxKeys = maxKeys;
+        this.timeoutMs = timeoutMs;
+        this.share = share;
+    }
+
+    /**
+     * @param key    what to load
+     * @param loader loads the value, runs on the calling thread
+     * @return loaded value, possibly loaded by another caller
+     */
+    public V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> flight = flights.get(key);
+        if (flight == null) {
+            if (flights.size() >= maxKeys) {
+                loads.increment();
+                return loader.apply(key);
+            }
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            flight = flights.putIfAbsent(key, mine);
+            if (flight == null) {
+                return lead(key, mine, loader);
+            }
+        }
+        return await(key, flight, loader);
+    }
+
+    private V lead(K key, CompletableFuture<V> mine, Function<? super K, ? extends V> loader) {
+        loads.increment();
+        try {
+            V value = loader.apply(key);
+            mine.complete(share.apply(value));
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, mine);
+        }
+    }
+
+    private V await(K key, CompletableFuture<V> flight, Function<? super K, ? extends V> loader) {
+        coalesced.increment();
+        try {
+            return flight.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            loads.increment();
+            return loader.apply(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("loading " + key + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * lets the next caller of the key load again, callers already waiting
+     * still get the running load
+     * 
+     * @param key key whose data was written
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    /**
+     * lets the next caller of every key load again
+     */
+    public void forgetAll() {
+        flights.clear();
+    }
+
+    /**
+     * @return loads that reached the loader
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * @return callers that waited for the load of another caller
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return waiters that loaded on their own after the timeout
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return loads running and shared
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+}
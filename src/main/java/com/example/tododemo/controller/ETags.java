@@ -0,0 +1,126 @@
+package com.example.tododemo.controller;
+
+import java.util.List;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoListFingerprint;
+import com.example.tododemo.repository.TodoSummary;
+
+/**
+ * entity tags of todos and todo lists
+ * 
+ * a single todo is tagged by id and row version, a list page by a hash of
+ * what it was read from, so both can be compared before the payload is built.
+ * List tags are weak: the hash is not the bytes of the page and one tag
+ * covers its JSON, CBOR and Smile form, they only serve If-None-Match.
+ */
+final class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETags() {
+    }
+
+    /**
+     * @param id      of the todo
+     * @param version row version of the todo
+     * @return strong entity tag
+     */
+    static String of(int id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    static String of(Todo todo) {
+        return of(todo.getId(), todo.getVersion());
+    }
+
+    /**
+     * tag of an offset page, changes whenever a todo of the filtered list is
+     * created, changed or deleted
+     * 
+     * @param fingerprint aggregate over the filtered list
+     * @param query       state, limit and offset of the page
+     * @return weak entity tag
+     */
+    static String ofList(TodoListFingerprint fingerprint, String query) {
+        long h = hash(FNV_OFFSET, query);
+        h = hash(h, fingerprint.getTotal());
+        h = hash(h, fingerprint.getMaxId());
+        h = hash(h, fingerprint.getVersionSum());
+        return "W/\"l-" + Long.toHexString(h) + "\"";
+    }
+
+    /**
+     * tag of a page that has already been read
+     * 
+     * @param page  todos of the page
+     * @param query state, limit and cursor of the page
+     * @return weak entity tag
+     */
+    static String ofPage(List<? extends TodoSummary> page, String query) {
+        long h = hash(FNV_OFFSET, query);
+        for (TodoSummary todo : page) {
+            h = hash(h, todo.getId());
+            h = hash(h, todo.getVersion());
+        }
+        return "W/\"p-" + Long.toHexString(h) + "\"";
+    }
+
+    /**
+     * weak comparison as used by If-None-Match
+     * 
+     * @param header value of If-None-Match, may be null
+     * @param etag   current tag
+     * @return true if the client has the current representation
+     */
+    static boolean matchesNoneMatch(String header, String etag) {
+        return matches(header, etag, true);
+    }
+
+    /**
+     * strong comparison as used by If-Match, a weak tag never matches
+     * 
+     * @param header value of If-Match, may be null
+     * @param etag   current tag
+     * @return true if there is no precondition or it holds
+     */
+    static boolean matchesIfMatch(String header, String etag) {
+        return header == null || matches(header, etag, false);
+    }
+
+    private static boolean matches(String header, String etag, boolean weak) {
+        if (header == null) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (weak ? opaque(tag).equals(opaque(etag)) : tag.equals(etag) && !etag.startsWith("W/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long hash(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long hash(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h = (h ^ (value & 0xff)) * FNV_PRIME;
+            value >>>= 8;
+        }
+        return h;
+    }
+}
@@ -1,29 +1,120 @@
 package com.example.tododemo.controller;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.support.PagedListHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
 
 import com.example.tododemo.repository.*;
+import com.example.tododemo.cache.CacheStats;
+import com.example.tododemo.changes.ChangeFeed;
+import com.example.tododemo.coalesce.CoalescingTodoReader;
+import com.example.tododemo.cache.TodoCache;
+import com.example.tododemo.event.TodoChangedEvent;
+import com.example.tododemo.json.SparseTodoList;
+import com.example.tododemo.json.TodoFields;
+import com.example.tododemo.json.TodoJson;
+import com.example.tododemo.model.BatchItemResult;
+import com.example.tododemo.model.ErrorResponse;
 import com.example.tododemo.model.Todo;
+import com.example.tododemo.search.SearchHit;
+import com.example.tododemo.search.SearchResult;
+import com.example.tododemo.search.TodoSearchIndex;
+import com.example.tododemo.service.TodoBatchService;
+import com.example.tododemo.service.TodoExportService;
+import com.example.tododemo.service.TodoListService;
+import com.example.tododemo.stats.TodoCounts;
+import com.example.tododemo.stats.TodoStats;
+import com.example.tododemo.writebehind.GroupCommitWriter;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 public class TodoController {
 
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String MERGE_PATCH_VALUE = "application/merge-patch+json";
+    private static final int GZIP_BUFFER_SIZE = 8192;
+    private static final int SEARCH_MAX_LIMIT = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(TodoController.class);
+
     @Autowired
     private TodoRepository todoRepo;
 
+    @Autowired
+    private TodoExportService todoExport;
+
+    @Autowired
+    private TodoListService todoList;
+
+    @Autowired
+    private TodoBatchService batchService;
+
+    @Autowired
+    private TodoCache todoCache;
+
+    @Autowired
+    private CoalescingTodoReader todoReader;
+
+    @Autowired
+    private TodoSearchIndex searchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private TodoStats todoStats;
+
+    @Autowired(required = false)
+    private GroupCommitWriter writeBehind;
+
+    @Value("${todo.batch.max-items:10000}")
+    private int batchMaxItems;
+
+    @Value("${todo.write-behind.timeout-ms:5000}")
+    private long writeBehindTimeoutMs;
+
     public TodoController() {
     }
 
@@ -32,54 +123,268 @@ public class TodoController {
      * 
      * gives todo with specified id
      * 
-     * @param id of the todo
-     * @return todo object
+     * one read, from the cache or shared with concurrent requests for the
+     * same todo, also answers conditional requests
+     * 
+     * @param id          of the todo
+     * @param ifNoneMatch ETag the client already has
+     * @return todo object, 304 if it did not change
      */
-    @RequestMapping(value = "/todos/{id}", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
-    public ResponseEntity<?> getTodo(@PathVariable("id") int id) {
+    @RequestMapping(value = "/todos/{id}", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE,
+            TodoJson.CBOR_VALUE, TodoJson.SMILE_VALUE })
+    public ResponseEntity<?> getTodo(@PathVariable("id") int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            System.out.println(todoRepo.findById(id).get().toJSON());
-            return new ResponseEntity<Todo>(todoRepo.findById(id).get(), HttpStatus.OK);
+            Todo todo = todoCache.getOrLoad(id, todoReader::findById).get();
+            String etag = ETags.of(todo);
+            if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(todo);
         } catch (Exception e) {
             return new ResponseEntity<String>(id + " not found", HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * GET /todos/cache
+     * 
+     * gives the counters of the single todo cache
+     * 
+     * @return hits, misses, evictions and size
+     */
+    @RequestMapping(value = "/todos/cache", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return new ResponseEntity<>(todoCache.stats(), HttpStatus.OK);
+    }
+
+    /**
+     * GET /todos/stats
+     * 
+     * gives the number of todos from counters, without a query
+     * 
+     * @return total, done, unfinished and overdue todos
+     */
+    @RequestMapping(value = "/todos/stats", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<TodoCounts> getStats() {
+        return new ResponseEntity<>(todoStats.counts(), HttpStatus.OK);
+    }
+
+    /**
+     * GET /todos/changes
+     * 
+     * stream of created, updated, deleted and overdue todos as server-sent
+     * events, a reconnecting client gets the events it missed. When they are no
+     * longer buffered a reset event is sent first and the list has to be read
+     * again.
+     * 
+     * @param lastEventId id of the last event the client received
+     * @return open event stream
+     */
+    @RequestMapping(value = "/todos/changes", method = RequestMethod.GET, produces = {
+            MediaType.TEXT_EVENT_STREAM_VALUE })
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long position = null;
+        if (lastEventId != null) {
+            try {
+                position = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // unknown position, the client starts over with a reset
+                position = -1L;
+            }
+        }
+        return changeFeed.subscribe(position);
+    }
+
+    /**
+     * GET /todos/search?q=...
+     * 
+     * full text search over title and description, every word of the query has
+     * to match a word of the todo or the beginning of one
+     * 
+     * @param q     search text
+     * @param limit maximal number of todos, at most 100
+     * @return matching todos, best first, and the number of all matches in
+     *         X-Total-Count
+     */
+    @RequestMapping(value = "/todos/search", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE,
+            TodoJson.CBOR_VALUE, TodoJson.SMILE_VALUE })
+    public ResponseEntity<?> searchTodos(@RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            ArrayList<ErrorResponse> error = new ArrayList<>();
+            if (q.trim().isEmpty()) {
+                error.add(createErrMsg("QUERY_EMPTY", "q must contain at least one word"));
+            }
+            if (limit < 1 || limit > SEARCH_MAX_LIMIT) {
+                error.add(createErrMsg("LIMIT_RANGE", "limit must be between 1 and " + SEARCH_MAX_LIMIT));
+            }
+            if (!error.isEmpty()) {
+                return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+            }
+            SearchResult result = searchIndex.search(q, limit);
+            List<Integer> ids = new ArrayList<>(result.getHits().size());
+            for (SearchHit hit : result.getHits()) {
+                ids.add(hit.getId());
+            }
+            Map<Integer, Todo> found = new HashMap<>();
+            todoRepo.findAllById(ids).forEach(t -> found.put(t.getId(), t));
+            // keep the ranking, the index may still know a todo that is gone
+            List<Todo> todos = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                if (found.containsKey(id)) {
+                    todos.add(found.get(id));
+                }
+            }
+            return ResponseEntity.ok().header(TOTAL_COUNT_HEADER, String.valueOf(result.getTotal())).body(todos);
+        } catch (Exception e) {
+            log.error("search failed", e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * PUT /todos
      * 
-     * updates todo object
+     * updates todo object in place, based on the If-Match tag if there is
+     * one, otherwise the version of the body has to match the stored one
      * 
-     * @param t new todo object
+     * @param t       new todo object
+     * @param ifMatch ETag the update is based on, optional
      * @return confirmation
      */
     @RequestMapping(value = "/todos", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> updateTodo(@RequestBody Todo t) {
+    public ResponseEntity<?> updateTodo(@RequestBody Todo t,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            ArrayList<String> error = null;
+            ArrayList<ErrorResponse> error = null;
             if ((error = validateInput(t)).isEmpty()) {
-                todoRepo.deleteById(t.getId());
-                todoRepo.save(t);
+                Optional<Todo> current = todoRepo.findById(t.getId());
+                if (!current.isPresent()) {
+                    return new ResponseEntity<String>("Todo not found.", HttpStatus.NOT_FOUND);
+                }
+                if (ifMatch != null) {
+                    if (!ETags.matchesIfMatch(ifMatch, ETags.of(current.get()))) {
+                        return new ResponseEntity<String>("Todo was modified.", HttpStatus.PRECONDITION_FAILED);
+                    }
+                    // the precondition held, the version in the body does not matter
+                    t.setVersion(current.get().getVersion());
+                } else if (current.get().getVersion() != t.getVersion()) {
+                    return new ResponseEntity<String>("Todo was modified.", HttpStatus.CONFLICT);
+                }
+                // the merge below writes into the loaded todo
+                TodoDueDate before = TodoListItem.of(current.get());
+                // merge, hibernate checks the version again in the update
+                Todo saved = todoRepo.save(t);
+                todoStats.updated(before, TodoListItem.of(saved));
+                publish(TodoChangedEvent.Type.UPDATED, saved.getId(), saved);
                 return new ResponseEntity<String>("Todo updated.", HttpStatus.NO_CONTENT);
             }
             return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<String>("Todo was modified.", HttpStatus.CONFLICT);
         } catch (Exception e) {
             return new ResponseEntity<String>("Todo not found.", HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * PATCH /todos/{id}
+     * 
+     * updates single fields of a todo object. A patch of only done is one
+     * UPDATE of done and the version without loading the todo, if done
+     * changes; only then its due date is read, once for the statistics and
+     * the listeners.
+     * 
+     * @param id      of the todo
+     * @param patch   fields to change: title, description, dueDate, done and
+     *                optionally the expected version
+     * @param ifMatch ETag the patch is based on, optional
+     * @return confirmation
+     */
+    @RequestMapping(value = "/todos/{id}", method = RequestMethod.PATCH, consumes = { MediaType.APPLICATION_JSON_VALUE,
+            MERGE_PATCH_VALUE })
+    public ResponseEntity<?> patchTodo(@PathVariable("id") int id, @RequestBody Map<String, Object> patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            if (ifMatch == null && patch.size() == 1 && patch.get("done") instanceof Boolean) {
+                if (todoRepo.updateDone(id, (Boolean) patch.get("done")) == 0) {
+                    // no such todo, or done already, e.g. by an equal patch at the same time
+                    if (!todoRepo.existsById(id)) {
+                        return new ResponseEntity<String>("Todo not found.", HttpStatus.NOT_FOUND);
+                    }
+                    return new ResponseEntity<String>("Todo updated.", HttpStatus.NO_CONTENT);
+                }
+                TodoDueDate after = dueDateOf(id);
+                if (after != null) {
+                    todoStats.doneChanged(after);
+                }
+                events.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.UPDATED, id, null, after));
+                return new ResponseEntity<String>("Todo updated.", HttpStatus.NO_CONTENT);
+            }
+            Optional<Todo> current = todoRepo.findById(id);
+            if (!current.isPresent()) {
+                return new ResponseEntity<String>("Todo not found.", HttpStatus.NOT_FOUND);
+            }
+            if (!ETags.matchesIfMatch(ifMatch, ETags.of(current.get()))) {
+                return new ResponseEntity<String>("Todo was modified.", HttpStatus.PRECONDITION_FAILED);
+            }
+            // patch a copy, the stored todo must stay untouched if the patch is invalid
+            Todo t = current.get().copy();
+            ArrayList<ErrorResponse> error = applyPatch(t, patch);
+            if (error.isEmpty()) {
+                error = validateInput(t);
+            }
+            if (!error.isEmpty()) {
+                return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+            }
+            TodoDueDate before = TodoListItem.of(current.get());
+            Todo saved = todoRepo.save(t);
+            todoStats.updated(before, TodoListItem.of(saved));
+            publish(TodoChangedEvent.Type.UPDATED, id, saved);
+            return new ResponseEntity<String>("Todo updated.", HttpStatus.NO_CONTENT);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<String>("Todo was modified.", HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            return new ResponseEntity<String>("Invalid patch", HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * DELETE /todos/{id}
      * 
      * deletes todo object
      * 
-     * @param t object to delete
+     * @param id      of the todo to delete
+     * @param ifMatch ETag the delete is based on, optional
      * @return confirmation
      */
     @RequestMapping(value = "/todos/{id}", method = RequestMethod.DELETE)
-    public ResponseEntity<String> deleteTodo(@PathVariable("id") int id) {
+    public ResponseEntity<String> deleteTodo(@PathVariable("id") int id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
+            if (ifMatch != null) {
+                Optional<Long> version = todoRepo.findVersionById(id);
+                TodoDueDate before = dueDateOf(id);
+                if (!version.isPresent() || before == null) {
+                    return new ResponseEntity<String>("Todo not found.", HttpStatus.NOT_FOUND);
+                }
+                // delete only the version the client has seen
+                if (!ETags.matchesIfMatch(ifMatch, ETags.of(id, version.get()))
+                        || todoRepo.deleteByIdAndVersion(id, version.get()) == 0) {
+                    return new ResponseEntity<String>("Todo was modified.", HttpStatus.PRECONDITION_FAILED);
+                }
+                todoStats.deleted(before);
+                publish(TodoChangedEvent.Type.DELETED, id, null);
+                return new ResponseEntity<String>("Todo deleted.", HttpStatus.OK);
+            }
+            TodoDueDate before = dueDateOf(id);
+            if (before == null) {
+                return new ResponseEntity<String>("Todo not found.", HttpStatus.NOT_FOUND);
+            }
             todoRepo.deleteById(id);
+            todoStats.deleted(before);
+            publish(TodoChangedEvent.Type.DELETED, id, null);
             return new ResponseEntity<String>("Todo deleted.", HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<String>("Todo not found.", HttpStatus.NOT_FOUND);
@@ -91,32 +396,331 @@ public class TodoController {
      * 
      * creates new todo object
      * 
+     * with write-behind the todo is committed together with other new todos,
+     * 202 means it was queued but is not committed yet
+     * 
      * @param t new todo object
      * @return new todo object
      */
     @RequestMapping(value = "/todos", method = RequestMethod.POST)
     public ResponseEntity<?> createTodo(@RequestBody Todo t) {
         try {
-            ArrayList<String> error = null;
+            ArrayList<ErrorResponse> error = null;
             if ((error = validateInput(t)).isEmpty()) {
-                todoRepo.save(t);
-                return new ResponseEntity<Todo>(t, HttpStatus.CREATED);
+                // always a new todo, an id of the body must not overwrite a stored one
+                t.setId(0);
+                t.setVersion(0);
+                if (writeBehind != null) {
+                    return createBehind(t);
+                }
+                Todo saved = todoRepo.save(t);
+                todoStats.created(TodoListItem.of(saved));
+                publish(TodoChangedEvent.Type.CREATED, saved.getId(), saved);
+                return new ResponseEntity<Todo>(saved, HttpStatus.CREATED);
             }
-            error.forEach((x) -> System.out.println(x.toString()));
+            log.debug("invalid todo: {}", error);
             return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
         } catch (Exception e) {
             return new ResponseEntity<String>("Invalid todo", HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * queues a valid todo for the next group commit
+     * 
+     * @param t new todo object
+     * @return 201 with the todo once committed, 202 if relaxed or not
+     *         committed in time, 503 if the queue is full
+     */
+    private ResponseEntity<?> createBehind(Todo t) throws InterruptedException {
+        CompletableFuture<Todo> created = writeBehind.submit(t);
+        if (created == null) {
+            ArrayList<ErrorResponse> error = new ArrayList<>();
+            error.add(createErrMsg("WRITE_QUEUE_FULL", "too many todos waiting to be written, retry later"));
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            return new ResponseEntity<>(error, headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        // counted when committed, also after this request gave up waiting
+        created.thenAccept(todo -> todoStats.created(TodoListItem.of(todo)));
+        if (writeBehind.isRelaxed()) {
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        }
+        try {
+            return new ResponseEntity<Todo>(created.get(writeBehindTimeoutMs, TimeUnit.MILLISECONDS),
+                    HttpStatus.CREATED);
+        } catch (TimeoutException e) {
+            // still queued, it is written later
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        } catch (ExecutionException e) {
+            log.error("todo could not be written", e.getCause());
+            ArrayList<ErrorResponse> error = new ArrayList<>();
+            error.add(createErrMsg("WRITE_FAILED", "todo could not be written"));
+            return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * POST /todos/batch
+     * 
+     * creates many todo objects with batched inserts
+     * 
+     * @param todos new todo objects
+     * @return result per todo, in request order
+     */
+    @RequestMapping(value = "/todos/batch", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createTodos(@RequestBody List<Todo> todos) {
+        try {
+            if (todos.size() > batchMaxItems) {
+                return batchTooLarge();
+            }
+            BatchItemResult[] results = new BatchItemResult[todos.size()];
+            List<Integer> index = new ArrayList<>();
+            List<Todo> valid = validateBatch(todos, HttpStatus.PRECONDITION_FAILED, results, index);
+            mergeResults(results, index, batchService.createAll(valid));
+            publishBatch(TodoChangedEvent.Type.CREATED, results, null);
+            return new ResponseEntity<>(Arrays.asList(results), HttpStatus.MULTI_STATUS);
+        } catch (Exception e) {
+            return new ResponseEntity<String>("Invalid todos", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * PUT /todos/batch
+     * 
+     * updates many todo objects with batched updates
+     * 
+     * @param todos new todo objects
+     * @return result per todo, in request order
+     */
+    @RequestMapping(value = "/todos/batch", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> updateTodos(@RequestBody List<Todo> todos) {
+        try {
+            if (todos.size() > batchMaxItems) {
+                return batchTooLarge();
+            }
+            BatchItemResult[] results = new BatchItemResult[todos.size()];
+            List<Integer> index = new ArrayList<>();
+            List<Todo> valid = validateBatch(todos, HttpStatus.BAD_REQUEST, results, index);
+            List<Integer> ids = new ArrayList<>(valid.size());
+            for (Todo todo : valid) {
+                ids.add(todo.getId());
+            }
+            Map<Integer, TodoDueDate> before = dueDatesOf(ids);
+            mergeResults(results, index, batchService.updateAll(valid));
+            publishBatch(TodoChangedEvent.Type.UPDATED, results, before);
+            return new ResponseEntity<>(Arrays.asList(results), HttpStatus.MULTI_STATUS);
+        } catch (Exception e) {
+            return new ResponseEntity<String>("Invalid todos", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * DELETE /todos/batch
+     * 
+     * deletes many todo objects
+     * 
+     * @param ids ids of the todos to delete
+     * @return result per id, in request order
+     */
+    @RequestMapping(value = "/todos/batch", method = RequestMethod.DELETE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> deleteTodos(@RequestBody List<Integer> ids) {
+        try {
+            if (ids.size() > batchMaxItems) {
+                return batchTooLarge();
+            }
+            Map<Integer, TodoDueDate> before = dueDatesOf(ids);
+            List<BatchItemResult> results = batchService.deleteAll(ids);
+            for (BatchItemResult result : results) {
+                if (result.getStatus() == HttpStatus.OK.value()) {
+                    TodoDueDate deleted = before.get(result.getId());
+                    if (deleted != null) {
+                        todoStats.deleted(deleted);
+                    }
+                    publish(TodoChangedEvent.Type.DELETED, result.getId(), null);
+                }
+            }
+            return new ResponseEntity<>(results, HttpStatus.MULTI_STATUS);
+        } catch (Exception e) {
+            return new ResponseEntity<String>("Invalid ids", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * validates every todo of a batch
+     * 
+     * @param todos         todos to validate
+     * @param invalidStatus status reported for invalid todos
+     * @param results       receives the results of invalid todos
+     * @param index         receives the request index of every valid todo
+     * @return valid todos
+     */
+    private List<Todo> validateBatch(List<Todo> todos, HttpStatus invalidStatus, BatchItemResult[] results,
+            List<Integer> index) {
+        List<Todo> valid = new ArrayList<>(todos.size());
+        for (int i = 0; i < todos.size(); i++) {
+            Todo todo = todos.get(i);
+            ArrayList<ErrorResponse> error;
+            try {
+                error = validateInput(todo);
+            } catch (Exception e) {
+                error = new ArrayList<>();
+                error.add(createErrMsg("TODO_INVALID", "todo must have title, description and dueDate"));
+            }
+            if (error.isEmpty()) {
+                valid.add(todo);
+                index.add(i);
+            } else {
+                results[i] = BatchItemResult.failed(i, todo == null ? null : todo.getId(), invalidStatus.value(), error);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * puts the results of the valid todos back to their request position
+     * 
+     * @param results all results
+     * @param index   request index of every valid todo
+     * @param written results of the valid todos
+     */
+    private void mergeResults(BatchItemResult[] results, List<Integer> index, List<BatchItemResult> written) {
+        for (BatchItemResult result : written) {
+            int i = index.get(result.getIndex());
+            result.setIndex(i);
+            results[i] = result;
+        }
+    }
+
+    /**
+     * counts and publishes an event for every written todo of a batch
+     * 
+     * @param type    kind of change
+     * @param results results in request order, with the todos as written
+     * @param before  state before an update by id, null for creates
+     */
+    private void publishBatch(TodoChangedEvent.Type type, BatchItemResult[] results,
+            Map<Integer, TodoDueDate> before) {
+        for (int i = 0; i < results.length; i++) {
+            if (HttpStatus.valueOf(results[i].getStatus()).is2xxSuccessful()) {
+                Todo todo = results[i].getTodo();
+                if (before == null) {
+                    todoStats.created(TodoListItem.of(todo));
+                } else if (before.containsKey(results[i].getId())) {
+                    todoStats.updated(before.get(results[i].getId()), TodoListItem.of(todo));
+                }
+                publish(type, results[i].getId(), todo);
+            }
+        }
+    }
+
+    /**
+     * @param id of the todo
+     * @return due date and done of the todo, null if there is none
+     */
+    private TodoDueDate dueDateOf(int id) {
+        List<TodoDueDate> found = todoRepo.findDueDatesByIdIn(Collections.singletonList(id));
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * @param ids ids of the todos, may contain null
+     * @return due date and done by id of the todos found, with one query
+     */
+    private Map<Integer, TodoDueDate> dueDatesOf(Collection<Integer> ids) {
+        Set<Integer> distinct = new HashSet<>(ids);
+        distinct.remove(null);
+        Map<Integer, TodoDueDate> byId = new HashMap<>();
+        if (!distinct.isEmpty()) {
+            for (TodoDueDate dueDate : todoRepo.findDueDatesByIdIn(distinct)) {
+                byId.put(dueDate.getId(), dueDate);
+            }
+        }
+        return byId;
+    }
+
+    /**
+     * tells listeners like the cache about a committed write
+     * 
+     * @param type kind of change
+     * @param id   id of the todo
+     * @param todo state after the change, if known
+     */
+    private void publish(TodoChangedEvent.Type type, int id, Todo todo) {
+        events.publishEvent(new TodoChangedEvent(type, id, todo));
+    }
+
+    private ResponseEntity<?> batchTooLarge() {
+        ArrayList<ErrorResponse> error = new ArrayList<>();
+        error.add(createErrMsg("BATCH_SIZE", "batch size must be less or equal to " + batchMaxItems));
+        return new ResponseEntity<>(error, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    /**
+     * applies a merge patch to a todo
+     * 
+     * @param t     todo to change
+     * @param patch fields to change
+     * @return ArrayList of errors
+     */
+    private ArrayList<ErrorResponse> applyPatch(Todo t, Map<String, Object> patch) {
+        ArrayList<ErrorResponse> output = new ArrayList<>();
+        for (Map.Entry<String, Object> field : patch.entrySet()) {
+            Object value = field.getValue();
+            switch (field.getKey()) {
+            case "title":
+                if (value instanceof String) {
+                    t.setTitle((String) value);
+                } else {
+                    output.add(createErrMsg("TITLE_NULL", "title must not be null"));
+                }
+                break;
+            case "description":
+                if (value instanceof String) {
+                    t.setDescription((String) value);
+                } else {
+                    output.add(createErrMsg("DESCRIPTION_TYPE", "description must be a string"));
+                }
+                break;
+            case "dueDate":
+                try {
+                    t.setDueDate(Instant.parse((String) value));
+                } catch (RuntimeException e) {
+                    output.add(createErrMsg("DUEDATE_PATTERN", "dueDate pattern must match \"yyyy-MM-ddTHH:mm:ssZ\""));
+                }
+                break;
+            case "done":
+                if (value instanceof Boolean) {
+                    t.setDone((Boolean) value);
+                } else {
+                    output.add(createErrMsg("DONE_TYPE", "done must be true or false"));
+                }
+                break;
+            case "version":
+                if (!(value instanceof Number) || ((Number) value).longValue() != t.getVersion()) {
+                    throw new ObjectOptimisticLockingFailureException(Todo.class, t.getId());
+                }
+                break;
+            case "id":
+                if (!(value instanceof Number) || ((Number) value).intValue() != t.getId()) {
+                    output.add(createErrMsg("ID_MISMATCH", "id must match the path"));
+                }
+                break;
+            default:
+                output.add(createErrMsg("FIELD_UNKNOWN", field.getKey() + " can not be patched"));
+            }
+        }
+        return output;
+    }
+
     /**
      * validates Input
      * 
      * @param todo Object to validate
      * @return ArrayList of errors
      */
-    private ArrayList<String> validateInput(Todo todo) {
-        ArrayList<String> output = new ArrayList<>();
+    ArrayList<ErrorResponse> validateInput(Todo todo) {
+        ArrayList<ErrorResponse> output = new ArrayList<>();
         if (todo.getTitle().equals("")) {
             output.add(createErrMsg("TITLE_NULL", "title must not be null"));
         } else if (todo.getTitle().length() > 30) {
@@ -136,16 +740,38 @@ public class TodoController {
      * 
      * default gives all todo objects
      * 
+     * JSON, or CBOR or Smile with dueDate as epoch milliseconds if the Accept
+     * header asks for application/cbor or application/x-jackson-smile
+     * 
      * @param state  Filters all or unfinished todos in the response: all or
      *               unfinished
      * @param limit  Maximal number of todos in the response: default=5
      * @param offset Offset for the todos in the response
-     * @return List of specified objects
+     * @param after  Cursor from X-Next-Cursor, switches to keyset paging and
+     *               ignores offset; empty for the first page
+     * @param fields Comma separated fields of the todos in the response, e.g.
+     *               id,title,dueDate,done; without description the column is
+     *               not read
+     * @param ifNoneMatch ETag of the page the client already has
+     * @return List of specified objects, total count in X-Total-Count, 304 if
+     *         the page did not change
      */
-    @RequestMapping(value = "/todos", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
-    public ResponseEntity<?> getAllTodos(@RequestParam String state, Integer limit, Integer offset) {
+    @RequestMapping(value = "/todos", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE,
+            TodoJson.CBOR_VALUE, TodoJson.SMILE_VALUE })
+    public ResponseEntity<?> getAllTodos(@RequestParam String state, Integer limit, Integer offset, String after,
+            String fields, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            ArrayList<String> error = null;
+            ArrayList<ErrorResponse> error = null;
+            TodoFields select = null;
+            if (fields != null) {
+                try {
+                    select = TodoFields.parse(fields);
+                } catch (IllegalArgumentException e) {
+                    error = new ArrayList<>();
+                    error.add(createErrMsg("FIELDS_UNKNOWN", e.getMessage()));
+                    return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+                }
+            }
             // default values
             if (state.equals("")) {
                 state = "unfinished";
@@ -157,74 +783,152 @@ public class TodoController {
                 offset = 0;
             }
             if ((error = validQueryInput(state, limit, offset)).isEmpty()) {
-                // get all todos
-                ArrayList<Todo> list = toList(todoRepo.findAll());
+                boolean unfinished = state.equalsIgnoreCase("unfinished");
+                if (after != null) {
+                    return getTodosAfter(unfinished, limit, after, select, ifNoneMatch);
+                }
+                // the fingerprint gives the total and tells if the page can have changed
+                TodoListFingerprint fingerprint = todoReader.fingerprint(unfinished);
+                long total = fingerprint.getTotal();
+                String etag = ETags.ofList(fingerprint,
+                        (unfinished ? "unfinished" : "all") + "|" + limit + "|" + offset + fieldsKey(select));
+                if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
                 // check if empty
-                if (list.isEmpty()) {
-                    return new ResponseEntity<>("[]", HttpStatus.NO_CONTENT);
+                if (total == 0) {
+                    return ResponseEntity.status(HttpStatus.NO_CONTENT).eTag(etag).header(TOTAL_COUNT_HEADER, "0")
+                            .body("[]");
                 }
-                // filter finished
-                filterFinished(list, state);
-                // paginate
-                PagedListHolder<Todo> pl = new PagedListHolder<>(list);
-                pl.setPage(offset);
-                pl.setPageSize(limit);
-                // return list
-                return new ResponseEntity<>(pl.getPageList(), HttpStatus.PARTIAL_CONTENT);
+                // limit 0 only asks for the count
+                if (limit == 0) {
+                    return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).eTag(etag)
+                            .header(TOTAL_COUNT_HEADER, String.valueOf(total)).body(Collections.emptyList());
+                }
+                // read only the requested page
+                Pageable pageable = PageRequest.of(offset, limit);
+                List<? extends TodoSummary> page = todoReader.page(unfinished, pageable, select);
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).eTag(etag)
+                        .header(TOTAL_COUNT_HEADER, String.valueOf(total)).body(body(page, select));
             }
             return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("listing todos failed", e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    @RequestMapping(value = "/todos", method = RequestMethod.GET)
-    public ResponseEntity<?> getAllTodo() {
-        try {
-            return new ResponseEntity<>(todoRepo.findAll(), HttpStatus.OK);
-        } catch (Exception e) {
-            return new ResponseEntity<String>("[]", HttpStatus.NOT_FOUND);
+    /**
+     * keyset page of the todo list
+     * 
+     * reads one row more than requested to find out if there is a next page
+     * 
+     * @param unfinished only unfinished todos
+     * @param limit      page size
+     * @param after       cursor of the last todo already read, empty for the
+     *                    first page
+     * @param select      requested fields, null for whole todos
+     * @param ifNoneMatch ETag of the page the client already has
+     * @return page, cursor of the next page in X-Next-Cursor
+     */
+    private ResponseEntity<?> getTodosAfter(boolean unfinished, int limit, String after, TodoFields select,
+            String ifNoneMatch) {
+        TodoCursor cursor = null;
+        if (!after.equals("")) {
+            try {
+                cursor = TodoCursor.decode(after);
+            } catch (IllegalArgumentException e) {
+                ArrayList<ErrorResponse> error = new ArrayList<>();
+                error.add(createErrMsg("CURSOR_INVALID", "after must be a cursor from X-Next-Cursor"));
+                return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+            }
+        }
+        if (limit == 0) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.PARTIAL_CONTENT);
+        }
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<? extends TodoSummary> list = cursor == null ? todoList.pageAfter(unfinished, null, 0, pageable, select)
+                : todoList.pageAfter(unfinished, cursor.getDueDate(), cursor.getId(), pageable, select);
+        // keyset pages are cheap to read, so the tag is taken from the rows
+        String etag = ETags.ofPage(list,
+                (unfinished ? "unfinished" : "all") + "|" + limit + "|" + after + fieldsKey(select));
+        String next = null;
+        if (list.size() > limit) {
+            list = list.subList(0, limit);
+            next = TodoCursor.after(list.get(limit - 1)).encode();
         }
+        boolean notModified = ETags.matchesNoneMatch(ifNoneMatch, etag);
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.PARTIAL_CONTENT).eTag(etag);
+        if (next != null) {
+            response.header(NEXT_CURSOR_HEADER, next);
+        }
+        return notModified ? response.build() : response.body(body(list, select));
+    }
+
+    /**
+     * @param page   todos of a page
+     * @param select requested fields, null for whole todos
+     * @return the page as it is written
+     */
+    private static Object body(List<? extends TodoSummary> page, TodoFields select) {
+        return select == null ? page : new SparseTodoList(page, select);
     }
 
     /**
-     * converts Iterable to list
+     * @return part of the ETag query for the requested fields
+     */
+    private static String fieldsKey(TodoFields select) {
+        return select == null ? "" : "|" + select;
+    }
+
+    /**
+     * GET /todos
      * 
-     * @param i iterable to convert
-     * @return list from i
+     * gives all todo objects as JSON array, streamed from the database
+     * 
+     * @param response servlet response to write to
      */
-    private ArrayList<Todo> toList(Iterable<Todo> i) {
+    @RequestMapping(value = "/todos", method = RequestMethod.GET)
+    public void getAllTodo(HttpServletResponse response) throws IOException {
         try {
-            ArrayList<Todo> list = new ArrayList<>();
-            i.forEach((Todo todo) -> {
-                list.add(todo);
-            });
-            return list;
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            todoExport.writeJsonArray(response.getOutputStream());
         } catch (Exception e) {
-            System.err.println("[ERROR] parsing to List.");
-            return new ArrayList<>();
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.NOT_FOUND.value());
+            }
         }
     }
 
     /**
+     * GET /todos/export
      * 
-     * filter all finshed todos
+     * streams all todo objects as newline delimited JSON
      * 
-     * @param list  list to filter
-     * @param state state of todo
+     * @param gzip     compress the export
+     * @param response servlet response to write to
      */
-    private void filterFinished(ArrayList<Todo> list, String state) {
+    @RequestMapping(value = "/todos/export", method = RequestMethod.GET, produces = TodoExportService.NDJSON_VALUE)
+    public void exportTodos(@RequestParam(defaultValue = "false") boolean gzip, HttpServletResponse response)
+            throws IOException {
         try {
-            if (state.equals("unfinished")) {
-                for (int i = 0; i < list.size(); i++) {
-                    if (list.get(i).isDone()) {
-                        list.remove(i);
-                    }
-                }
+            response.setContentType(TodoExportService.NDJSON_VALUE);
+            if (gzip) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE);
+                todoExport.writeNdjson(out);
+                out.finish();
+            } else {
+                todoExport.writeNdjson(response.getOutputStream());
             }
         } catch (Exception e) {
-            System.err.println("[ERROR] filtering List.");
+            log.error("export failed", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
         }
     }
 
@@ -237,9 +941,9 @@ public class TodoController {
      * @param offset
      * @return array with errors
      */
-    private ArrayList<String> validQueryInput(String state, int limit, int offset) {
+    ArrayList<ErrorResponse> validQueryInput(String state, int limit, int offset) {
         try {
-            ArrayList<String> output = new ArrayList<>();
+            ArrayList<ErrorResponse> output = new ArrayList<>();
             if (!(state.equalsIgnoreCase("all") || state.equalsIgnoreCase("unfinished"))) {
                 output.add(createErrMsg("STATE_INVALID", "state must be ALL or UNFINISHED"));
             }
@@ -267,9 +971,9 @@ public class TodoController {
      * 
      * @param code Error code
      * @param msg  Error message
-     * @return Error in JSON
+     * @return Error, serialized as JSON object
      */
-    private String createErrMsg(String code, String msg) {
-        return "{'code': '" + code + "'," + "'message':'" + msg + "'}";
+    private ErrorResponse createErrMsg(String code, String msg) {
+        return new ErrorResponse(code, msg);
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.example.tododemo.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.example.tododemo.repository.TodoSummary;
+
+/**
+ * opaque position in the (dueDate, id) ordering of the todo list
+ * 
+ * used by the keyset mode of GET /todos, so every page is an index range scan
+ * starting right after the last todo of the previous page
+ */
+public final class TodoCursor {
+
+    private static final String VERSION = "v1";
+
+    private final Instant dueDate;
+    private final int id;
+
+    public TodoCursor(Instant dueDate, int id) {
+        this.dueDate = dueDate;
+        this.id = id;
+    }
+
+    /**
+     * cursor pointing behind the given todo
+     * 
+     * @param todo last todo of a page
+     * @return cursor
+     */
+    public static TodoCursor after(TodoSummary todo) {
+        return new TodoCursor(todo.getDueDate(), todo.getId());
+    }
+
+    /**
+     * parses a token created by {@link #encode()}
+     * 
+     * @param token opaque token
+     * @return cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static TodoCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 4 || !parts[0].equals(VERSION)) {
+                throw new IllegalArgumentException("unknown cursor format");
+            }
+            Instant dueDate = Instant.ofEpochSecond(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            return new TodoCursor(dueDate, Integer.parseInt(parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("invalid cursor: " + token, e);
+        }
+    }
+
+    /**
+     * encodes the cursor as url safe token
+     * 
+     * @return opaque token
+     */
+    public String encode() {
+        String raw = VERSION + ":" + dueDate.getEpochSecond() + ":" + dueDate.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public Instant getDueDate() {
+        return dueDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
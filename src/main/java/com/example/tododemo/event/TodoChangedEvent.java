@@ -0,0 +1,70 @@
+package com.example.tododemo.event;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoDueDate;
+
+/**
+ * published after a todo was written through the API
+ * 
+ * listeners run synchronously on the request thread, after the write has been
+ * committed
+ */
+public class TodoChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+
+    private final int id;
+
+    private final Todo todo;
+
+    private final TodoDueDate dueDate;
+
+    /**
+     * @param type kind of change
+     * @param id   id of the changed todo
+     * @param todo state after the change, null for deletes and for updates
+     *             that were written without loading the todo
+     */
+    public TodoChangedEvent(Type type, int id, Todo todo) {
+        this(type, id, todo, null);
+    }
+
+    /**
+     * @param type    kind of change
+     * @param id      id of the changed todo
+     * @param todo    state after the change, null if not loaded
+     * @param dueDate due date and done after an update of done only, read
+     *                once for all listeners; null if not read
+     */
+    public TodoChangedEvent(Type type, int id, Todo todo, TodoDueDate dueDate) {
+        this.type = type;
+        this.id = id;
+        this.todo = todo;
+        this.dueDate = dueDate;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Todo getTodo() {
+        return todo;
+    }
+
+    public TodoDueDate getDueDate() {
+        return dueDate;
+    }
+
+    @Override
+    public String toString() {
+        return "TodoChangedEvent[" + type + " " + id + "]";
+    }
+}
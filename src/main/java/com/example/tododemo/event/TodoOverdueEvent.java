@@ -0,0 +1,34 @@
+package com.example.tododemo.event;
+
+import java.time.Instant;
+
+/**
+ * published when an unfinished todo passes its due date
+ * 
+ * listeners run on the thread of the reminder scheduler, not on a request
+ * thread, and should hand slow work off
+ */
+public class TodoOverdueEvent {
+
+    private final int id;
+
+    private final Instant dueDate;
+
+    public TodoOverdueEvent(int id, Instant dueDate) {
+        this.id = id;
+        this.dueDate = dueDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Instant getDueDate() {
+        return dueDate;
+    }
+
+    @Override
+    public String toString() {
+        return "TodoOverdueEvent[" + id + " " + dueDate + "]";
+    }
+}
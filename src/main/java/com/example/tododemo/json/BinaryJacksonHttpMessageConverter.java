@@ -0,0 +1,106 @@
+package com.example.tododemo.json;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.lang.Nullable;
+import org.springframework.util.TypeUtils;
+
+/**
+ * CBOR or Smile with the mapper of a JSON converter
+ * 
+ * the mapper keeps its JSON factory, only the generators and parsers come
+ * from the binary factory. So the binary formats get the same modules and
+ * settings as JSON, the HAL mapper of Spring Data REST included, with dates
+ * as epoch milliseconds, see {@link TodoJson#binaryWriter(ObjectWriter)}
+ */
+public class BinaryJacksonHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    private final JsonFactory format;
+
+    private final ObjectWriter writer;
+
+    private final ObjectReader reader;
+
+    public BinaryJacksonHttpMessageConverter(ObjectMapper jsonMapper, JsonFactory format, MediaType mediaType) {
+        super(jsonMapper, mediaType);
+        this.format = format;
+        this.writer = TodoJson.binaryWriter(jsonMapper.writer());
+        this.reader = TodoJson.binaryReader(jsonMapper.reader());
+        // binary, no charset in the content type
+        setDefaultCharset(null);
+    }
+
+    public static BinaryJacksonHttpMessageConverter cbor(ObjectMapper jsonMapper) {
+        return new BinaryJacksonHttpMessageConverter(jsonMapper, TodoJson.cborFactory(),
+                MediaType.valueOf(TodoJson.CBOR_VALUE));
+    }
+
+    public static BinaryJacksonHttpMessageConverter smile(ObjectMapper jsonMapper) {
+        return new BinaryJacksonHttpMessageConverter(jsonMapper, TodoJson.smileFactory(),
+                MediaType.valueOf(TodoJson.SMILE_VALUE));
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException {
+        return read(getJavaType(type, contextClass), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(getJavaType(clazz, null), inputMessage);
+    }
+
+    private Object read(JavaType javaType, HttpInputMessage inputMessage) throws IOException {
+        try (JsonParser parser = format.createParser(inputMessage.getBody())) {
+            return reader.forType(javaType).readValue(parser);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("could not read " + javaType + ": " + e.getOriginalMessage(),
+                    e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        Object value = object;
+        ObjectWriter objectWriter = writer;
+        if (object instanceof MappingJacksonValue) {
+            value = ((MappingJacksonValue) object).getValue();
+            Class<?> view = ((MappingJacksonValue) object).getSerializationView();
+            if (view != null) {
+                objectWriter = objectWriter.withView(view);
+            }
+        }
+        // generic lists need their element type, like the JSON converter does
+        if (type != null && value != null && TypeUtils.isAssignable(type, value.getClass())) {
+            JavaType javaType = getJavaType(type, null);
+            if (javaType.isContainerType()) {
+                objectWriter = objectWriter.forType(javaType);
+            }
+        }
+        try (JsonGenerator generator = format.createGenerator(outputMessage.getBody())) {
+            objectWriter.writeValue(generator, value);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("could not write " + format.getFormatName() + ": "
+                    + e.getOriginalMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.tododemo.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.example.tododemo.repository.TodoSummary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * list of todos written with the requested fields only
+ * 
+ * serializes itself, so it is written the same by every mapper and format
+ */
+public final class SparseTodoList extends JsonSerializable.Base {
+
+    private final List<? extends TodoSummary> todos;
+
+    private final TodoFields fields;
+
+    /**
+     * @param todos  todos, entities if the fields include the description
+     * @param fields fields to write
+     */
+    public SparseTodoList(List<? extends TodoSummary> todos, TodoFields fields) {
+        this.todos = todos;
+        this.fields = fields;
+    }
+
+    public List<? extends TodoSummary> getTodos() {
+        return todos;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartArray(todos.size());
+        for (TodoSummary todo : todos) {
+            gen.writeStartObject(todo);
+            TodoSerializer.writeFields(todo, fields, gen, provider);
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, provider);
+    }
+}
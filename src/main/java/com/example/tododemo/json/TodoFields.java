@@ -0,0 +1,82 @@
+package com.example.tododemo.json;
+
+import java.util.StringJoiner;
+
+/**
+ * fields of a todo asked for with fields=, as bit set
+ */
+public final class TodoFields {
+
+    static final int ID = 1;
+    static final int TITLE = 1 << 1;
+    static final int DESCRIPTION = 1 << 2;
+    static final int DUE_DATE = 1 << 3;
+    static final int DONE = 1 << 4;
+    static final int VERSION = 1 << 5;
+
+    /** names in the order they are written */
+    private static final String[] NAMES = { "id", "title", "description", "dueDate", "done", "version" };
+
+    public static final TodoFields ALL = new TodoFields((1 << NAMES.length) - 1);
+
+    private final int mask;
+
+    private TodoFields(int mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * @param fields comma separated field names, blank for all fields
+     * @return the named fields
+     * @throws IllegalArgumentException if a name is no field of a todo
+     */
+    public static TodoFields parse(String fields) {
+        if (fields.trim().isEmpty()) {
+            return ALL;
+        }
+        int mask = 0;
+        for (String name : fields.split(",")) {
+            int field = indexOf(name.trim());
+            if (field < 0) {
+                throw new IllegalArgumentException("unknown field " + name.trim());
+            }
+            mask |= 1 << field;
+        }
+        return new TodoFields(mask);
+    }
+
+    private static int indexOf(String name) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    boolean has(int field) {
+        return (mask & field) != 0;
+    }
+
+    /**
+     * @return true if the todos have to be read with their description
+     */
+    public boolean needsDescription() {
+        return has(DESCRIPTION);
+    }
+
+    /**
+     * @return the fields comma separated in a fixed order, the same for every
+     *         spelling of the same set
+     */
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(",");
+        for (int i = 0; i < NAMES.length; i++) {
+            if ((mask & 1 << i) != 0) {
+                joiner.add(NAMES[i]);
+            }
+        }
+        return joiner.toString();
+    }
+}
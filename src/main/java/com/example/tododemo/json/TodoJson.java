@@ -0,0 +1,126 @@
+package com.example.tododemo.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.example.tododemo.model.Todo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * shared, preconfigured JSON writers for todos
+ * 
+ * ObjectMapper and ObjectWriter are thread-safe once configured, so one
+ * instance serves all requests instead of a new mapper per call
+ */
+public final class TodoJson {
+
+    public static final String CBOR_VALUE = "application/cbor";
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private static final ObjectMapper MAPPER = configure(new ObjectMapper());
+
+    private static final ObjectWriter TODO_WRITER = MAPPER.writerFor(Todo.class);
+
+    private static final ObjectWriter LIST_WRITER = MAPPER.writerFor(new TypeReference<List<Todo>>() {
+    });
+
+    private TodoJson() {
+    }
+
+    /**
+     * @return module with the hand written {@link TodoSerializer}
+     */
+    public static Module module() {
+        SimpleModule module = new SimpleModule("TodoJson");
+        module.addSerializer(Todo.class, new TodoSerializer());
+        return module;
+    }
+
+    /**
+     * applies the todo settings: ISO-8601 dates and the todo serializer, the
+     * target stream stays open so the writers can stream into a response
+     * 
+     * @param om mapper to configure
+     * @return the given mapper
+     */
+    public static ObjectMapper configure(ObjectMapper om) {
+        om.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        om.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        om.registerModule(new JavaTimeModule());
+        om.registerModule(module());
+        return om;
+    }
+
+    /**
+     * the settings of a JSON writer for a binary format: dates as epoch
+     * milliseconds, a number is shorter there than an ISO-8601 string
+     * 
+     * @param writer writer of a JSON mapper
+     * @return writer for a {@link #cborFactory()} or {@link #smileFactory()}
+     *         generator
+     */
+    public static ObjectWriter binaryWriter(ObjectWriter writer) {
+        return writer.with(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .without(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS);
+    }
+
+    /**
+     * @param reader reader of a JSON mapper
+     * @return reader taking date numbers as epoch milliseconds
+     */
+    public static ObjectReader binaryReader(ObjectReader reader) {
+        return reader.without(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
+    }
+
+    /**
+     * @return CBOR factory that leaves the streams open
+     */
+    public static JsonFactory cborFactory() {
+        return streaming(new CBORFactory());
+    }
+
+    /**
+     * @return Smile factory that leaves the streams open
+     */
+    public static JsonFactory smileFactory() {
+        return streaming(new SmileFactory());
+    }
+
+    private static JsonFactory streaming(JsonFactory factory) {
+        return factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static ObjectWriter todoWriter() {
+        return TODO_WRITER;
+    }
+
+    public static ObjectWriter listWriter() {
+        return LIST_WRITER;
+    }
+
+    public static String toJson(Todo todo) {
+        try {
+            return TODO_WRITER.writeValueAsString(todo);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
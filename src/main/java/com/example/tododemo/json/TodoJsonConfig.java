@@ -0,0 +1,151 @@
+package com.example.tododemo.json;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.rest.webmvc.BasePathAwareController;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.config.RepositoryRestConfigurer;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+
+/**
+ * registers the {@link TodoSerializer} with the ObjectMapper of Spring MVC and
+ * Spring Data REST, and CBOR and Smile next to their JSON
+ * 
+ * the binary converters are put right behind the JSON converter that writes
+ * the answers, the plain one for Spring MVC and the HAL one for Spring Data
+ * REST, so JSON stays the answer to Accept: *&#47;* and to no Accept at all
+ */
+@Configuration
+public class TodoJsonConfig {
+
+    private static final MediaType CBOR = MediaType.valueOf(TodoJson.CBOR_VALUE);
+
+    private static final MediaType SMILE = MediaType.valueOf(TodoJson.SMILE_VALUE);
+
+    @Bean
+    public Module todoJsonModule() {
+        return TodoJson.module();
+    }
+
+    @Bean
+    public WebMvcConfigurer binaryMvcConverters() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                // the ones before it are constrained to other types or only read
+                addBinaryConverters(converters, c -> c.getClass() == MappingJackson2HttpMessageConverter.class);
+            }
+        };
+    }
+
+    @Bean
+    public RepositoryRestConfigurer binaryRestConverters() {
+        return new RepositoryRestConfigurer() {
+            @Override
+            public void configureHttpMessageConverters(List<HttpMessageConverter<?>> messageConverters) {
+                addBinaryConverters(messageConverters, c -> c.getSupportedMediaTypes().contains(MediaTypes.HAL_JSON));
+            }
+        };
+    }
+
+    /**
+     * Spring Data REST maps its handlers as producing HAL and JSON only, this
+     * adds CBOR and Smile to what they may answer with. Answers that depend on
+     * the Accept header say so in Vary, for caches.
+     * 
+     * the producible types of the request are only the ones that matched
+     * Accept, so own handlers are recognized by their declared produces
+     */
+    @Bean
+    public MappedInterceptor binaryMediaTypes() {
+        return new MappedInterceptor(null, new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (isDataRest(handler)) {
+                    @SuppressWarnings("unchecked")
+                    Set<MediaType> producible = (Set<MediaType>) request
+                            .getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+                    if (producible != null && producible.stream().anyMatch(TodoJsonConfig::isJson)) {
+                        Set<MediaType> types = new LinkedHashSet<>(producible);
+                        types.add(CBOR);
+                        types.add(SMILE);
+                        request.setAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE, types);
+                        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                    }
+                } else if (producesBinary(handler)) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                }
+                return true;
+            }
+        });
+    }
+
+    private static boolean isJson(MediaType type) {
+        return MediaType.APPLICATION_JSON.isCompatibleWith(type) || type.getSubtype().endsWith("+json");
+    }
+
+    private static boolean producesBinary(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return false;
+        }
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(((HandlerMethod) handler).getMethod(),
+                RequestMapping.class);
+        return mapping != null && Arrays.asList(mapping.produces()).contains(TodoJson.CBOR_VALUE);
+    }
+
+    private static boolean isDataRest(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return false;
+        }
+        Class<?> type = ((HandlerMethod) handler).getBeanType();
+        return type.isAnnotationPresent(RepositoryRestController.class)
+                || type.isAnnotationPresent(BasePathAwareController.class);
+    }
+
+    /**
+     * replaces the default CBOR and Smile converters, whose mappers lack the
+     * todo settings, with ones on the mapper of the given JSON converter
+     * 
+     * @param converters converters of Spring MVC or Spring Data REST
+     * @param json       finds the JSON converter that writes the answers
+     */
+    static void addBinaryConverters(List<HttpMessageConverter<?>> converters,
+            Predicate<HttpMessageConverter<?>> json) {
+        converters.removeIf(c -> c instanceof MappingJackson2CborHttpMessageConverter
+                || c instanceof MappingJackson2SmileHttpMessageConverter);
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof AbstractJackson2HttpMessageConverter && json.test(converters.get(i))) {
+                ObjectMapper mapper = ((AbstractJackson2HttpMessageConverter) converters.get(i)).getObjectMapper();
+                converters.add(i + 1, BinaryJacksonHttpMessageConverter.cbor(mapper));
+                converters.add(i + 2, BinaryJacksonHttpMessageConverter.smile(mapper));
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.tododemo.json;
+
+import java.io.IOException;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoSummary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+/**
+ * writes a todo field by field, without bean introspection
+ * 
+ * the field names are pre-encoded and the due date is written as ISO-8601
+ * string like the JavaTimeModule does, or as epoch milliseconds if the writer
+ * has WRITE_DATES_AS_TIMESTAMPS on, as for CBOR and Smile. The unwrapping variant is used by
+ * Spring Data REST, which puts the fields next to its links.
+ */
+public class TodoSerializer extends StdSerializer<Todo> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString DUE_DATE = new SerializedString("dueDate");
+    private static final SerializedString DONE = new SerializedString("done");
+    private static final SerializedString VERSION = new SerializedString("version");
+
+    private final boolean unwrapping;
+
+    public TodoSerializer() {
+        this(false);
+    }
+
+    private TodoSerializer(boolean unwrapping) {
+        super(Todo.class);
+        this.unwrapping = unwrapping;
+    }
+
+    @Override
+    public void serialize(Todo todo, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (!unwrapping) {
+            gen.writeStartObject(todo);
+        }
+        writeFields(todo, TodoFields.ALL, gen, provider);
+        if (!unwrapping) {
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * writes the requested fields of a todo into the current object
+     * 
+     * @param todo   entity, or a list row if the description is not requested
+     * @param fields fields to write
+     */
+    static void writeFields(TodoSummary todo, TodoFields fields, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        if (fields.has(TodoFields.ID)) {
+            gen.writeFieldName(ID);
+            gen.writeNumber(todo.getId());
+        }
+        if (fields.has(TodoFields.TITLE)) {
+            gen.writeFieldName(TITLE);
+            gen.writeString(todo.getTitle());
+        }
+        if (fields.has(TodoFields.DESCRIPTION)) {
+            gen.writeFieldName(DESCRIPTION);
+            gen.writeString(((Todo) todo).getDescription());
+        }
+        if (fields.has(TodoFields.DUE_DATE)) {
+            gen.writeFieldName(DUE_DATE);
+            if (todo.getDueDate() == null) {
+                gen.writeNull();
+            } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+                gen.writeNumber(todo.getDueDate().toEpochMilli());
+            } else {
+                gen.writeString(todo.getDueDate().toString());
+            }
+        }
+        if (fields.has(TodoFields.DONE)) {
+            gen.writeFieldName(DONE);
+            gen.writeBoolean(todo.isDone());
+        }
+        if (fields.has(TodoFields.VERSION)) {
+            gen.writeFieldName(VERSION);
+            gen.writeNumber(todo.getVersion());
+        }
+    }
+
+    @Override
+    public boolean isUnwrappingSerializer() {
+        return unwrapping;
+    }
+
+    @Override
+    public JsonSerializer<Todo> unwrappingSerializer(NameTransformer unwrapper) {
+        return new TodoSerializer(true);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.tododemo.logstore;
+
+import java.time.Instant;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoDueDate;
+
+/**
+ * position of a todo in the (due date, id) order, done is carried along but
+ * not compared
+ */
+public final class DueKey implements TodoDueDate, Comparable<DueKey> {
+
+    private final Instant dueDate;
+
+    private final int id;
+
+    private final boolean done;
+
+    public DueKey(Instant dueDate, int id, boolean done) {
+        this.dueDate = dueDate;
+        this.id = id;
+        this.done = done;
+    }
+
+    static DueKey of(Todo todo) {
+        return new DueKey(todo.getDueDate(), todo.getId(), todo.isDone());
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public Instant getDueDate() {
+        return dueDate;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public int compareTo(DueKey other) {
+        int c = dueDate.compareTo(other.dueDate);
+        return c != 0 ? c : Integer.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DueKey && ((DueKey) o).id == id && ((DueKey) o).dueDate.equals(dueDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * dueDate.hashCode() + id;
+    }
+}
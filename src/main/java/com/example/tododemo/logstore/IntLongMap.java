@@ -0,0 +1,166 @@
+package com.example.tododemo.logstore;
+
+import java.util.Arrays;
+
+/**
+ * map from positive int keys to long values without boxing
+ * 
+ * open addressing with linear probing in two parallel arrays, 0 marks a free
+ * slot. Removing shifts the following entries of the probe sequence back, so
+ * there are no tombstones and lookups stay short. Not thread-safe.
+ */
+final class IntLongMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+
+    private long[] values;
+
+    private int size;
+
+    IntLongMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * @param key positive key
+     * @return value of the key or -1
+     */
+    long get(int key) {
+        if (key <= 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @param key   positive key
+     * @param value new value
+     * @return previous value of the key or -1
+     */
+    long put(int key, long value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("key must be positive: " + key);
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                long previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            if (k == 0) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > keys.length * LOAD_FACTOR) {
+                    resize(keys.length << 1);
+                }
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @param key key to remove
+     * @return removed value or -1
+     */
+    long remove(int key) {
+        if (key <= 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+        long removed = values[i];
+        size--;
+        // move entries that probed over the freed slot into it
+        int free = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - free) & mask)) {
+                keys[free] = keys[j];
+                values[free] = values[j];
+                free = j;
+            }
+        }
+        keys[free] = 0;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return all keys in ascending order
+     */
+    int[] sortedKeys() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int k : keys) {
+            if (k != 0) {
+                out[n++] = k;
+            }
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    /**
+     * @return all values, in no particular order
+     */
+    long[] values() {
+        long[] out = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                out[n++] = values[i];
+            }
+        }
+        return out;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[capacity];
+        values = new long[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = mix(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * ids are sequential, spread them over the table
+     */
+    private static int mix(int key) {
+        int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
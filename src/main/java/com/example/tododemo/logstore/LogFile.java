@@ -0,0 +1,369 @@
+package com.example.tododemo.logstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * one log file, mapped into memory in chunks of equal size
+ * 
+ * the file starts with a header: magic, format, chunk size and the first id
+ * not handed out yet. Records follow back to back, a record that does not fit
+ * into the rest of a chunk starts the next one and the rest is marked as
+ * skipped. The chunk size is kept in the header, so a file is read with the
+ * size it was written with.
+ * 
+ * record: int length of the body, the body and the CRC32 of the body. The
+ * body is byte type, int id and long version, a put adds long seconds and int
+ * nanos of the due date, byte done and title and description as UTF-8, each
+ * with an unsigned short length. The length is written last, a record a
+ * crash interrupted reads as the end of the log or fails its checksum.
+ * 
+ * writes need external synchronization, reads of written records do not
+ */
+final class LogFile implements Closeable {
+
+    static final byte PUT = 1;
+
+    static final byte DELETE = 2;
+
+    static final int HEADER_SIZE = 16;
+
+    /** type, id and version */
+    private static final int DELETE_BODY = 1 + 4 + 8;
+
+    private static final int MAGIC = 0x544f444f;
+
+    private static final int FORMAT = 1;
+
+    private static final int SKIP = -1;
+
+    private static final int MAX_TEXT = 0xffff;
+
+    private Path path;
+
+    private final FileChannel channel;
+
+    private final int chunkSize;
+
+    private final boolean sync;
+
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    private long tail = HEADER_SIZE;
+
+    private LogFile(Path path, FileChannel channel, int chunkSize, boolean sync) {
+        this.path = path;
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+        this.sync = sync;
+    }
+
+    /**
+     * opens a log file or creates it with a header, records are not read yet
+     * 
+     * @param path      file of the log
+     * @param chunkSize bytes mapped at once, only used for a new file
+     * @param sync      force every record to disk
+     * @return open log, its tail is right behind the header
+     * @throws IOException if the file can not be opened or is no todo log
+     */
+    static LogFile open(Path path, int chunkSize, boolean sync) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                LogFile log = new LogFile(path, channel, chunkSize, sync);
+                log.chunk(0).putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, chunkSize).putInt(12, 1);
+                log.chunk(0).force();
+                return log;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT) {
+                throw new IOException(path + " is no todo log of format " + FORMAT);
+            }
+            return new LogFile(path, channel, header.getInt(8), sync);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void movedTo(Path path) {
+        this.path = path;
+    }
+
+    long tail() {
+        return tail;
+    }
+
+    /**
+     * @return lowest id that may be handed out
+     */
+    int idBase() {
+        return chunk(0).getInt(12);
+    }
+
+    void setIdBase(int id) {
+        chunk(0).putInt(12, id);
+    }
+
+    /**
+     * appends a put of the todo
+     * 
+     * @param todo todo with id and version
+     * @return position of the record
+     */
+    long appendPut(Todo todo) {
+        byte[] title = utf8(todo.getTitle(), "title");
+        byte[] description = utf8(todo.getDescription(), "description");
+        int body = DELETE_BODY + 8 + 4 + 1 + 2 + title.length + 2 + description.length;
+        long pos = reserve(body);
+        ByteBuffer buf = bodyOf(pos);
+        buf.put(PUT).putInt(todo.getId()).putLong(todo.getVersion());
+        buf.putLong(todo.getDueDate().getEpochSecond()).putInt(todo.getDueDate().getNano());
+        buf.put((byte) (todo.isDone() ? 1 : 0));
+        buf.putShort((short) title.length).put(title);
+        buf.putShort((short) description.length).put(description);
+        return seal(pos, body);
+    }
+
+    /**
+     * appends a delete
+     * 
+     * @param id      of the deleted todo
+     * @param version its last version
+     * @return position of the record
+     */
+    long appendDelete(int id, long version) {
+        long pos = reserve(DELETE_BODY);
+        bodyOf(pos).put(DELETE).putInt(id).putLong(version);
+        return seal(pos, DELETE_BODY);
+    }
+
+    /**
+     * appends a copy of a record of another log
+     * 
+     * @param source log to copy from
+     * @param pos    position of the record there
+     * @return position of the copy
+     */
+    long copy(LogFile source, long pos) {
+        int body = source.chunk(pos).getInt(source.offset(pos));
+        long to = reserve(body);
+        ByteBuffer from = source.bodyOf(pos);
+        from.limit(from.position() + body + 4);
+        bodyOf(to).put(from);
+        chunk(to).putInt(offset(to), body);
+        tail = to + 8 + body;
+        return to;
+    }
+
+    byte type(long pos) {
+        return chunk(pos).get(offset(pos) + 4);
+    }
+
+    int id(long pos) {
+        return chunk(pos).getInt(offset(pos) + 5);
+    }
+
+    long version(long pos) {
+        return chunk(pos).getLong(offset(pos) + 9);
+    }
+
+    /**
+     * @param pos position of a put
+     * @return the todo of the record
+     */
+    Todo read(long pos) {
+        ByteBuffer buf = bodyOf(pos);
+        buf.position(buf.position() + 1);
+        int id = buf.getInt();
+        long version = buf.getLong();
+        Instant dueDate = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+        boolean done = buf.get() != 0;
+        String title = text(buf);
+        String description = text(buf);
+        Todo todo = new Todo(id, title, description, dueDate, done);
+        todo.setVersion(version);
+        return todo;
+    }
+
+    /**
+     * @param pos position of a record
+     * @return bytes the record takes in the log
+     */
+    int size(long pos) {
+        return 8 + chunk(pos).getInt(offset(pos));
+    }
+
+    /**
+     * reads the records from a position up to the first one that is missing,
+     * incomplete or damaged, and moves the tail behind the last good one
+     * 
+     * whatever follows the last good record in its chunk is cleared, the
+     * next record is written there
+     * 
+     * @param from    position of the first record
+     * @param visitor gets the position of every good record
+     * @return true if the log ended cleanly
+     */
+    boolean scan(long from, RecordVisitor visitor) throws IOException {
+        long size = channel.size();
+        long pos = from;
+        while (pos < size) {
+            MappedByteBuffer chunk = chunk(pos);
+            int at = offset(pos);
+            int body = chunkSize - at >= 4 ? chunk.getInt(at) : SKIP;
+            if (body == SKIP) {
+                pos = nextChunk(pos);
+                continue;
+            }
+            if (body == 0) {
+                break;
+            }
+            if (body < DELETE_BODY || at + 8L + body > chunkSize || !checksumOk(chunk, at, body)) {
+                ByteBuffer rest = chunk.duplicate();
+                rest.position(at);
+                rest.put(new byte[chunkSize - at]);
+                tail = pos;
+                return false;
+            }
+            visitor.visit(pos);
+            pos += 8 + body;
+        }
+        tail = pos;
+        return true;
+    }
+
+    /**
+     * writes the mapped chunks to disk
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * moves the tail to the next chunk if the record does not fit in this one
+     */
+    private long reserve(int body) {
+        int size = 8 + body;
+        int at = offset(tail);
+        if (chunkSize - at < size) {
+            if (chunkSize - at >= 4) {
+                chunk(tail).putInt(at, SKIP);
+            }
+            tail = nextChunk(tail);
+        }
+        return tail;
+    }
+
+    /**
+     * writes checksum and length of a record whose body is in place
+     */
+    private long seal(long pos, int body) {
+        MappedByteBuffer chunk = chunk(pos);
+        int at = offset(pos);
+        chunk.putInt(at + 4 + body, (int) crc(chunk, at, body));
+        chunk.putInt(at, body);
+        tail = pos + 8 + body;
+        if (sync) {
+            chunk.force();
+        }
+        return pos;
+    }
+
+    private ByteBuffer bodyOf(long pos) {
+        ByteBuffer buf = chunk(pos).duplicate();
+        buf.position(offset(pos) + 4);
+        return buf;
+    }
+
+    private boolean checksumOk(MappedByteBuffer chunk, int at, int body) {
+        return chunk.getInt(at + 4 + body) == (int) crc(chunk, at, body);
+    }
+
+    private static long crc(MappedByteBuffer chunk, int at, int body) {
+        ByteBuffer buf = chunk.duplicate();
+        buf.position(at + 4).limit(at + 4 + body);
+        CRC32 crc = new CRC32();
+        crc.update(buf);
+        return crc.getValue();
+    }
+
+    private long nextChunk(long pos) {
+        return (pos / chunkSize + 1) * chunkSize;
+    }
+
+    private int offset(long pos) {
+        return (int) (pos % chunkSize);
+    }
+
+    /**
+     * @return the chunk of the position, mapped first if the file does not
+     *         reach it yet
+     */
+    private MappedByteBuffer chunk(long pos) {
+        int index = (int) (pos / chunkSize);
+        MappedByteBuffer[] mapped = chunks;
+        if (index < mapped.length) {
+            return mapped[index];
+        }
+        synchronized (this) {
+            mapped = chunks;
+            if (index >= mapped.length) {
+                mapped = Arrays.copyOf(mapped, index + 1);
+                for (int i = chunks.length; i <= index; i++) {
+                    try {
+                        mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkSize, chunkSize);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("could not map chunk " + i + " of " + path, e);
+                    }
+                }
+                chunks = mapped;
+            }
+            return mapped[index];
+        }
+    }
+
+    private static byte[] utf8(String text, String field) {
+        if (text == null) {
+            throw new IllegalArgumentException(field + " must not be null");
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT) {
+            throw new IllegalArgumentException(field + " is too long");
+        }
+        return bytes;
+    }
+
+    private static String text(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xffff];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long pos);
+    }
+}
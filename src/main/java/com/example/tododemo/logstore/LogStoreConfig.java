@@ -0,0 +1,60 @@
+package com.example.tododemo.logstore;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * todos in a memory-mapped log instead of the database, with the logstore
+ * profile
+ * 
+ * the profile switches the data source, JPA and the JPA repositories off, see
+ * application-logstore.properties
+ */
+@Configuration
+@Profile("logstore")
+public class LogStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public LogTodoStore logTodoStore(@Value("${todo.logstore.path:data/todos.log}") String path,
+            @Value("${todo.logstore.chunk-mb:64}") int chunkMb, @Value("${todo.logstore.sync:false}") boolean sync,
+            @Value("${todo.logstore.compact-ratio:0.5}") double compactRatio,
+            @Value("${todo.logstore.compact-min-mb:16}") long compactMinMb) throws IOException {
+        return new LogTodoStore(Paths.get(path), chunkMb << 20, sync, compactRatio, compactMinMb << 20);
+    }
+
+    @Bean
+    public LogTodoRepository todoRepository(LogTodoStore store) {
+        return new LogTodoRepository(store);
+    }
+
+    @Bean
+    public LogTodoBatchService todoBatchService(LogTodoRepository todoRepository) {
+        return new LogTodoBatchService(todoRepository);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new LogStoreTransactionManager();
+    }
+
+    @Bean
+    public MeterBinder logStoreMetrics(LogTodoStore store) {
+        return registry -> {
+            Gauge.builder("todo.logstore.size", store, LogTodoStore::getSize).baseUnit("bytes").register(registry);
+            Gauge.builder("todo.logstore.garbage", store, LogTodoStore::getGarbage).baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("todo.logstore.compactions", store, LogTodoStore::getCompactions)
+                    .register(registry);
+        };
+    }
+}
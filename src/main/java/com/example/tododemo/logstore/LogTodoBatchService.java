@@ -0,0 +1,85 @@
+package com.example.tododemo.logstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.example.tododemo.model.BatchItemResult;
+import com.example.tododemo.model.ErrorResponse;
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.service.TodoBatchService;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * {@link TodoBatchService} on the log store
+ * 
+ * there are no transactions to group the items in, every item is written on
+ * its own and fails on its own
+ */
+public class LogTodoBatchService implements TodoBatchService {
+
+    private static final ErrorResponse ITEM_FAILED = new ErrorResponse("BATCH_FAILED", "todo could not be written");
+
+    private final LogTodoRepository todoRepo;
+
+    public LogTodoBatchService(LogTodoRepository todoRepo) {
+        this.todoRepo = todoRepo;
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<Todo> todos) {
+        List<BatchItemResult> results = new ArrayList<>(todos.size());
+        for (int i = 0; i < todos.size(); i++) {
+            Todo todo = todos.get(i);
+            try {
+                todo.setId(0);
+                results.add(BatchItemResult.ok(i, todoRepo.save(todo), HttpStatus.CREATED.value()));
+            } catch (RuntimeException e) {
+                results.add(BatchItemResult.failed(i, null, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                        Collections.singletonList(ITEM_FAILED)));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> updateAll(List<Todo> todos) {
+        List<BatchItemResult> results = new ArrayList<>(todos.size());
+        for (int i = 0; i < todos.size(); i++) {
+            Todo todo = todos.get(i);
+            try {
+                if (!todoRepo.existsById(todo.getId())) {
+                    results.add(BatchItemResult.failed(i, todo.getId(), HttpStatus.NOT_FOUND.value(),
+                            Collections.emptyList()));
+                    continue;
+                }
+                results.add(BatchItemResult.ok(i, todoRepo.save(todo), HttpStatus.NO_CONTENT.value()));
+            } catch (OptimisticLockingFailureException e) {
+                results.add(BatchItemResult.failed(i, todo.getId(), HttpStatus.CONFLICT.value(),
+                        Collections.emptyList()));
+            } catch (RuntimeException e) {
+                results.add(BatchItemResult.failed(i, todo.getId(), HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                        Collections.singletonList(ITEM_FAILED)));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> deleteAll(List<Integer> ids) {
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Integer id = ids.get(i);
+            try {
+                todoRepo.deleteById(id);
+                results.add(BatchItemResult.ok(i, id, HttpStatus.OK.value()));
+            } catch (EmptyResultDataAccessException e) {
+                results.add(BatchItemResult.failed(i, id, HttpStatus.NOT_FOUND.value(), Collections.emptyList()));
+            }
+        }
+        return results;
+    }
+}
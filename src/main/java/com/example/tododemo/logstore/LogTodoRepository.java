@@ -0,0 +1,311 @@
+package com.example.tododemo.logstore;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoDueDate;
+import com.example.tododemo.repository.TodoListFingerprint;
+import com.example.tododemo.repository.TodoListItem;
+import com.example.tododemo.repository.TodoRepository;
+
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+/**
+ * TodoRepository on a {@link LogTodoStore}
+ * 
+ * behaves like the JPA repository: new todos get their id set, updates need
+ * the stored version, the same checks as the columns of the todos table and
+ * the same exceptions. Todos handed out are copies, changing them without
+ * saving changes nothing.
+ */
+public class LogTodoRepository implements TodoRepository {
+
+    private static final int TITLE_LENGTH = 30;
+
+    private static final int DESCRIPTION_LENGTH = 500;
+
+    private static final Comparator<Todo> BY_ID = Comparator.comparingInt(Todo::getId);
+
+    private final LogTodoStore store;
+
+    public LogTodoRepository(LogTodoStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public <S extends Todo> S save(S entity) {
+        check(entity);
+        Todo stored = store.put(entity);
+        if (stored.getId() != entity.getId()) {
+            // inserted, like persist the given todo gets id and version
+            entity.setId(stored.getId());
+            entity.setVersion(stored.getVersion());
+            return entity;
+        }
+        @SuppressWarnings("unchecked")
+        S merged = (S) stored;
+        return merged;
+    }
+
+    @Override
+    public <S extends Todo> Iterable<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(e -> saved.add(save(e)));
+        return saved;
+    }
+
+    @Override
+    public Optional<Todo> findById(Integer id) {
+        return Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return store.contains(id);
+    }
+
+    @Override
+    public Iterable<Todo> findAll() {
+        List<Todo> out = new ArrayList<>();
+        for (int id : store.ids()) {
+            add(out, store.get(id));
+        }
+        return out;
+    }
+
+    @Override
+    public Iterable<Todo> findAllById(Iterable<Integer> ids) {
+        List<Todo> out = new ArrayList<>();
+        ids.forEach(id -> add(out, store.get(id)));
+        return out;
+    }
+
+    @Override
+    public long count() {
+        return store.count(false);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        if (!store.delete(id, null)) {
+            throw new EmptyResultDataAccessException(
+                    String.format("No %s entity with id %s exists!", Todo.class, id), 1);
+        }
+    }
+
+    @Override
+    public void delete(Todo entity) {
+        if (!store.delete(entity.getId(), entity.getVersion()) && store.contains(entity.getId())) {
+            throw new ObjectOptimisticLockingFailureException(Todo.class, entity.getId());
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Todo> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        for (int id : store.ids()) {
+            store.delete(id, null);
+        }
+    }
+
+    @Override
+    public Iterable<Todo> findAll(Sort sort) {
+        List<Todo> out = (List<Todo>) findAll();
+        out.sort(comparator(sort));
+        return out;
+    }
+
+    @Override
+    public Page<Todo> findAll(Pageable pageable) {
+        List<Todo> all = (List<Todo>) findAll(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(new ArrayList<>(all.subList(from, to)), pageable, all.size());
+    }
+
+    @Override
+    public void detach(Todo todo) {
+        // todos are copies, there is nothing to forget
+    }
+
+    @Override
+    public List<Todo> findAllByOrderByDueDateAscIdAsc(Pageable pageable) {
+        return page(false, null, pageable, true);
+    }
+
+    @Override
+    public List<Todo> findByDoneFalseOrderByDueDateAscIdAsc(Pageable pageable) {
+        return page(true, null, pageable, true);
+    }
+
+    @Override
+    public TodoListFingerprint fingerprintAll() {
+        return store.fingerprint(false);
+    }
+
+    @Override
+    public TodoListFingerprint fingerprintUnfinished() {
+        return store.fingerprint(true);
+    }
+
+    @Override
+    public Optional<Long> findVersionById(int id) {
+        return Optional.ofNullable(store.version(id));
+    }
+
+    @Override
+    public int deleteByIdAndVersion(int id, long version) {
+        return store.delete(id, version) ? 1 : 0;
+    }
+
+    @Override
+    public long countByDoneFalse() {
+        return store.count(true);
+    }
+
+    @Override
+    public long countByDoneFalseAndDueDateBefore(Instant dueDate) {
+        return store.countUnfinishedDueBefore(dueDate);
+    }
+
+    @Override
+    public List<Todo> findAllKeyset(Pageable pageable) {
+        return page(false, null, pageable, false);
+    }
+
+    @Override
+    public List<Todo> findAllKeysetAfter(Instant dueDate, int id, Pageable pageable) {
+        return page(false, new DueKey(dueDate, id, false), pageable, false);
+    }
+
+    @Override
+    public List<Todo> findUnfinishedKeyset(Pageable pageable) {
+        return page(true, null, pageable, false);
+    }
+
+    @Override
+    public List<Todo> findUnfinishedKeysetAfter(Instant dueDate, int id, Pageable pageable) {
+        return page(true, new DueKey(dueDate, id, false), pageable, false);
+    }
+
+    @Override
+    public List<TodoListItem> findAllItems(Pageable pageable) {
+        return items(page(false, null, pageable, true));
+    }
+
+    @Override
+    public List<TodoListItem> findAllItemsAfter(Instant dueDate, int id, Pageable pageable) {
+        return items(page(false, new DueKey(dueDate, id, false), pageable, false));
+    }
+
+    @Override
+    public List<TodoListItem> findUnfinishedItems(Pageable pageable) {
+        return items(page(true, null, pageable, true));
+    }
+
+    @Override
+    public List<TodoListItem> findUnfinishedItemsAfter(Instant dueDate, int id, Pageable pageable) {
+        return items(page(true, new DueKey(dueDate, id, false), pageable, false));
+    }
+
+    /**
+     * todos are read one by one while the stream is consumed, todos deleted
+     * meanwhile are left out
+     */
+    @Override
+    public Stream<Todo> streamAllByOrderByIdAsc() {
+        return Arrays.stream(store.ids()).mapToObj(store::get).filter(Objects::nonNull);
+    }
+
+    @Override
+    public int updateDone(int id, boolean done) {
+        return store.setDone(id, done) ? 1 : 0;
+    }
+
+    @Override
+    public Stream<TodoDueDate> streamUnfinishedDueBetween(Instant from, Instant to) {
+        return store.unfinishedDueBetween(from, to).stream();
+    }
+
+    @Override
+    public List<TodoDueDate> findDueDatesByIdIn(Collection<Integer> ids) {
+        List<TodoDueDate> out = new ArrayList<>();
+        for (Integer id : ids) {
+            TodoDueDate dueDate = store.dueDate(id);
+            if (dueDate != null) {
+                out.add(dueDate);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param offset use the offset of the pageable, keyset pages start at
+     *               their key
+     */
+    private List<Todo> page(boolean unfinished, DueKey after, Pageable pageable, boolean offset) {
+        if (pageable.isUnpaged()) {
+            return store.page(unfinished, after, 0, Integer.MAX_VALUE);
+        }
+        return store.page(unfinished, after, offset ? pageable.getOffset() : 0, pageable.getPageSize());
+    }
+
+    /**
+     * records hold the whole todo, the rows only save the serialization
+     */
+    private static List<TodoListItem> items(List<Todo> todos) {
+        return todos.stream().map(TodoListItem::of).collect(Collectors.toList());
+    }
+
+    /**
+     * the NOT NULL and length constraints of the todos table
+     */
+    private static void check(Todo todo) {
+        if (todo.getTitle() == null || todo.getDescription() == null || todo.getDueDate() == null) {
+            throw new DataIntegrityViolationException("title, description and dueDate must not be null");
+        }
+        if (todo.getTitle().length() > TITLE_LENGTH || todo.getDescription().length() > DESCRIPTION_LENGTH) {
+            throw new DataIntegrityViolationException("title or description too long");
+        }
+    }
+
+    private static void add(List<Todo> out, Todo todo) {
+        if (todo != null) {
+            out.add(todo);
+        }
+    }
+
+    private static Comparator<Todo> comparator(Sort sort) {
+        Comparator<Todo> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Todo> next = new PropertyComparator<>(
+                    new MutableSortDefinition(order.getProperty(), order.isIgnoreCase(), order.isAscending()));
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? BY_ID : comparator.thenComparing(BY_ID);
+    }
+}
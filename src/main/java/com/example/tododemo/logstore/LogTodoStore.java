@@ -0,0 +1,656 @@
+package com.example.tododemo.logstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoDueDate;
+import com.example.tododemo.repository.TodoListFingerprint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+/**
+ * todos in a memory-mapped, append-only log
+ * 
+ * every write appends a record to the {@link LogFile} and points the id at it
+ * in an {@link IntLongMap}, a point read is one lookup and one decode from
+ * the mapped file. The (due date, id) order of all and of the unfinished todos
+ * and the fingerprints of both lists are kept in memory next to it.
+ * 
+ * on open the log is replayed to rebuild all of that, up to the first record
+ * a crash left incomplete. Overwritten and deleted records stay in the file
+ * until they make up compact-ratio of it, then a background thread copies the
+ * live records into a new file and renames it over the old one. Writes go on
+ * meanwhile, the records appended during the copy are carried over under the
+ * write lock at the end.
+ */
+public class LogTodoStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(LogTodoStore.class);
+
+    /** smallest chunk, the largest record has to fit with room to spare */
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private final Path path;
+
+    private final int chunkSize;
+
+    private final boolean sync;
+
+    private final double compactRatio;
+
+    private final long compactMinBytes;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** held for a whole compaction, keeps clear and close away from the file it reads */
+    private final ReentrantLock compaction = new ReentrantLock();
+
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+
+    private final ExecutorService compactor;
+
+    private LogFile file;
+
+    private IntLongMap index = new IntLongMap(1024);
+
+    private final NavigableSet<DueKey> all = new TreeSet<>();
+
+    private final NavigableSet<DueKey> unfinished = new TreeSet<>();
+
+    private final Fingerprint allFingerprint = new Fingerprint();
+
+    private final Fingerprint unfinishedFingerprint = new Fingerprint();
+
+    /** bytes of the records the index points at */
+    private long liveBytes;
+
+    private int nextId;
+
+    private volatile long compactions;
+
+    private volatile boolean closed;
+
+    /**
+     * @param path            log file, created if missing
+     * @param chunkSize       bytes mapped at once
+     * @param sync            force every write to disk
+     * @param compactRatio    share of overwritten and deleted records that
+     *                        starts a compaction
+     * @param compactMinBytes no compaction below this many such bytes
+     * @throws IOException if the log can not be opened
+     */
+    public LogTodoStore(Path path, int chunkSize, boolean sync, double compactRatio, long compactMinBytes)
+            throws IOException {
+        if (chunkSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunk size must be at least " + MIN_CHUNK_SIZE + " bytes");
+        }
+        this.path = path;
+        this.chunkSize = chunkSize;
+        this.sync = sync;
+        this.compactRatio = compactRatio;
+        this.compactMinBytes = compactMinBytes;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "todo-log-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        // a compaction that did not get to the rename
+        Files.deleteIfExists(compactionTarget());
+        recover();
+    }
+
+    /**
+     * @param id of the todo
+     * @return copy of the todo or null
+     */
+    public Todo get(int id) {
+        lock.readLock().lock();
+        try {
+            long pos = index.get(id);
+            return pos < 0 ? null : file.read(pos);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id of the todo
+     * @return version of the todo or null
+     */
+    public Long version(int id) {
+        lock.readLock().lock();
+        try {
+            long pos = index.get(id);
+            return pos < 0 ? null : file.version(pos);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * writes a todo
+     * 
+     * a todo without id or with an id that is not stored is inserted with the
+     * next id and version 0. Otherwise the version has to be the stored one,
+     * the todo is written with the version after it, unless nothing changed.
+     * 
+     * @param todo todo to write, not changed
+     * @return the stored todo
+     * @throws ObjectOptimisticLockingFailureException if the version is not the
+     *                                                 stored one
+     */
+    public Todo put(Todo todo) {
+        lock.writeLock().lock();
+        try {
+            long pos = todo.getId() == 0 ? -1 : index.get(todo.getId());
+            Todo next = todo.copy();
+            if (pos < 0) {
+                next.setId(nextId);
+                next.setVersion(0);
+                write(next, null);
+                nextId++;
+                return next;
+            }
+            Todo current = file.read(pos);
+            if (current.getVersion() != todo.getVersion()) {
+                throw new ObjectOptimisticLockingFailureException(Todo.class, todo.getId());
+            }
+            if (sameContent(current, todo)) {
+                return current;
+            }
+            next.setVersion(current.getVersion() + 1);
+            write(next, current);
+            return next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * sets done and steps the version, if done changes
+     * 
+     * @param id   of the todo
+     * @param done new state
+     * @return false if there is no such todo or it has that state already
+     */
+    public boolean setDone(int id, boolean done) {
+        lock.writeLock().lock();
+        try {
+            long pos = index.get(id);
+            if (pos < 0) {
+                return false;
+            }
+            Todo current = file.read(pos);
+            if (current.isDone() == done) {
+                return false;
+            }
+            Todo next = current.copy();
+            next.setDone(done);
+            next.setVersion(current.getVersion() + 1);
+            write(next, current);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id      of the todo
+     * @param version expected version, null for any
+     * @return false if there is no such todo or it has another version
+     */
+    public boolean delete(int id, Long version) {
+        lock.writeLock().lock();
+        try {
+            long pos = index.get(id);
+            if (pos < 0 || (version != null && file.version(pos) != version)) {
+                return false;
+            }
+            Todo current = file.read(pos);
+            file.appendDelete(id, current.getVersion());
+            unindex(current, pos);
+            compactIfWasteful();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id of the todo
+     * @return true if the todo is stored
+     */
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return index.get(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param unfinished only unfinished todos
+     * @return number of todos
+     */
+    public long count(boolean unfinished) {
+        lock.readLock().lock();
+        try {
+            return unfinished ? this.unfinished.size() : all.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param dueDate exclusive upper bound of the due date
+     * @return number of unfinished todos due before it
+     */
+    public long countUnfinishedDueBefore(Instant dueDate) {
+        lock.readLock().lock();
+        try {
+            return unfinished.headSet(new DueKey(dueDate, Integer.MIN_VALUE, false)).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param unfinished only unfinished todos
+     * @return copy of the fingerprint
+     */
+    public TodoListFingerprint fingerprint(boolean unfinished) {
+        lock.readLock().lock();
+        try {
+            return (unfinished ? unfinishedFingerprint : allFingerprint).copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * todos ordered by due date and id
+     * 
+     * @param unfinished only unfinished todos
+     * @param after      key of the last todo already read, null to start at
+     *                   the first
+     * @param skip       todos to skip
+     * @param limit      maximal number of todos
+     * @return copies of the todos
+     */
+    public List<Todo> page(boolean unfinished, DueKey after, long skip, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<DueKey> keys = unfinished ? this.unfinished : all;
+            if (after != null) {
+                keys = keys.tailSet(after, false);
+            }
+            List<Todo> out = new ArrayList<>();
+            Iterator<DueKey> it = keys.iterator();
+            for (long i = 0; i < skip && it.hasNext(); i++) {
+                it.next();
+            }
+            while (out.size() < limit && it.hasNext()) {
+                out.add(file.read(index.get(it.next().getId())));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param from first due date, inclusive
+     * @param to   last due date, exclusive
+     * @return unfinished todos due in [from, to), ordered by due date and id
+     */
+    public List<TodoDueDate> unfinishedDueBetween(Instant from, Instant to) {
+        lock.readLock().lock();
+        try {
+            if (!from.isBefore(to)) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(unfinished.subSet(new DueKey(from, Integer.MIN_VALUE, false), true,
+                    new DueKey(to, Integer.MIN_VALUE, false), false));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id of the todo
+     * @return due date and done of the todo or null
+     */
+    public TodoDueDate dueDate(int id) {
+        Todo todo = get(id);
+        return todo == null ? null : DueKey.of(todo);
+    }
+
+    /**
+     * @return ids of all todos in ascending order
+     */
+    public int[] ids() {
+        lock.readLock().lock();
+        try {
+            return index.sortedKeys();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * drops all todos and starts a new log, ids start at 1 again
+     * 
+     * @throws IOException if the new log can not be created
+     */
+    public void clear() throws IOException {
+        compaction.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                file.close();
+                Files.delete(path);
+                file = LogFile.open(path, chunkSize, sync);
+                index = new IntLongMap(1024);
+                all.clear();
+                unfinished.clear();
+                allFingerprint.clear();
+                unfinishedFingerprint.clear();
+                liveBytes = 0;
+                nextId = 1;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    /**
+     * copies the live records into a new log and replaces the old one with
+     * it, writes are only blocked while the records written during the copy
+     * are carried over
+     * 
+     * @throws IOException if the new log can not be written
+     */
+    public void compact() throws IOException {
+        compaction.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long start = System.nanoTime();
+            LogFile source;
+            long copiedUpTo;
+            long[] positions;
+            lock.readLock().lock();
+            try {
+                source = file;
+                copiedUpTo = source.tail();
+                positions = index.values();
+            } finally {
+                lock.readLock().unlock();
+            }
+            // in log order, the old file is read front to back
+            Arrays.sort(positions);
+
+            Path target = compactionTarget();
+            Files.deleteIfExists(target);
+            LogFile copy = LogFile.open(target, chunkSize, sync);
+            boolean replaced = false;
+            try {
+                IntLongMap moved = new IntLongMap(positions.length);
+                for (long pos : positions) {
+                    moved.put(source.id(pos), copy.copy(source, pos));
+                }
+
+                long before;
+                lock.writeLock().lock();
+                try {
+                    before = source.tail();
+                    source.scan(copiedUpTo, pos -> {
+                        long to = copy.copy(source, pos);
+                        if (source.type(pos) == LogFile.PUT) {
+                            moved.put(source.id(pos), to);
+                        } else {
+                            moved.remove(source.id(pos));
+                        }
+                    });
+                    copy.setIdBase(nextId);
+                    copy.force();
+                    Files.move(target, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    copy.movedTo(path);
+                    file = copy;
+                    index = moved;
+                    replaced = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                source.close();
+                compactions++;
+                log.info("compacted todo log {} from {} to {} bytes in {} ms", path, before, copy.tail(),
+                        (System.nanoTime() - start) / 1_000_000);
+            } finally {
+                if (!replaced) {
+                    copy.close();
+                    Files.deleteIfExists(target);
+                }
+            }
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    /**
+     * @return bytes of the log up to its tail
+     */
+    public long getSize() {
+        lock.readLock().lock();
+        try {
+            return file.tail();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes of overwritten and deleted records and skipped chunk ends
+     */
+    public long getGarbage() {
+        lock.readLock().lock();
+        try {
+            return garbage();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCompactions() {
+        return compactions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        compactor.shutdown();
+        compaction.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                file.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    /**
+     * replays the log into the index
+     */
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        file = LogFile.open(path, chunkSize, sync);
+        nextId = Math.max(1, file.idBase());
+        boolean clean = file.scan(LogFile.HEADER_SIZE, pos -> {
+            int id = file.id(pos);
+            long previous = index.get(id);
+            Todo current = previous < 0 ? null : file.read(previous);
+            if (file.type(pos) == LogFile.PUT) {
+                if (current != null) {
+                    unindex(current, previous);
+                }
+                index(file.read(pos), pos);
+            } else if (current != null) {
+                unindex(current, previous);
+            }
+            nextId = Math.max(nextId, id + 1);
+        });
+        if (!clean) {
+            log.warn("todo log {} ended with an incomplete record at {}, it was dropped", path, file.tail());
+        }
+        log.info("read {} todos from {} in {} ms", index.size(), path, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * appends a put and moves the todo from its old record to the new one
+     */
+    private void write(Todo next, Todo current) {
+        long pos = file.appendPut(next);
+        if (current != null) {
+            unindex(current, index.get(current.getId()));
+        }
+        index(next, pos);
+        compactIfWasteful();
+    }
+
+    private void index(Todo todo, long pos) {
+        index.put(todo.getId(), pos);
+        liveBytes += file.size(pos);
+        DueKey key = DueKey.of(todo);
+        all.add(key);
+        allFingerprint.add(todo, 1);
+        if (!todo.isDone()) {
+            unfinished.add(key);
+            unfinishedFingerprint.add(todo, 1);
+        }
+    }
+
+    private void unindex(Todo todo, long pos) {
+        index.remove(todo.getId());
+        liveBytes -= file.size(pos);
+        DueKey key = DueKey.of(todo);
+        all.remove(key);
+        allFingerprint.add(todo, -1);
+        if (!todo.isDone()) {
+            unfinished.remove(key);
+            unfinishedFingerprint.add(todo, -1);
+        }
+    }
+
+    private long garbage() {
+        return file.tail() - LogFile.HEADER_SIZE - liveBytes;
+    }
+
+    /**
+     * queues a compaction if enough of the log is garbage, under the write
+     * lock
+     */
+    private void compactIfWasteful() {
+        long garbage = garbage();
+        if (garbage < compactMinBytes || garbage < compactRatio * (file.tail() - LogFile.HEADER_SIZE)) {
+            return;
+        }
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                compactionQueued.set(false);
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("compaction of todo log {} failed", path, e);
+                }
+            });
+        }
+    }
+
+    private Path compactionTarget() {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    private static boolean sameContent(Todo a, Todo b) {
+        return a.getTitle().equals(b.getTitle()) && a.getDescription().equals(b.getDescription())
+                && a.getDueDate().equals(b.getDueDate()) && a.isDone() == b.isDone();
+    }
+
+    /**
+     * running count and version sum of a todo list
+     * 
+     * the highest id is the highest one ever added, it is not lowered by a
+     * delete, which only makes the fingerprint move forward more often
+     */
+    private static final class Fingerprint implements TodoListFingerprint {
+
+        private long total;
+
+        private long maxId;
+
+        private long versionSum;
+
+        void add(Todo todo, int sign) {
+            total += sign;
+            maxId = Math.max(maxId, todo.getId());
+            versionSum += sign * todo.getVersion();
+        }
+
+        void clear() {
+            total = 0;
+            maxId = 0;
+            versionSum = 0;
+        }
+
+        Fingerprint copy() {
+            Fingerprint copy = new Fingerprint();
+            copy.total = total;
+            copy.maxId = maxId;
+            copy.versionSum = versionSum;
+            return copy;
+        }
+
+        @Override
+        public long getTotal() {
+            return total;
+        }
+
+        @Override
+        public long getMaxId() {
+            return maxId;
+        }
+
+        @Override
+        public long getVersionSum() {
+            return versionSum;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.tododemo.metrics;
+
+import javax.sql.DataSource;
+
+import com.example.tododemo.cache.TodoCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * application metrics on top of what actuator records already
+ * 
+ * http.server.requests (latency and count per uri, method and status),
+ * hibernate.* (statistics) and hikaricp.* (pool) come from spring boot, this
+ * adds statements per request, the todo cache and the slow query log
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public RequestMetricsFilter requestMetricsFilter(MeterRegistry registry) {
+        return new RequestMetricsFilter(registry);
+    }
+
+    @Bean
+    public MeterBinder todoCacheMetrics(TodoCache todoCache) {
+        return registry -> {
+            FunctionCounter.builder("todo.cache.hits", todoCache, c -> c.stats().getHits()).register(registry);
+            FunctionCounter.builder("todo.cache.misses", todoCache, c -> c.stats().getMisses()).register(registry);
+            FunctionCounter.builder("todo.cache.evictions", todoCache, c -> c.stats().getEvictions())
+                    .register(registry);
+            Gauge.builder("todo.cache.size", todoCache, c -> c.stats().getSize()).register(registry);
+            Gauge.builder("todo.cache.hit.rate", todoCache, c -> c.stats().getHitRate()).register(registry);
+        };
+    }
+
+    /**
+     * wraps the data source with the {@link SlowQueryDataSource}, only when
+     * todo.sql.slow-log.enabled is true
+     */
+    @Bean
+    @ConditionalOnProperty(name = "todo.sql.slow-log.enabled", havingValue = "true")
+    public static BeanPostProcessor slowQueryLog(@Value("${todo.sql.slow-log.threshold-ms:100}") long thresholdMs,
+            @Value("${todo.sql.slow-log.sample-rate:1.0}") double sampleRate,
+            ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // only the one JPA uses, not the pools behind the replica routing
+                if (bean instanceof DataSource && beanName.equals("dataSource")
+                        && !(bean instanceof SlowQueryDataSource)) {
+                    return new SlowQueryDataSource((DataSource) bean, thresholdMs, sampleRate, registry);
+                }
+                return bean;
+            }
+        };
+    }
+}
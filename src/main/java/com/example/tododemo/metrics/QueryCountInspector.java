@@ -0,0 +1,62 @@
+package com.example.tododemo.metrics;
+
+import javax.servlet.ServletRequest;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * counts the statements Hibernate prepares on the current thread, read per
+ * request by {@link RequestMetricsFilter}
+ * 
+ * work a request hands to another thread counts there and adds its count to
+ * the request with {@link #addTo(ServletRequest)}
+ * 
+ * registered with hibernate.session_factory.statement_inspector, Hibernate
+ * creates the instance itself
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String OFFLOADED_ATTRIBUTE = QueryCountInspector.class.getName() + ".offloaded";
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * @return statements since the last reset on this thread
+     */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * moves the statements of this thread to the request and resets the count,
+     * called by the thread that ran work of the request before it hands the
+     * result back
+     * 
+     * @param request request the work was done for
+     */
+    public static void addTo(ServletRequest request) {
+        request.setAttribute(OFFLOADED_ATTRIBUTE, offloaded(request) + current());
+        reset();
+    }
+
+    /**
+     * @param request request
+     * @return statements other threads ran for the request
+     */
+    public static long offloaded(ServletRequest request) {
+        Object count = request.getAttribute(OFFLOADED_ATTRIBUTE);
+        return count == null ? 0 : (Long) count;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.tododemo.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * records the number of SQL statements per request as todo.request.queries,
+ * tagged like http.server.requests with method and uri pattern
+ * 
+ * async requests are recorded when they complete, with the statements the
+ * handler ran on the persistence executor
+ */
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    static final String QUERIES_METRIC = "todo.request.queries";
+
+    private final MeterRegistry registry;
+
+    public RequestMetricsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCountInspector.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Record record = new Record(request, QueryCountInspector.current());
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(record);
+            } else {
+                record.run();
+            }
+        }
+    }
+
+    /**
+     * records a request once, with the statements of all threads
+     */
+    private final class Record implements AsyncListener {
+
+        private final HttpServletRequest request;
+
+        private final long queries;
+
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        Record(HttpServletRequest request, long queries) {
+            this.request = request;
+            this.queries = queries;
+        }
+
+        void run() {
+            if (recorded.compareAndSet(false, true)) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                DistributionSummary.builder(QUERIES_METRIC).baseUnit("statements")
+                        .tags("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                        .register(registry).record(queries + QueryCountInspector.offloaded(request));
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // completes afterwards with the timeout response
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
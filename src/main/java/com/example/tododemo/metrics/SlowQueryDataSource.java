@@ -0,0 +1,129 @@
+package com.example.tododemo.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * times every statement execution and logs those slower than the threshold
+ * 
+ * only a sample of the slow statements is logged, todo.sql.slow counts all of
+ * them. Replaces spring.jpa.show-sql, which logged every statement on the
+ * request thread.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    static final String SLOW_METRIC = "todo.sql.slow";
+
+    private static final Logger log = LoggerFactory.getLogger("com.example.tododemo.sql.slow");
+
+    private final long thresholdNanos;
+
+    private final double sampleRate;
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    private volatile Counter slow;
+
+    /**
+     * @param target      data source to wrap
+     * @param thresholdMs statements taking at least this long are slow
+     * @param sampleRate  share of the slow statements that is logged, 0..1
+     * @param registry    looked up on the first slow statement, the data source
+     *                    is created before the registry
+     */
+    public SlowQueryDataSource(DataSource target, long thresholdMs, double sampleRate,
+            ObjectProvider<MeterRegistry> registry) {
+        super(target);
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.sampleRate = sampleRate;
+        this.registry = registry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                                : null;
+                        return wrap((Statement) result, sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrap(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= thresholdNanos) {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                            : preparedSql;
+                    slow(elapsed, method.getName(), sql);
+                }
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private void slow(long elapsedNanos, String method, String sql) {
+        Counter counter = slow;
+        if (counter == null) {
+            MeterRegistry meters = registry.getIfAvailable();
+            if (meters != null) {
+                counter = slow = meters.counter(SLOW_METRIC);
+            }
+        }
+        if (counter != null) {
+            counter.increment();
+        }
+        if (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.warn("{} ms {}: {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), method, sql);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
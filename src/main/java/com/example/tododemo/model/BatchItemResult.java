@@ -0,0 +1,101 @@
+package com.example.tododemo.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * outcome of one item of a /todos/batch request
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BatchItemResult {
+
+    private int index;
+
+    private Integer id;
+
+    private int status;
+
+    private List<ErrorResponse> errors;
+
+    @JsonIgnore
+    private Todo todo;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(int index, Integer id, int status, List<ErrorResponse> errors) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.errors = errors;
+    }
+
+    public static BatchItemResult ok(int index, int id, int status) {
+        return new BatchItemResult(index, id, status, Collections.emptyList());
+    }
+
+    /**
+     * @param index  position of the item
+     * @param todo   todo as written, with its new version
+     * @param status status of the item
+     * @return result that carries the written todo for the events
+     */
+    public static BatchItemResult ok(int index, Todo todo, int status) {
+        BatchItemResult result = ok(index, todo.getId(), status);
+        result.todo = todo;
+        return result;
+    }
+
+    public static BatchItemResult failed(int index, Integer id, int status, List<ErrorResponse> errors) {
+        return new BatchItemResult(index, id, status, errors);
+    }
+
+    /**
+     * @return position of the item in the request
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    /**
+     * @return HTTP status the single item request would have gotten
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public List<ErrorResponse> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ErrorResponse> errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * @return todo as written, not part of the response; null for failed
+     *         items and deletes
+     */
+    public Todo getTodo() {
+        return todo;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.tododemo.model;
+
+/**
+ * error of a request, serialized as {"code": ..., "message": ...}
+ */
+public class ErrorResponse {
+
+    private final String code;
+
+    private final String message;
+
+    public ErrorResponse(String code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return code + ": " + message;
+    }
+}
@@ -7,24 +7,33 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import com.example.tododemo.json.TodoJson;
+import com.example.tododemo.repository.TodoSummary;
 
 @Entity
-@Table(name = "todos")
-public class Todo {
+@Table(name = "todos", indexes = { @Index(name = "idx_todos_done_duedate", columnList = "done, duedate, id"),
+        @Index(name = "idx_todos_duedate", columnList = "duedate, id") })
+public class Todo implements TodoSummary {
     @Id
     @Column(name = "id", nullable = false, updatable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todos_seq")
+    @GenericGenerator(name = "todos_seq", strategy = "enhanced-sequence",
+            parameters = { @Parameter(name = "sequence_name", value = "todos_seq"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo") })
     private int id;
 
-    @Column(name = "title", nullable = false)
+    @Column(name = "title", nullable = false, length = 30)
     private String title;
 
-    @Column(name = "description", nullable = false)
+    @Column(name = "description", nullable = false, length = 500)
     private String description;
 
     @Column(name = "duedate", nullable = false)
@@ -33,6 +42,10 @@ public class Todo {
     @Column(name = "done", nullable = false)
     private boolean done;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     public Todo() {
     }
 
@@ -91,16 +104,27 @@ public class Todo {
         this.done = done;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * detached copy with the same id and version
+     * 
+     * @return copy of this todo
+     */
+    public Todo copy() {
+        Todo t = new Todo(id, title, description, dueDate, done);
+        t.version = version;
+        return t;
+    }
+
     public String toJSON() {
-        try {
-            // Zeit muss korrekt konvertiert werden, sonst gibt es Fehler bei den Tests
-            ObjectMapper om = new ObjectMapper();
-            om.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
-            om.registerModule(new JavaTimeModule());
-            return om.writeValueAsString(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return TodoJson.toJson(this);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.example.tododemo.reminder;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import com.example.tododemo.event.TodoOverdueEvent;
+import com.example.tododemo.repository.TodoRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * due date reminders, on with todo.reminder.enabled=true
+ * 
+ * overdue todos are published as {@link TodoOverdueEvent}, any bean can
+ * listen to them. Two sinks come with the application: a log and a webhook
+ * that posts every event to todo.reminder.webhook-url.
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.reminder.enabled", havingValue = "true")
+public class ReminderConfig {
+
+    @Bean
+    public ReminderScheduler reminderScheduler(TodoRepository todoRepo, ApplicationEventPublisher events,
+            PlatformTransactionManager transactionManager, @Value("${todo.reminder.tick-ms:1000}") long tickMs,
+            @Value("${todo.reminder.window-minutes:60}") long windowMinutes) {
+        return new ReminderScheduler(todoRepo, events, transactionManager, Clock.systemUTC(),
+                Duration.ofMillis(tickMs), Duration.ofMinutes(windowMinutes));
+    }
+
+    @Bean
+    public MeterBinder reminderMetrics(ReminderScheduler reminderScheduler) {
+        return registry -> {
+            Gauge.builder("todo.reminder.pending", reminderScheduler, ReminderScheduler::getPending)
+                    .register(registry);
+            FunctionCounter.builder("todo.reminder.fired", reminderScheduler, ReminderScheduler::getFired)
+                    .register(registry);
+        };
+    }
+
+    /**
+     * logs every overdue todo
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "todo.reminder.log", havingValue = "true", matchIfMissing = true)
+    static class LogSink {
+
+        private static final Logger log = LoggerFactory.getLogger("com.example.tododemo.reminder.overdue");
+
+        @EventListener
+        public void onOverdue(TodoOverdueEvent event) {
+            log.info("todo {} is overdue since {}", event.getId(), event.getDueDate());
+        }
+    }
+
+    /**
+     * posts every overdue todo as JSON to todo.reminder.webhook-url
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "todo.reminder.webhook-url")
+    static class WebhookSink {
+
+        private static final Logger log = LoggerFactory.getLogger(WebhookSink.class);
+
+        private final RestTemplate rest;
+
+        private final String url;
+
+        WebhookSink(RestTemplateBuilder builder, @Value("${todo.reminder.webhook-url}") String url) {
+            this.rest = builder.setConnectTimeout(Duration.ofSeconds(2)).setReadTimeout(Duration.ofSeconds(5))
+                    .build();
+            this.url = url;
+        }
+
+        @EventListener
+        public void onOverdue(TodoOverdueEvent event) {
+            try {
+                rest.postForLocation(url, event);
+            } catch (RestClientException e) {
+                log.warn("webhook for overdue todo {} failed: {}", event.getId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.tododemo.reminder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import com.example.tododemo.event.TodoChangedEvent;
+import com.example.tododemo.event.TodoOverdueEvent;
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoDueDate;
+import com.example.tododemo.repository.TodoRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * publishes a {@link TodoOverdueEvent} when an unfinished todo passes its due
+ * date
+ * 
+ * only todos due within the loaded window are held in the {@link TimingWheel}.
+ * The next window is read from the (done, duedate) index half a window ahead,
+ * writes through the API move or cancel timers right away. Before an event is
+ * published the todo is read again, so a timer that missed a write never fires
+ * wrongly. Todos that are already overdue when they are loaded or written are
+ * not reported.
+ */
+public class ReminderScheduler implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    /** slots per level: seconds, minutes, hours, days */
+    private static final int[] LEVELS = { 60, 60, 24, 64 };
+
+    /** timers scheduled per lock acquisition when loading a window */
+    private static final int LOAD_CHUNK = 500;
+
+    private final TodoRepository todoRepo;
+
+    private final ApplicationEventPublisher events;
+
+    private final TransactionTemplate readOnlyTx;
+
+    private final Clock clock;
+
+    private final long tickMs;
+
+    private final long windowMs;
+
+    private final LongAdder fired = new LongAdder();
+
+    private TimingWheel wheel;
+
+    /** due dates before this are in the wheel, guarded by the wheel */
+    private long loadedUntil;
+
+    private boolean loading;
+
+    private ScheduledExecutorService ticker;
+
+    /** loads windows and checks fired timers against the database */
+    private ExecutorService worker;
+
+    private volatile boolean running;
+
+    /**
+     * @param todoRepo           repository
+     * @param events             publisher of the overdue events
+     * @param transactionManager for the read-only window query
+     * @param clock              time source
+     * @param tick               resolution of the wheel
+     * @param window             due dates loaded at once, at most 30 days
+     */
+    public ReminderScheduler(TodoRepository todoRepo, ApplicationEventPublisher events,
+            PlatformTransactionManager transactionManager, Clock clock, Duration tick, Duration window) {
+        if (window.compareTo(Duration.ofDays(30)) > 0 || window.compareTo(tick) < 0) {
+            throw new IllegalArgumentException("reminder window must be between one tick and 30 days");
+        }
+        this.todoRepo = todoRepo;
+        this.events = events;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.clock = clock;
+        this.tickMs = tick.toMillis();
+        this.windowMs = window.toMillis();
+    }
+
+    @Override
+    public synchronized void start() {
+        long now = clock.millis();
+        wheel = new TimingWheel(tickMs, LEVELS, now);
+        loadedUntil = now;
+        loading = true;
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "reminder-tick"));
+        worker = Executors.newSingleThreadExecutor(r -> daemon(r, "reminder-worker"));
+        worker.execute(this::loadNextWindow);
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        ticker.shutdownNow();
+        worker.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return timers in the wheel
+     */
+    public int getPending() {
+        TimingWheel w = wheel;
+        if (w == null) {
+            return 0;
+        }
+        synchronized (w) {
+            return w.size();
+        }
+    }
+
+    /**
+     * @return overdue events published
+     */
+    public long getFired() {
+        return fired.sum();
+    }
+
+    /**
+     * moves or cancels the timer of a written todo
+     */
+    @EventListener
+    public void onTodoChanged(TodoChangedEvent event) {
+        if (!running) {
+            return;
+        }
+        Todo todo = event.getTodo();
+        if (event.getType() == TodoChangedEvent.Type.DELETED) {
+            synchronized (wheel) {
+                wheel.cancel(event.getId());
+            }
+        } else if (todo != null) {
+            apply(todo.getId(), todo.getDueDate(), todo.isDone());
+        } else if (event.getDueDate() != null) {
+            apply(event.getId(), event.getDueDate().getDueDate(), event.getDueDate().isDone());
+        } else {
+            // only done changed, the due date has to be read
+            worker.execute(() -> todoRepo.findDueDatesByIdIn(Collections.singletonList(event.getId()))
+                    .forEach(d -> apply(d.getId(), d.getDueDate(), d.isDone())));
+        }
+    }
+
+    private void apply(int id, Instant dueDate, boolean done) {
+        synchronized (wheel) {
+            long due = dueDate == null ? Long.MAX_VALUE : dueDate.toEpochMilli();
+            if (done || due <= clock.millis() || due >= loadedUntil) {
+                // later windows are loaded from the database
+                wheel.cancel(id);
+            } else {
+                wheel.schedule(id, due);
+            }
+        }
+    }
+
+    private void tick() {
+        try {
+            List<long[]> expired = new ArrayList<>();
+            boolean load = false;
+            synchronized (wheel) {
+                wheel.advance(clock.millis(), (id, due) -> expired.add(new long[] { id, due }));
+                if (!loading && wheel.now() + windowMs / 2 >= loadedUntil) {
+                    loading = true;
+                    load = true;
+                }
+            }
+            if (!expired.isEmpty()) {
+                worker.execute(() -> publish(expired));
+            }
+            if (load) {
+                worker.execute(this::loadNextWindow);
+            }
+        } catch (RuntimeException e) {
+            log.error("reminder tick failed", e);
+        }
+    }
+
+    private void loadNextWindow() {
+        long from;
+        long to;
+        synchronized (wheel) {
+            from = Math.max(loadedUntil, clock.millis());
+            to = from + windowMs;
+            // writes from now on schedule their timers themselves
+            loadedUntil = to;
+        }
+        try {
+            int count = readOnlyTx.execute(status -> {
+                int n = 0;
+                try (Stream<TodoDueDate> stream = todoRepo.streamUnfinishedDueBetween(Instant.ofEpochMilli(from),
+                        Instant.ofEpochMilli(to))) {
+                    Iterator<TodoDueDate> it = stream.iterator();
+                    while (it.hasNext()) {
+                        synchronized (wheel) {
+                            for (int i = 0; i < LOAD_CHUNK && it.hasNext(); i++, n++) {
+                                TodoDueDate due = it.next();
+                                wheel.schedule(due.getId(), due.getDueDate().toEpochMilli());
+                            }
+                        }
+                    }
+                }
+                return n;
+            });
+            log.debug("loaded {} reminders due before {}", count, Instant.ofEpochMilli(to));
+        } catch (RuntimeException e) {
+            log.error("loading reminders failed, retrying with the next tick", e);
+            synchronized (wheel) {
+                loadedUntil = from;
+            }
+        } finally {
+            synchronized (wheel) {
+                loading = false;
+            }
+        }
+    }
+
+    /**
+     * publishes the fired timers whose todo is still unfinished and due
+     */
+    private void publish(List<long[]> expired) {
+        for (int start = 0; start < expired.size(); start += LOAD_CHUNK) {
+            List<long[]> chunk = expired.subList(start, Math.min(expired.size(), start + LOAD_CHUNK));
+            List<Integer> ids = new ArrayList<>(chunk.size());
+            for (long[] timer : chunk) {
+                ids.add((int) timer[0]);
+            }
+            try {
+                long now = clock.millis();
+                for (TodoDueDate todo : todoRepo.findDueDatesByIdIn(ids)) {
+                    if (todo.isDone() || todo.getDueDate() == null) {
+                        continue;
+                    }
+                    if (todo.getDueDate().toEpochMilli() <= now) {
+                        fired.increment();
+                        events.publishEvent(new TodoOverdueEvent(todo.getId(), todo.getDueDate()));
+                    } else {
+                        // moved by a write the wheel did not see
+                        apply(todo.getId(), todo.getDueDate(), false);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("publishing {} reminders failed", ids.size(), e);
+            }
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
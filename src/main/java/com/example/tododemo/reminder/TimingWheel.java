@@ -0,0 +1,186 @@
+package com.example.tododemo.reminder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * hierarchical timing wheel of todo ids and their due time
+ * 
+ * level 0 has one slot per tick, every higher level one slot per full turn of
+ * the level below. A timer sits in the lowest level whose range covers it and
+ * moves down when the slot of its level comes up, so schedule and cancel are
+ * O(1) and every tick touches only the timers of one slot per level.
+ * 
+ * A timer fires at the first tick at or after its due time. Not thread-safe.
+ */
+final class TimingWheel {
+
+    interface ExpiryConsumer {
+        void accept(int id, long dueMs);
+    }
+
+    private static final class Timer {
+
+        final int id;
+
+        final long dueMs;
+
+        Timer prev;
+
+        Timer next;
+
+        Timer(int id, long dueMs) {
+            this.id = id;
+            this.dueMs = dueMs;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+
+    /** tick length of each level in ms */
+    private final long[] ticks;
+
+    /** slots of each level, one sentinel per slot heads a circular list */
+    private final Timer[][] slots;
+
+    private final Map<Integer, Timer> timers = new HashMap<>();
+
+    /** time of the last tick */
+    private long now;
+
+    /**
+     * @param tickMs  tick of level 0
+     * @param levels  number of slots per level, from the lowest level up
+     * @param startMs current time
+     */
+    TimingWheel(long tickMs, int[] levels, long startMs) {
+        ticks = new long[levels.length];
+        slots = new Timer[levels.length][];
+        long tick = tickMs;
+        for (int level = 0; level < levels.length; level++) {
+            ticks[level] = tick;
+            slots[level] = new Timer[levels[level]];
+            for (int slot = 0; slot < levels[level]; slot++) {
+                Timer sentinel = new Timer(0, 0);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                slots[level][slot] = sentinel;
+            }
+            tick *= levels[level];
+        }
+        now = startMs - Math.floorMod(startMs, tickMs);
+    }
+
+    /**
+     * @return latest due time the wheel can take right now, the end of the top
+     *         level aligned to its tick
+     */
+    long horizon() {
+        int top = ticks.length - 1;
+        return now - Math.floorMod(now, ticks[top]) + slots[top].length * ticks[top];
+    }
+
+    long now() {
+        return now;
+    }
+
+    int size() {
+        return timers.size();
+    }
+
+    boolean contains(int id) {
+        return timers.containsKey(id);
+    }
+
+    /**
+     * adds a timer or moves the one of the same id, due times in the past fire
+     * with the next tick
+     * 
+     * @return false if the due time is beyond the {@link #horizon()}, the
+     *         timer is not scheduled then and a previous one is cancelled
+     */
+    boolean schedule(int id, long dueMs) {
+        cancel(id);
+        if (fireTime(dueMs) > horizon()) {
+            return false;
+        }
+        Timer timer = new Timer(id, dueMs);
+        place(timer);
+        timers.put(id, timer);
+        return true;
+    }
+
+    boolean cancel(int id) {
+        Timer timer = timers.remove(id);
+        if (timer == null) {
+            return false;
+        }
+        timer.unlink();
+        return true;
+    }
+
+    /**
+     * ticks up to the given time and hands out every timer that fired, in order
+     * of the ticks
+     */
+    void advance(long nowMs, ExpiryConsumer expired) {
+        while (now + ticks[0] <= nowMs) {
+            now += ticks[0];
+            // higher levels first, their timers may fire in this very tick
+            for (int level = ticks.length - 1; level >= 0; level--) {
+                if (now % ticks[level] == 0) {
+                    flush(level, (int) ((now / ticks[level]) % slots[level].length), expired);
+                }
+            }
+        }
+    }
+
+    private void flush(int level, int slot, ExpiryConsumer expired) {
+        Timer sentinel = slots[level][slot];
+        if (sentinel.next == sentinel) {
+            return;
+        }
+        Timer timer = sentinel.next;
+        // detach the whole list, timers may be placed into this slot again
+        sentinel.prev.next = null;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            if (fireTime(timer.dueMs) <= now) {
+                timers.remove(timer.id);
+                expired.accept(timer.id, timer.dueMs);
+            } else {
+                place(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private long fireTime(long dueMs) {
+        long tick = ticks[0];
+        return Math.floorDiv(dueMs + tick - 1, tick) * tick;
+    }
+
+    private void place(Timer timer) {
+        long fire = Math.max(fireTime(timer.dueMs), now + ticks[0]);
+        int level = 0;
+        long slotStart = fire;
+        while (slotStart > now + slots[level].length * ticks[level]) {
+            level++;
+            slotStart = fire - Math.floorMod(fire, ticks[level]);
+        }
+        Timer sentinel = slots[level][(int) ((slotStart / ticks[level]) % slots[level].length)];
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+}
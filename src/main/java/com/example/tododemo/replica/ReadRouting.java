@@ -0,0 +1,48 @@
+package com.example.tododemo.replica;
+
+/**
+ * per thread override of the replica routing
+ * 
+ * set by {@link ReadRoutingFilter} for requests that have to see the primary,
+ * writes and reads inside the read-your-writes window of a client
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * @return true if even read-only transactions go to the primary
+     */
+    public static boolean isPrimaryForced() {
+        return PRIMARY.get() != null;
+    }
+
+    static void forcePrimary() {
+        PRIMARY.set(Boolean.TRUE);
+    }
+
+    static void clear() {
+        PRIMARY.remove();
+    }
+
+    /**
+     * @param task runs on another thread
+     * @return task with the routing of the calling thread
+     */
+    public static Runnable propagate(Runnable task) {
+        if (!isPrimaryForced()) {
+            return task;
+        }
+        return () -> {
+            forcePrimary();
+            try {
+                task.run();
+            } finally {
+                clear();
+            }
+        };
+    }
+}
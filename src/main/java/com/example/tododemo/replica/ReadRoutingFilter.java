@@ -0,0 +1,73 @@
+package com.example.tododemo.replica;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * sends whole requests to the primary
+ * 
+ * write requests run completely on the primary, also the reads before the
+ * write, since the entity manager of a request keeps its first connection. A
+ * write also sets a cookie with the end of the read-your-writes window, reads
+ * of that client go to the primary until then.
+ */
+public class ReadRoutingFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "TODO_PRIMARY_UNTIL";
+
+    private final long windowMs;
+
+    public ReadRoutingFilter(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (isWrite(request.getMethod())) {
+            ReadRouting.forcePrimary();
+            if (windowMs > 0) {
+                Cookie cookie = new Cookie(COOKIE, Long.toString(now + windowMs));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, windowMs / 1000));
+                response.addCookie(cookie);
+            }
+        } else if (primaryUntil(request) > now) {
+            ReadRouting.forcePrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadRouting.clear();
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
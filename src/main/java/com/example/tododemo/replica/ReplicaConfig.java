@@ -0,0 +1,101 @@
+package com.example.tododemo.replica;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * read replicas, on with todo.replica.enabled=true
+ * 
+ * spring.datasource stays the primary, read-only transactions go to the
+ * todo.replica.urls, see {@link ReplicaRoutingDataSource} and
+ * {@link ReadRoutingFilter}
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.replica.enabled", havingValue = "true")
+public class ReplicaConfig {
+
+    /**
+     * the data source of JPA, Flyway and data.sql
+     * 
+     * the primary and the replicas are built here and not as beans of their
+     * own: every DataSource bean makes Boot initialize the schema on this
+     * one, which would still be waiting for them
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+            @Value("${todo.replica.urls:}") String[] urls,
+            @Value("${todo.replica.strategy:round-robin}") String strategy,
+            @Value("${todo.replica.pool-size:10}") int poolSize,
+            @Value("${todo.replica.connection-timeout-ms:1000}") long connectionTimeoutMs,
+            @Value("${todo.replica.retry-ms:5000}") long retryMs) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setUsername(properties.determineUsername());
+            config.setPassword(properties.determinePassword());
+            config.setMaximumPoolSize(poolSize);
+            config.setConnectionTimeout(connectionTimeoutMs);
+            config.setReadOnly(true);
+            // a replica that is down at startup is skipped, not fatal
+            config.setInitializationFailTimeout(-1);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replicas,
+                ReplicaRoutingDataSource.Strategy.valueOf(strategy.trim().toUpperCase().replace('-', '_')), retryMs));
+    }
+
+    /**
+     * the routing behind {@link #dataSource}, for the metrics
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSource dataSource) throws SQLException {
+        return dataSource.unwrap(ReplicaRoutingDataSource.class);
+    }
+
+    @Bean
+    public ReadRoutingFilter readRoutingFilter(@Value("${todo.replica.read-your-writes-ms:5000}") long windowMs) {
+        return new ReadRoutingFilter(windowMs);
+    }
+
+    @Bean
+    public MeterBinder replicaMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return registry -> {
+            FunctionCounter.builder("todo.replica.reads", replicaRoutingDataSource,
+                    ReplicaRoutingDataSource::getReplicaReads).register(registry);
+            FunctionCounter.builder("todo.replica.fallbacks", replicaRoutingDataSource,
+                    ReplicaRoutingDataSource::getFallbacks).register(registry);
+            Gauge.builder("todo.replica.down", replicaRoutingDataSource, ReplicaRoutingDataSource::getReplicasDown)
+                    .register(registry);
+        };
+    }
+}
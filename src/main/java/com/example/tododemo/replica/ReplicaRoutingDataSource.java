@@ -0,0 +1,189 @@
+package com.example.tododemo.replica;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * sends read-only transactions to the replicas and everything else to the
+ * primary
+ * 
+ * the transaction is only known once it started, so this has to sit behind a
+ * LazyConnectionDataSourceProxy. A replica that fails to give a connection is
+ * skipped for the retry time, the read goes to the next replica and in the
+ * end to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final HikariDataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final Strategy strategy;
+
+    private final long retryNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder replicaReads = new LongAdder();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    private static final class Replica {
+
+        final HikariDataSource dataSource;
+
+        volatile long downUntil;
+
+        volatile boolean down;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        int load() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+        }
+
+        boolean isUp(long now) {
+            return !down || now - downUntil >= 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    /**
+     * @param primary  takes writes and the reads nobody else can serve, closed
+     *                 together with this
+     * @param replicas closed together with this
+     * @param strategy choice among the replicas that are up
+     * @param retryMs  time a failed replica is skipped
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Strategy strategy,
+            long retryMs) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas.size());
+        replicas.forEach(r -> this.replicas.add(new Replica(r)));
+        this.strategy = strategy;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMs);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(ds -> ds.getConnection(username, password));
+    }
+
+    /**
+     * @return connections given by replicas
+     */
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * @return read-only transactions on the primary because no replica was up
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * @return replicas currently skipped
+     */
+    public int getReplicasDown() {
+        long now = System.nanoTime();
+        int down = 0;
+        for (Replica replica : replicas) {
+            down += replica.isUp(now) ? 0 : 1;
+        }
+        return down;
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || ReadRouting.isPrimaryForced()) {
+            return source.get(primary);
+        }
+        for (Replica replica : candidates()) {
+            try {
+                Connection connection = source.get(replica.dataSource);
+                replica.down = false;
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                log.warn("replica {} failed, skipping it for {} ms: {}", replica.dataSource.getPoolName(),
+                        TimeUnit.NANOSECONDS.toMillis(retryNanos), e.getMessage());
+                replica.downUntil = System.nanoTime() + retryNanos;
+                replica.down = true;
+            }
+        }
+        fallbacks.increment();
+        return source.get(primary);
+    }
+
+    /**
+     * @return replicas that are up, in the order to try them
+     */
+    private List<Replica> candidates() {
+        long now = System.nanoTime();
+        int size = replicas.size();
+        List<Replica> up = new ArrayList<>(size);
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isUp(now)) {
+                up.add(replica);
+            }
+        }
+        if (strategy == Strategy.LEAST_LOADED && up.size() > 1) {
+            // the least loaded first, ties and the rest keep the round robin order
+            int best = 0;
+            int bestLoad = up.get(0).load();
+            for (int i = 1; i < up.size() && bestLoad > 0; i++) {
+                int load = up.get(i).load();
+                if (load < bestLoad) {
+                    best = i;
+                    bestLoad = load;
+                }
+            }
+            up.add(0, up.remove(best));
+        }
+        return up;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(r -> r.dataSource.close());
+        primary.close();
+    }
+}
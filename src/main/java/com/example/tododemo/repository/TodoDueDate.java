@@ -0,0 +1,16 @@
+package com.example.tododemo.repository;
+
+import java.time.Instant;
+
+/**
+ * the fields of a todo the reminder scheduler and the statistics need, read
+ * from the (done, duedate, id) index
+ */
+public interface TodoDueDate {
+
+    int getId();
+
+    Instant getDueDate();
+
+    boolean isDone();
+}
@@ -0,0 +1,18 @@
+package com.example.tododemo.repository;
+
+/**
+ * aggregate over a todo list that changes with every write to it
+ * 
+ * ids come from a sequence and are never reused, so a create raises the
+ * highest id for good and a delete without a create lowers the total. Row
+ * versions only grow, so while the same todos stay in the list their sum
+ * moves forward with every update.
+ */
+public interface TodoListFingerprint {
+
+    long getTotal();
+
+    long getMaxId();
+
+    long getVersionSum();
+}
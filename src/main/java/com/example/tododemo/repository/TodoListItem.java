@@ -0,0 +1,61 @@
+package com.example.tododemo.repository;
+
+import java.time.Instant;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * list row of a todo, created by a constructor expression of the query
+ * 
+ * not an entity, so Hibernate neither manages it nor keeps a snapshot for
+ * dirty checking
+ */
+public final class TodoListItem implements TodoSummary, TodoDueDate {
+
+    private final int id;
+
+    private final String title;
+
+    private final Instant dueDate;
+
+    private final boolean done;
+
+    private final long version;
+
+    public TodoListItem(int id, String title, Instant dueDate, boolean done, long version) {
+        this.id = id;
+        this.title = title;
+        this.dueDate = dueDate;
+        this.done = done;
+        this.version = version;
+    }
+
+    public static TodoListItem of(Todo todo) {
+        return new TodoListItem(todo.getId(), todo.getTitle(), todo.getDueDate(), todo.isDone(), todo.getVersion());
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public Instant getDueDate() {
+        return dueDate;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+}
@@ -1,10 +1,262 @@
 package com.example.tododemo.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import com.example.tododemo.model.Todo;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+import org.springframework.transaction.annotation.Transactional;
 
 @RepositoryRestResource
-public interface TodoRepository extends CrudRepository<Todo, Integer> {
-}
\ No newline at end of file
+public interface TodoRepository extends PagingAndSortingRepository<Todo, Integer>, TodoRepositoryCustom {
+
+    /**
+     * rows fetched per round trip when streaming
+     */
+    String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * all todos, ordered by due date and id
+     * 
+     * @param pageable page to read
+     * @return requested page
+     */
+    @RestResource(exported = false)
+    List<Todo> findAllByOrderByDueDateAscIdAsc(Pageable pageable);
+
+    /**
+     * unfinished todos, ordered by due date and id
+     * 
+     * served by the (done, duedate) index
+     * 
+     * @param pageable page to read
+     * @return requested page
+     */
+    @RestResource(exported = false)
+    List<Todo> findByDoneFalseOrderByDueDateAscIdAsc(Pageable pageable);
+
+    /**
+     * fingerprint of all todos
+     * 
+     * @return count, highest id and version sum
+     */
+    @RestResource(exported = false)
+    @Query("select count(t) as total, coalesce(max(t.id), 0) as maxId, coalesce(sum(t.version), 0) as versionSum"
+            + " from Todo t")
+    TodoListFingerprint fingerprintAll();
+
+    /**
+     * fingerprint of unfinished todos
+     * 
+     * @return count, highest id and version sum
+     */
+    @RestResource(exported = false)
+    @Query("select count(t) as total, coalesce(max(t.id), 0) as maxId, coalesce(sum(t.version), 0) as versionSum"
+            + " from Todo t where t.done = false")
+    TodoListFingerprint fingerprintUnfinished();
+
+    /**
+     * version of one todo, without loading it
+     * 
+     * @param id of the todo
+     * @return version, empty if there is no such todo
+     */
+    @RestResource(exported = false)
+    @Query("select t.version from Todo t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") int id);
+
+    /**
+     * deletes one todo if it still has the given version
+     * 
+     * @param id      of the todo
+     * @param version expected version
+     * @return number of deleted rows
+     */
+    @RestResource(exported = false)
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Todo t where t.id = :id and t.version = :version")
+    int deleteByIdAndVersion(@Param("id") int id, @Param("version") long version);
+
+    /**
+     * counts unfinished todos
+     * 
+     * @return number of unfinished todos
+     */
+    @RestResource(exported = false)
+    long countByDoneFalse();
+
+    /**
+     * counts unfinished todos due before the given instant
+     * 
+     * @param dueDate exclusive upper bound of the due date
+     * @return number of overdue todos
+     */
+    @RestResource(exported = false)
+    long countByDoneFalseAndDueDateBefore(Instant dueDate);
+
+    /**
+     * first keyset page of all todos
+     * 
+     * @param pageable only the page size is used
+     * @return todos ordered by due date and id
+     */
+    @RestResource(exported = false)
+    @Query("select t from Todo t order by t.dueDate asc, t.id asc")
+    List<Todo> findAllKeyset(Pageable pageable);
+
+    /**
+     * keyset page of all todos behind (dueDate, id)
+     * 
+     * @param dueDate  due date of the last todo already read
+     * @param id       id of the last todo already read
+     * @param pageable only the page size is used
+     * @return todos ordered by due date and id
+     */
+    @RestResource(exported = false)
+    @Query("select t from Todo t where t.dueDate > :dueDate or (t.dueDate = :dueDate and t.id > :id)"
+            + " order by t.dueDate asc, t.id asc")
+    List<Todo> findAllKeysetAfter(@Param("dueDate") Instant dueDate, @Param("id") int id, Pageable pageable);
+
+    /**
+     * first keyset page of unfinished todos
+     * 
+     * @param pageable only the page size is used
+     * @return todos ordered by due date and id
+     */
+    @RestResource(exported = false)
+    @Query("select t from Todo t where t.done = false order by t.dueDate asc, t.id asc")
+    List<Todo> findUnfinishedKeyset(Pageable pageable);
+
+    /**
+     * keyset page of unfinished todos behind (dueDate, id)
+     * 
+     * @param dueDate  due date of the last todo already read
+     * @param id       id of the last todo already read
+     * @param pageable only the page size is used
+     * @return todos ordered by due date and id
+     */
+    @RestResource(exported = false)
+    @Query("select t from Todo t where t.done = false and (t.dueDate > :dueDate or (t.dueDate = :dueDate and t.id > :id))"
+            + " order by t.dueDate asc, t.id asc")
+    List<Todo> findUnfinishedKeysetAfter(@Param("dueDate") Instant dueDate, @Param("id") int id, Pageable pageable);
+
+    /**
+     * page of all todos without their description, ordered by due date and id
+     * 
+     * @param pageable page to read, page 0 for the first keyset page
+     * @return list rows
+     */
+    @RestResource(exported = false)
+    @Query("select new com.example.tododemo.repository.TodoListItem(t.id, t.title, t.dueDate, t.done, t.version)"
+            + " from Todo t order by t.dueDate asc, t.id asc")
+    List<TodoListItem> findAllItems(Pageable pageable);
+
+    /**
+     * keyset page of all todos without their description, behind (dueDate, id)
+     * 
+     * @param dueDate  due date of the last todo already read
+     * @param id       id of the last todo already read
+     * @param pageable only the page size is used
+     * @return list rows ordered by due date and id
+     */
+    @RestResource(exported = false)
+    @Query("select new com.example.tododemo.repository.TodoListItem(t.id, t.title, t.dueDate, t.done, t.version)"
+            + " from Todo t where t.dueDate > :dueDate or (t.dueDate = :dueDate and t.id > :id)"
+            + " order by t.dueDate asc, t.id asc")
+    List<TodoListItem> findAllItemsAfter(@Param("dueDate") Instant dueDate, @Param("id") int id, Pageable pageable);
+
+    /**
+     * page of unfinished todos without their description, ordered by due date
+     * and id
+     * 
+     * @param pageable page to read, page 0 for the first keyset page
+     * @return list rows
+     */
+    @RestResource(exported = false)
+    @Query("select new com.example.tododemo.repository.TodoListItem(t.id, t.title, t.dueDate, t.done, t.version)"
+            + " from Todo t where t.done = false order by t.dueDate asc, t.id asc")
+    List<TodoListItem> findUnfinishedItems(Pageable pageable);
+
+    /**
+     * keyset page of unfinished todos without their description, behind
+     * (dueDate, id)
+     * 
+     * @param dueDate  due date of the last todo already read
+     * @param id       id of the last todo already read
+     * @param pageable only the page size is used
+     * @return list rows ordered by due date and id
+     */
+    @RestResource(exported = false)
+    @Query("select new com.example.tododemo.repository.TodoListItem(t.id, t.title, t.dueDate, t.done, t.version)"
+            + " from Todo t where t.done = false and (t.dueDate > :dueDate or (t.dueDate = :dueDate and t.id > :id))"
+            + " order by t.dueDate asc, t.id asc")
+    List<TodoListItem> findUnfinishedItemsAfter(@Param("dueDate") Instant dueDate, @Param("id") int id,
+            Pageable pageable);
+
+    /**
+     * streams all todos ordered by id
+     * 
+     * rows are fetched in chunks of {@link #STREAM_FETCH_SIZE} from a database
+     * cursor, has to be consumed and closed inside a transaction
+     * 
+     * @return stream of managed todos
+     */
+    @RestResource(exported = false)
+    @QueryHints({ @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true") })
+    @Query("select t from Todo t order by t.id asc")
+    Stream<Todo> streamAllByOrderByIdAsc();
+
+    /**
+     * sets done of one todo with a single UPDATE, without loading it, if it
+     * does not have that state already
+     * 
+     * @param id   of the todo
+     * @param done new state
+     * @return 1 if done changed, 0 if there is no such todo or it was done
+     *         already
+     */
+    @RestResource(exported = false)
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Todo t set t.done = :done, t.version = t.version + 1 where t.id = :id and t.done <> :done")
+    int updateDone(@Param("id") int id, @Param("done") boolean done);
+
+    /**
+     * unfinished todos due in [from, to), as cursor inside a transaction
+     * 
+     * @param from first due date, inclusive
+     * @param to   last due date, exclusive
+     * @return stream of due dates
+     */
+    @RestResource(exported = false)
+    @QueryHints({ @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true") })
+    @Query("select t.id as id, t.dueDate as dueDate, t.done as done from Todo t"
+            + " where t.done = false and t.dueDate >= :from and t.dueDate < :to")
+    Stream<TodoDueDate> streamUnfinishedDueBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * due dates of the given todos, missing ids are left out
+     * 
+     * @param ids ids of the todos
+     * @return due date and done of each todo found
+     */
+    @RestResource(exported = false)
+    @Query("select t.id as id, t.dueDate as dueDate, t.done as done from Todo t where t.id in :ids")
+    List<TodoDueDate> findDueDatesByIdIn(@Param("ids") Collection<Integer> ids);
+}
@@ -0,0 +1,17 @@
+package com.example.tododemo.repository;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * methods of {@link TodoRepository} that are not queries
+ */
+public interface TodoRepositoryCustom {
+
+    /**
+     * stops tracking a todo read by this repository, so a long read does not
+     * fill the persistence context
+     * 
+     * @param todo todo to forget, changes to it are not written anymore
+     */
+    void detach(Todo todo);
+}
@@ -0,0 +1,21 @@
+package com.example.tododemo.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * JPA implementation of {@link TodoRepositoryCustom}, picked up by Spring
+ * Data by its name
+ */
+public class TodoRepositoryCustomImpl implements TodoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public void detach(Todo todo) {
+        em.detach(todo);
+    }
+}
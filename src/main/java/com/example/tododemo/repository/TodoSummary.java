@@ -0,0 +1,22 @@
+package com.example.tododemo.repository;
+
+import java.time.Instant;
+
+/**
+ * the fields of a todo a list shows, all but the description
+ * 
+ * implemented by the entity and by {@link TodoListItem}, which list queries
+ * read without the description column
+ */
+public interface TodoSummary {
+
+    int getId();
+
+    String getTitle();
+
+    Instant getDueDate();
+
+    boolean isDone();
+
+    long getVersion();
+}
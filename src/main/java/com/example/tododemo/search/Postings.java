@@ -0,0 +1,125 @@
+package com.example.tododemo.search;
+
+/**
+ * todo ids of one term with their weighted term frequency
+ * 
+ * open addressing with linear probing on primitive arrays, a million postings
+ * would not fit as boxed map entries. Ids are positive, 0 marks a free slot.
+ */
+final class Postings {
+
+    interface Consumer {
+        void accept(int id, float weight);
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] ids;
+
+    private float[] weights;
+
+    private int size;
+
+    Postings() {
+        this(4);
+    }
+
+    Postings(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        ids = new int[capacity];
+        weights = new float[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return weight of the id, 0 if the id is missing
+     */
+    float get(int id) {
+        int mask = ids.length - 1;
+        for (int slot = slot(id, mask); ids[slot] != 0; slot = (slot + 1) & mask) {
+            if (ids[slot] == id) {
+                return weights[slot];
+            }
+        }
+        return 0f;
+    }
+
+    void put(int id, float weight) {
+        if (size + 1 > ids.length * LOAD_FACTOR) {
+            resize(ids.length << 1);
+        }
+        int mask = ids.length - 1;
+        int slot = slot(id, mask);
+        while (ids[slot] != 0 && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        if (ids[slot] == 0) {
+            ids[slot] = id;
+            size++;
+        }
+        weights[slot] = weight;
+    }
+
+    void add(int id, float weight) {
+        put(id, get(id) + weight);
+    }
+
+    void remove(int id) {
+        int mask = ids.length - 1;
+        int slot = slot(id, mask);
+        while (ids[slot] != id) {
+            if (ids[slot] == 0) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // shift following entries back so that no probe sequence is broken
+        int free = slot;
+        for (int next = (free + 1) & mask; ids[next] != 0; next = (next + 1) & mask) {
+            int home = slot(ids[next], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                ids[free] = ids[next];
+                weights[free] = weights[next];
+                free = next;
+            }
+        }
+        ids[free] = 0;
+        weights[free] = 0f;
+        size--;
+    }
+
+    void clear() {
+        ids = new int[4];
+        weights = new float[4];
+        size = 0;
+    }
+
+    void forEach(Consumer consumer) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != 0) {
+                consumer.accept(ids[i], weights[i]);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldIds = ids;
+        float[] oldWeights = weights;
+        ids = new int[capacity];
+        weights = new float[capacity];
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != 0) {
+                put(oldIds[i], oldWeights[i]);
+            }
+        }
+    }
+
+    private static int slot(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
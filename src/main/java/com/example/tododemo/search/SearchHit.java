@@ -0,0 +1,24 @@
+package com.example.tododemo.search;
+
+/**
+ * id and relevance of a todo matching a search
+ */
+public class SearchHit {
+
+    private final int id;
+
+    private final float score;
+
+    public SearchHit(int id, float score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public float getScore() {
+        return score;
+    }
+}
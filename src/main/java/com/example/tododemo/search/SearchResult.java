@@ -0,0 +1,29 @@
+package com.example.tododemo.search;
+
+import java.util.List;
+
+/**
+ * best hits of a search and the number of all matching todos
+ */
+public class SearchResult {
+
+    private final List<SearchHit> hits;
+
+    private final int total;
+
+    public SearchResult(List<SearchHit> hits, int total) {
+        this.hits = hits;
+        this.total = total;
+    }
+
+    /**
+     * @return hits, best first
+     */
+    public List<SearchHit> getHits() {
+        return hits;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.tododemo.search;
+
+import com.example.tododemo.event.TodoChangedEvent;
+import com.example.tododemo.service.TodoSearchService;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+
+/**
+ * provides the {@link TodoSearchIndex} and keeps it up to date
+ */
+@Configuration
+public class TodoSearchConfig {
+
+    @Bean
+    public TodoSearchIndex todoSearchIndex() {
+        return new TodoSearchIndex();
+    }
+
+    /**
+     * builds the index before the web server starts and applies every write
+     * afterwards
+     */
+    @Configuration
+    static class Indexing {
+
+        private final TodoSearchIndex index;
+
+        private final TodoSearchService searchService;
+
+        Indexing(TodoSearchIndex index, TodoSearchService searchService) {
+            this.index = index;
+            this.searchService = searchService;
+        }
+
+        @EventListener
+        public void onContextRefreshed(ContextRefreshedEvent event) {
+            searchService.rebuild();
+        }
+
+        @EventListener
+        public void onTodoChanged(TodoChangedEvent event) {
+            if (event.getType() == TodoChangedEvent.Type.DELETED) {
+                index.remove(event.getId());
+            } else if (event.getTodo() != null) {
+                index.put(event.getTodo());
+            }
+            // updates without todo only changed done
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.tododemo.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.example.tododemo.model.Todo;
+
+/**
+ * in-memory inverted index over title and description of the todos
+ * 
+ * every query token matches the term itself and, from two characters on, the
+ * terms it is a prefix of. A todo has to match all query tokens, hits are
+ * ranked with BM25, title terms count double and prefix matches half.
+ */
+public class TodoSearchIndex {
+
+    static final float TITLE_WEIGHT = 2f;
+
+    static final float PREFIX_BOOST = 0.5f;
+
+    /** terms a single prefix expands to, keeps short prefixes cheap */
+    static final int MAX_PREFIX_TERMS = 64;
+
+    static final int MAX_QUERY_TOKENS = 8;
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    private static final Comparator<SearchHit> RANK = Comparator.comparing(SearchHit::getScore).reversed()
+            .thenComparing(SearchHit::getId);
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    /** terms of each todo, to remove it again */
+    private final Map<Integer, String[]> documents = new HashMap<>();
+
+    /** weighted number of tokens per todo, read for every posting of a search */
+    private final Postings lengths = new Postings();
+
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * adds the todo or replaces its previous version
+     */
+    public void put(Todo todo) {
+        Map<String, Float> frequencies = new HashMap<>();
+        for (String token : Tokenizer.tokenize(todo.getTitle())) {
+            frequencies.merge(token, TITLE_WEIGHT, Float::sum);
+        }
+        for (String token : Tokenizer.tokenize(todo.getDescription())) {
+            frequencies.merge(token, 1f, Float::sum);
+        }
+        float length = 0;
+        for (float frequency : frequencies.values()) {
+            length += frequency;
+        }
+        String[] document = frequencies.keySet().toArray(new String[0]);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(todo.getId());
+            for (Map.Entry<String, Float> e : frequencies.entrySet()) {
+                terms.computeIfAbsent(e.getKey(), k -> new Postings()).put(todo.getId(), e.getValue());
+            }
+            documents.put(todo.getId(), document);
+            lengths.put(todo.getId(), length);
+            totalLength += (long) length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            documents.clear();
+            lengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(int id) {
+        String[] document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String term : document) {
+            Postings postings = terms.get(term);
+            postings.remove(id);
+            if (postings.size() == 0) {
+                terms.remove(term);
+            }
+        }
+        totalLength -= (long) lengths.get(id);
+        lengths.remove(id);
+    }
+
+    /**
+     * @param query text as typed by the user
+     * @param limit maximal number of hits
+     * @return best hits and number of matches, empty without tokens
+     */
+    public SearchResult search(String query, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (tokens.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            int count = documents.size();
+            float averageLength = count == 0 ? 1f : Math.max(1f, (float) totalLength / count);
+            List<List<Clause>> clauses = new ArrayList<>();
+            for (String token : tokens) {
+                if (clauses.size() == MAX_QUERY_TOKENS) {
+                    break;
+                }
+                List<Clause> matches = expand(token, count);
+                if (matches.isEmpty()) {
+                    return new SearchResult(Collections.emptyList(), 0);
+                }
+                clauses.add(matches);
+            }
+            // start from the token with the fewest postings, the others only filter
+            clauses.sort(Comparator.comparingLong(TodoSearchIndex::postingCount));
+
+            if (clauses.size() == 1 && clauses.get(0).size() == 1) {
+                // one term, nothing to sum up
+                Clause clause = clauses.get(0).get(0);
+                return top(clause.postings, limit, (id, frequency) -> clause.score(frequency, lengths.get(id),
+                        averageLength));
+            }
+
+            Postings first = new Postings((int) Math.min(count, postingCount(clauses.get(0))));
+            for (Clause clause : clauses.get(0)) {
+                clause.postings.forEach((id, frequency) -> first.add(id,
+                        clause.score(frequency, lengths.get(id), averageLength)));
+            }
+            Postings scores = first;
+            for (List<Clause> matches : clauses.subList(1, clauses.size())) {
+                Postings previous = scores;
+                Postings next = new Postings(previous.size());
+                scores = next;
+                previous.forEach((id, score) -> {
+                    float add = 0;
+                    for (Clause clause : matches) {
+                        float frequency = clause.postings.get(id);
+                        if (frequency > 0) {
+                            add += clause.score(frequency, lengths.get(id), averageLength);
+                        }
+                    }
+                    if (add > 0) {
+                        next.put(id, score + add);
+                    }
+                });
+            }
+
+            return top(scores, limit, (id, score) -> score);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param matches all matching todos
+     * @param limit   maximal number of hits
+     * @param score   score of a todo from its posting weight
+     */
+    private static SearchResult top(Postings matches, int limit, Scorer scorer) {
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(Math.max(1, limit), RANK.reversed());
+        matches.forEach((id, weight) -> {
+            float score = scorer.score(id, weight);
+            if (limit <= 0) {
+                return;
+            }
+            if (best.size() < limit) {
+                best.add(new SearchHit(id, score));
+            } else if (score > best.peek().getScore()
+                    || (score == best.peek().getScore() && id < best.peek().getId())) {
+                best.poll();
+                best.add(new SearchHit(id, score));
+            }
+        });
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(RANK);
+        return new SearchResult(hits, matches.size());
+    }
+
+    private List<Clause> expand(String token, int count) {
+        List<Clause> matches = new ArrayList<>();
+        Postings exact = terms.get(token);
+        float exactIdf = Float.MAX_VALUE;
+        if (exact != null) {
+            exactIdf = idf(exact.size(), count);
+            matches.add(new Clause(exact, exactIdf));
+        }
+        if (token.length() >= 2) {
+            for (Map.Entry<String, Postings> e : terms.subMap(token, false, token + Character.MAX_VALUE, false)
+                    .entrySet()) {
+                if (matches.size() > MAX_PREFIX_TERMS) {
+                    break;
+                }
+                // a rare longer word must not outrank the word itself
+                float idf = Math.min(exactIdf, idf(e.getValue().size(), count));
+                matches.add(new Clause(e.getValue(), PREFIX_BOOST * idf));
+            }
+        }
+        return matches;
+    }
+
+    private static long postingCount(List<Clause> matches) {
+        long count = 0;
+        for (Clause clause : matches) {
+            count += clause.postings.size();
+        }
+        return count;
+    }
+
+    private static float idf(int documentFrequency, int count) {
+        return (float) Math.log(1 + (count - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private interface Scorer {
+        float score(int id, float weight);
+    }
+
+    /**
+     * one term a query token matched
+     */
+    private static final class Clause {
+
+        final Postings postings;
+
+        final float weight;
+
+        Clause(Postings postings, float weight) {
+            this.postings = postings;
+            this.weight = weight;
+        }
+
+        float score(float frequency, float length, float averageLength) {
+            return weight * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.tododemo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import com.example.tododemo.model.BatchItemResult;
+import com.example.tododemo.model.ErrorResponse;
+import com.example.tododemo.model.Todo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * {@link TodoBatchService} on the JPA repository
+ * 
+ * the items are split into chunks of todo.batch.chunk-size, every chunk runs
+ * in its own transaction and is flushed every hibernate.jdbc.batch_size
+ * todos, so hibernate sends the statements as JDBC batches. If a chunk fails
+ * all of its items are reported as failed, the other chunks are kept.
+ * 
+ * results carry the index of the item in the given list
+ */
+@Service
+@Profile("!logstore")
+public class JpaTodoBatchService implements TodoBatchService {
+
+    private static final ErrorResponse CHUNK_FAILED = new ErrorResponse("BATCH_FAILED", "chunk could not be written");
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate tx;
+
+    @Value("${todo.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    @Autowired
+    public JpaTodoBatchService(PlatformTransactionManager transactionManager) {
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<Todo> todos) {
+        List<BatchItemResult> results = new ArrayList<>(todos.size());
+        for (int from = 0; from < todos.size(); from += chunkSize) {
+            List<Todo> chunk = todos.subList(from, Math.min(from + chunkSize, todos.size()));
+            int offset = from;
+            List<BatchItemResult> chunkResults = runChunk(chunk.size(), offset, () -> {
+                List<BatchItemResult> out = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Todo todo = chunk.get(i);
+                    todo.setId(0);
+                    em.persist(todo);
+                    out.add(BatchItemResult.ok(offset + i, todo, HttpStatus.CREATED.value()));
+                    flushEveryBatch(i, true);
+                }
+                return out;
+            });
+            results.addAll(chunkResults);
+        }
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> updateAll(List<Todo> todos) {
+        List<BatchItemResult> results = new ArrayList<>(todos.size());
+        for (int from = 0; from < todos.size(); from += chunkSize) {
+            List<Todo> chunk = todos.subList(from, Math.min(from + chunkSize, todos.size()));
+            int offset = from;
+            List<BatchItemResult> chunkResults = runChunk(chunk.size(), offset, () -> {
+                Map<Integer, Todo> existing = load(chunk);
+                List<BatchItemResult> out = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Todo todo = chunk.get(i);
+                    Todo managed = existing.get(todo.getId());
+                    if (managed == null) {
+                        out.add(BatchItemResult.failed(offset + i, todo.getId(), HttpStatus.NOT_FOUND.value(),
+                                Collections.emptyList()));
+                        continue;
+                    }
+                    if (managed.getVersion() != todo.getVersion()) {
+                        out.add(BatchItemResult.failed(offset + i, todo.getId(), HttpStatus.CONFLICT.value(),
+                                Collections.emptyList()));
+                        continue;
+                    }
+                    managed.setTitle(todo.getTitle());
+                    managed.setDescription(todo.getDescription());
+                    managed.setDueDate(todo.getDueDate());
+                    managed.setDone(todo.isDone());
+                    out.add(BatchItemResult.ok(offset + i, managed, HttpStatus.NO_CONTENT.value()));
+                    // the rest of the chunk is still managed, keep it
+                    flushEveryBatch(i, false);
+                }
+                // raises the versions of the todos in the results, also inside an outer transaction
+                em.flush();
+                return out;
+            });
+            results.addAll(chunkResults);
+        }
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> deleteAll(List<Integer> ids) {
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            int offset = from;
+            List<BatchItemResult> chunkResults = runChunk(chunk.size(), offset, () -> {
+                Set<Integer> existing = new HashSet<>(em
+                        .createQuery("select t.id from Todo t where t.id in :ids", Integer.class)
+                        .setParameter("ids", chunk).getResultList());
+                if (!existing.isEmpty()) {
+                    em.createQuery("delete from Todo t where t.id in :ids").setParameter("ids", existing)
+                            .executeUpdate();
+                }
+                List<BatchItemResult> out = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Integer id = chunk.get(i);
+                    if (existing.remove(id)) {
+                        out.add(BatchItemResult.ok(offset + i, id, HttpStatus.OK.value()));
+                    } else {
+                        out.add(BatchItemResult.failed(offset + i, id, HttpStatus.NOT_FOUND.value(),
+                                Collections.emptyList()));
+                    }
+                }
+                return out;
+            });
+            results.addAll(chunkResults);
+        }
+        return results;
+    }
+
+    /**
+     * runs one chunk in a transaction
+     * 
+     * @param size   items in the chunk
+     * @param offset index of the first item
+     * @param work   writes the chunk
+     * @return results of the work or failures for the whole chunk
+     */
+    private List<BatchItemResult> runChunk(int size, int offset, ChunkWork work) {
+        try {
+            return tx.execute(status -> work.run());
+        } catch (RuntimeException e) {
+            List<BatchItemResult> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                out.add(BatchItemResult.failed(offset + i, null, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                        Collections.singletonList(CHUNK_FAILED)));
+            }
+            return out;
+        }
+    }
+
+    /**
+     * loads the todos of a chunk with one query
+     * 
+     * @param chunk todos to look up
+     * @return managed todos by id
+     */
+    private Map<Integer, Todo> load(List<Todo> chunk) {
+        List<Integer> ids = new ArrayList<>(chunk.size());
+        chunk.forEach(t -> ids.add(t.getId()));
+        Map<Integer, Todo> byId = new HashMap<>();
+        em.createQuery("select t from Todo t where t.id in :ids", Todo.class).setParameter("ids", ids)
+                .getResultList().forEach(t -> byId.put(t.getId(), t));
+        return byId;
+    }
+
+    /**
+     * sends the pending statements as one JDBC batch
+     * 
+     * @param i     index inside the chunk
+     * @param clear empty the persistence context afterwards
+     */
+    private void flushEveryBatch(int i, boolean clear) {
+        if ((i + 1) % jdbcBatchSize == 0) {
+            em.flush();
+            if (clear) {
+                em.clear();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkWork {
+        List<BatchItemResult> run();
+    }
+}
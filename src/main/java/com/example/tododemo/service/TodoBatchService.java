@@ -0,0 +1,39 @@
+package com.example.tododemo.service;
+
+import java.util.List;
+
+import com.example.tododemo.model.BatchItemResult;
+import com.example.tododemo.model.Todo;
+
+/**
+ * writes many todos at once
+ * 
+ * results carry the index of the item in the given list
+ */
+public interface TodoBatchService {
+
+    /**
+     * inserts new todos, ids of the given todos are ignored
+     * 
+     * @param todos valid todos
+     * @return one result per todo
+     */
+    List<BatchItemResult> createAll(List<Todo> todos);
+
+    /**
+     * updates existing todos in place
+     * 
+     * @param todos valid todos with id
+     * @return one result per todo, 404 for unknown ids and 409 for outdated
+     *         versions
+     */
+    List<BatchItemResult> updateAll(List<Todo> todos);
+
+    /**
+     * deletes todos
+     * 
+     * @param ids ids to delete
+     * @return one result per id, 404 for unknown ids
+     */
+    List<BatchItemResult> deleteAll(List<Integer> ids);
+}
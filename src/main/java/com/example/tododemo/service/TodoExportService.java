@@ -0,0 +1,103 @@
+package com.example.tododemo.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * writes the whole todo table to a stream
+ * 
+ * todos are read from a database cursor, serialized one by one and detached
+ * right after, so memory stays flat no matter how big the table is
+ */
+@Service
+public class TodoExportService {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * todos written between two flushes of the output
+     */
+    private static final int FLUSH_INTERVAL = 500;
+
+    @Autowired
+    private TodoRepository todoRepo;
+
+    private final ObjectWriter writer;
+
+    @Autowired
+    public TodoExportService(ObjectMapper objectMapper) {
+        // flushing is done in chunks, not after every todo
+        this.writer = objectMapper.writerFor(Todo.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * writes all todos as newline delimited JSON, one todo per line
+     * 
+     * @param out target, not closed
+     * @return number of todos written
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long writeNdjson(OutputStream out) throws IOException {
+        JsonGenerator gen = writer.getFactory().createGenerator(out);
+        gen.setRootValueSeparator(null);
+        long count = 0;
+        try (Stream<Todo> stream = todoRepo.streamAllByOrderByIdAsc()) {
+            Iterator<Todo> it = stream.iterator();
+            while (it.hasNext()) {
+                write(gen, it.next());
+                gen.writeRaw('\n');
+                if (++count % FLUSH_INTERVAL == 0) {
+                    gen.flush();
+                }
+            }
+        }
+        gen.flush();
+        return count;
+    }
+
+    /**
+     * writes all todos as one JSON array
+     * 
+     * @param out target, not closed
+     * @return number of todos written
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long writeJsonArray(OutputStream out) throws IOException {
+        JsonGenerator gen = writer.getFactory().createGenerator(out);
+        long count = 0;
+        gen.writeStartArray();
+        try (Stream<Todo> stream = todoRepo.streamAllByOrderByIdAsc()) {
+            Iterator<Todo> it = stream.iterator();
+            while (it.hasNext()) {
+                write(gen, it.next());
+                if (++count % FLUSH_INTERVAL == 0) {
+                    gen.flush();
+                }
+            }
+        }
+        gen.writeEndArray();
+        gen.flush();
+        return count;
+    }
+
+    private void write(JsonGenerator gen, Todo todo) throws IOException {
+        writer.writeValue(gen, todo);
+        // nothing keeps a reference, so the persistence context stays empty
+        todoRepo.detach(todo);
+    }
+}
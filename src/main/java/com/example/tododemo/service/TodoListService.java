@@ -0,0 +1,73 @@
+package com.example.tododemo.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.example.tododemo.json.TodoFields;
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.repository.TodoSummary;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * reads pages of the todo list in read-only transactions
+ * 
+ * Hibernate keeps no snapshots of entities loaded read-only and does not
+ * flush, with replicas the page is read from one. If the requested fields
+ * leave out the description, only the list columns are selected into
+ * {@link com.example.tododemo.repository.TodoListItem} rows.
+ */
+@Service
+public class TodoListService {
+
+    @Autowired
+    private TodoRepository todoRepo;
+
+    /**
+     * offset page ordered by due date and id
+     * 
+     * @param unfinished only unfinished todos
+     * @param pageable   page to read
+     * @param fields     requested fields, null for whole todos
+     * @return entities, or list rows if the description is not needed
+     */
+    @Transactional(readOnly = true)
+    public List<? extends TodoSummary> page(boolean unfinished, Pageable pageable, TodoFields fields) {
+        if (fields != null && !fields.needsDescription()) {
+            return unfinished ? todoRepo.findUnfinishedItems(pageable) : todoRepo.findAllItems(pageable);
+        }
+        return unfinished ? todoRepo.findByDoneFalseOrderByDueDateAscIdAsc(pageable)
+                : todoRepo.findAllByOrderByDueDateAscIdAsc(pageable);
+    }
+
+    /**
+     * keyset page ordered by due date and id
+     * 
+     * @param unfinished only unfinished todos
+     * @param dueDate    due date of the last todo already read, null for the
+     *                   first page
+     * @param id         id of the last todo already read
+     * @param pageable   only the page size is used
+     * @param fields     requested fields, null for whole todos
+     * @return entities, or list rows if the description is not needed
+     */
+    @Transactional(readOnly = true)
+    public List<? extends TodoSummary> pageAfter(boolean unfinished, Instant dueDate, int id, Pageable pageable,
+            TodoFields fields) {
+        if (fields != null && !fields.needsDescription()) {
+            if (dueDate == null) {
+                return unfinished ? todoRepo.findUnfinishedItems(pageable) : todoRepo.findAllItems(pageable);
+            }
+            return unfinished ? todoRepo.findUnfinishedItemsAfter(dueDate, id, pageable)
+                    : todoRepo.findAllItemsAfter(dueDate, id, pageable);
+        }
+        if (dueDate == null) {
+            return unfinished ? todoRepo.findUnfinishedKeyset(pageable) : todoRepo.findAllKeyset(pageable);
+        }
+        return unfinished ? todoRepo.findUnfinishedKeysetAfter(dueDate, id, pageable)
+                : todoRepo.findAllKeysetAfter(dueDate, id, pageable);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.tododemo.service;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.search.TodoSearchIndex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * fills the {@link TodoSearchIndex} from the todo table
+ */
+@Service
+public class TodoSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoSearchService.class);
+
+    @Autowired
+    private TodoRepository todoRepo;
+
+    @Autowired
+    private TodoSearchIndex index;
+
+    /**
+     * indexes all todos again, reading them from a cursor
+     * 
+     * @return number of indexed todos
+     */
+    @Transactional(readOnly = true)
+    public int rebuild() {
+        long start = System.nanoTime();
+        index.clear();
+        int count = 0;
+        try (Stream<Todo> stream = todoRepo.streamAllByOrderByIdAsc()) {
+            Iterator<Todo> it = stream.iterator();
+            while (it.hasNext()) {
+                Todo todo = it.next();
+                index.put(todo);
+                todoRepo.detach(todo);
+                count++;
+            }
+        }
+        log.info("indexed {} todos for search in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+}
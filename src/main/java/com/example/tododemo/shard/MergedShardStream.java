@@ -0,0 +1,194 @@
+package com.example.tododemo.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * rows of a stream opened on every shard, merged lazily
+ * 
+ * each shard's stream is read on a thread of its own, inside a read-only
+ * transaction there, and handed over through a small buffer, so memory stays
+ * the same however many rows there are. With an order the sorted streams of
+ * the shards are merged k-way, without one the shards follow one another.
+ * Closing stops the readers, their streams and transactions end on their own
+ * threads.
+ * 
+ * @param <T> row
+ */
+final class MergedShardStream<T> implements Iterator<T> {
+
+    private static final Object END = new Object();
+
+    /** time a reader waits for room before it looks for close again */
+    private static final long OFFER_MS = 100;
+
+    private final PriorityQueue<Cursor> heads;
+
+    private final List<Cursor> cursors = new ArrayList<>();
+
+    private boolean started;
+
+    private volatile boolean closed;
+
+    private MergedShardStream(Comparator<? super T> order) {
+        Comparator<Cursor> byShard = Comparator.comparingInt(c -> c.shard);
+        this.heads = new PriorityQueue<>(
+                order == null ? byShard : Comparator.<Cursor, T>comparing(c -> c.head, order).thenComparing(byShard));
+    }
+
+    /**
+     * @param shards shards to read
+     * @param open   opens the stream, called on the shard's reader thread
+     * @param order  order of every shard's stream, null to read the shards
+     *               one after the other
+     * @param buffer rows read ahead per shard
+     * @return merged rows, has to be closed
+     */
+    static <T> Stream<T> open(Shards shards, Callable<Stream<?>> open, Comparator<? super T> order, int buffer) {
+        MergedShardStream<T> merged = new MergedShardStream<>(order);
+        shards.startOnAll(shard -> {
+            MergedShardStream<T>.Cursor cursor = merged.new Cursor(shard, buffer);
+            merged.cursors.add(cursor);
+            return () -> cursor.read(shards, open);
+        });
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(merged::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            for (Cursor cursor : cursors) {
+                advance(cursor);
+            }
+        }
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Cursor cursor = heads.poll();
+        T row = cursor.head;
+        advance(cursor);
+        return row;
+    }
+
+    /**
+     * puts the next row of the cursor among the heads, if it has one
+     */
+    @SuppressWarnings("unchecked")
+    private void advance(Cursor cursor) {
+        Object row;
+        try {
+            row = cursor.rows.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("interrupted reading shard " + cursor.shard, e);
+        }
+        if (row == END) {
+            return;
+        }
+        if (row instanceof Failure) {
+            close();
+            Throwable cause = ((Failure) row).cause;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("reading shard " + cursor.shard + " failed", cause);
+        }
+        cursor.head = (T) row;
+        heads.add(cursor);
+    }
+
+    private void close() {
+        closed = true;
+        // frees readers waiting for room, they see closed on their next try
+        cursors.forEach(c -> c.rows.clear());
+    }
+
+    /**
+     * reader of one shard and its rows read ahead
+     */
+    private final class Cursor {
+
+        private final int shard;
+
+        private final BlockingQueue<Object> rows;
+
+        /** row of this shard next in line, only read by the consumer */
+        private T head;
+
+        Cursor(int shard, int buffer) {
+            this.shard = shard;
+            this.rows = new ArrayBlockingQueue<>(buffer);
+        }
+
+        void read(Shards shards, Callable<Stream<?>> open) {
+            try {
+                shards.inReadOnlyTransaction(() -> {
+                    try (Stream<?> stream = open.call()) {
+                        Iterator<?> it = stream.iterator();
+                        while (it.hasNext() && offer(it.next())) {
+                            // handed over
+                        }
+                    }
+                    return null;
+                }).call();
+                offer(END);
+            } catch (Exception | Error e) {
+                offer(new Failure(e));
+            }
+        }
+
+        /**
+         * @return false if the merged stream was closed, the row is dropped
+         */
+        private boolean offer(Object row) {
+            boolean interrupted = false;
+            try {
+                while (!closed) {
+                    try {
+                        if (rows.offer(row, OFFER_MS, TimeUnit.MILLISECONDS)) {
+                            return true;
+                        }
+                    } catch (InterruptedException e) {
+                        // the consumer still needs to hear how the read ended
+                        interrupted = true;
+                    }
+                }
+                return false;
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.tododemo.shard;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.service.TodoBatchService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.jpa.AvailableSettings;
+import org.hibernate.jpa.spi.IdentifierGeneratorStrategyProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * todos spread over several databases, on with todo.shard.enabled=true
+ * 
+ * todo.shard.urls replaces spring.datasource.url, the shard of a todo follows
+ * from its id (see {@link ShardContext}). Every shard gets the schema from the
+ * migrations in db/migration, hibernate does not touch it. The number of
+ * shards can not change once there are todos. Not combinable with
+ * todo.replica.enabled.
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.shard.enabled", havingValue = "true")
+public class ShardConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardConfig.class);
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, @Value("${todo.shard.urls}") String[] urls,
+            @Value("${todo.shard.pool-size:10}") int poolSize) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("shard-" + targets.size());
+            config.setJdbcUrl(url.trim());
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setUsername(properties.determineUsername());
+            config.setPassword(properties.determinePassword());
+            config.setMaximumPoolSize(poolSize);
+            HikariDataSource shard = new HikariDataSource(config);
+            Flyway.configure().dataSource(shard).locations("classpath:db/migration/common",
+                    "classpath:db/migration/" + DatabaseDriver.fromJdbcUrl(url.trim()).getId()).load().migrate();
+            targets.put(targets.size(), shard);
+        }
+        ShardContext.configure(targets.size());
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        return routing;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchema() {
+        return properties -> properties.put("hibernate.hbm2ddl.auto", "none");
+    }
+
+    /**
+     * the sequence generator of the todos keeps a block cache per shard
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardSequenceGenerator() {
+        IdentifierGeneratorStrategyProvider generators = () -> Collections.singletonMap("enhanced-sequence",
+                ShardedSequenceGenerator.class);
+        return properties -> properties.put(AvailableSettings.IDENTIFIER_GENERATOR_STRATEGY_PROVIDER, generators);
+    }
+
+    @Bean(destroyMethod = "close")
+    public Shards shards(PlatformTransactionManager transactionManager,
+            @Value("${todo.shard.threads:16}") int threads) {
+        return new Shards(ShardContext.count(), threads, transactionManager);
+    }
+
+    /**
+     * puts the sequence of every shard on its lane, after data.sql
+     */
+    @Bean
+    public SmartInitializingSingleton shardSequences(DataSource dataSource) {
+        return () -> {
+            Map<Integer, DataSource> targets;
+            try {
+                targets = dataSource.unwrap(ShardRoutingDataSource.class).getShards();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            int count = targets.size();
+            for (Map.Entry<Integer, DataSource> target : targets.entrySet()) {
+                try {
+                    alignSequence(target.getValue(), target.getKey(), count);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("todos_seq of shard " + target.getKey() + " not aligned", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * wraps the repository and the batch service with the sharding layer
+     */
+    @Bean
+    public static BeanPostProcessor shardingLayer(ObjectProvider<Shards> shards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof TodoRepository) {
+                    ProxyFactory proxy = new ProxyFactory(bean);
+                    proxy.addAdvice(new ShardedTodoRepository(bean, shards.getObject()));
+                    return proxy.getProxy();
+                }
+                if (bean instanceof TodoBatchService) {
+                    ProxyFactory proxy = new ProxyFactory(bean);
+                    proxy.addAdvice(new ShardedBatchService(shards.getObject()));
+                    return proxy.getProxy();
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * restarts todos_seq at the next block of the shard's lane and lets it
+     * step over the blocks of the other shards, unless it does already
+     */
+    private static void alignSequence(DataSource shard, int index, int count) throws SQLException {
+        long step = (long) count * ShardContext.BLOCK_SIZE;
+        try (Connection connection = shard.getConnection(); Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(
+                    "select increment from information_schema.sequences where lower(sequence_name) = 'todos_seq'")) {
+                if (rs.next() && Long.parseLong(rs.getString(1).trim()) == step) {
+                    return;
+                }
+            }
+            long maxId;
+            try (ResultSet rs = statement.executeQuery("select coalesce(max(id), 0) from todos")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            long start = ShardContext.nextBlockStart(index, count, maxId);
+            statement.execute("alter sequence todos_seq restart with " + start + " increment by " + step);
+            log.info("todos_seq of shard {} starts at {} with steps of {}", index, start, step);
+        }
+    }
+}
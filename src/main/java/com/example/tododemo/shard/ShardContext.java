@@ -0,0 +1,76 @@
+package com.example.tododemo.shard;
+
+/**
+ * shard of the current thread and the mapping from ids to shards
+ * 
+ * ids are handed out in blocks of {@link #BLOCK_SIZE} and the blocks go round
+ * the shards: ids 1..50 belong to shard 0, 51..100 to shard 1 and so on. Every
+ * shard draws the blocks of its own lane from its todos_seq, so ids are unique
+ * over all shards and the shard of a todo follows from its id.
+ * 
+ * the shard is set by {@link Shards} on its own threads for one repository
+ * call and never belongs to a request, so unlike the read routing it does not
+ * have to follow a request that is handed to another thread.
+ */
+public final class ShardContext {
+
+    /**
+     * allocation size of todos_seq, see Todo
+     */
+    public static final int BLOCK_SIZE = 50;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    /** 0 while sharding is off */
+    private static volatile int count;
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return shard the current thread works on, null outside of the sharding
+     *         layer
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    static void set(int shard) {
+        CURRENT.set(shard);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static void configure(int shards) {
+        count = shards;
+    }
+
+    /**
+     * @return number of shards, 0 if sharding is off
+     */
+    public static int count() {
+        return count;
+    }
+
+    /**
+     * @param id of a todo
+     * @return shard that stores it
+     */
+    public static int shardOf(long id) {
+        return id < 1 ? 0 : (int) (((id - 1) / BLOCK_SIZE) % count);
+    }
+
+    /**
+     * @param shard    shard of the lane
+     * @param shards   number of shards
+     * @param maxId    largest id used on the shard, 0 if none
+     * @return first id of the next block of the lane after maxId
+     */
+    static long nextBlockStart(int shard, int shards, long maxId) {
+        long block = maxId < 1 ? 0 : (maxId - 1) / BLOCK_SIZE + 1;
+        block += Math.floorMod(shard - block, shards);
+        return block * BLOCK_SIZE + 1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.tododemo.shard;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * connections of the shard in {@link ShardContext}, shard 0 outside of the
+ * sharding layer (schema, data.sql)
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private Map<Integer, DataSource> shards = Collections.emptyMap();
+
+    /**
+     * @param targetDataSources DataSource of each shard by its index
+     */
+    @Override
+    public void setTargetDataSources(Map<Object, Object> targetDataSources) {
+        super.setTargetDataSources(targetDataSources);
+        Map<Integer, DataSource> shards = new LinkedHashMap<>();
+        for (Map.Entry<Object, Object> target : targetDataSources.entrySet()) {
+            shards.put((Integer) target.getKey(), (DataSource) target.getValue());
+        }
+        this.shards = Collections.unmodifiableMap(shards);
+    }
+
+    /**
+     * @return DataSource of each shard by its index
+     */
+    public Map<Integer, DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards.values()) {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+}
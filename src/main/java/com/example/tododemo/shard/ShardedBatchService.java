@@ -0,0 +1,75 @@
+package com.example.tododemo.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.example.tododemo.model.BatchItemResult;
+import com.example.tododemo.model.Todo;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * TodoBatchService over all shards
+ * 
+ * new todos are dealt round robin, updates and deletes go by id. Every shard
+ * writes its part with the batch service of a single database, in parallel,
+ * and the results get the index of the item in the whole request back.
+ */
+public class ShardedBatchService implements MethodInterceptor {
+
+    private final Shards shards;
+
+    public ShardedBatchService(Shards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String name = invocation.getMethod().getName();
+        if (!Arrays.asList("createAll", "updateAll", "deleteAll").contains(name)) {
+            return invocation.proceed();
+        }
+        List<?> items = (List<?>) invocation.getArguments()[0];
+        List<List<Object>> parts = new ArrayList<>();
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int s = 0; s < shards.count(); s++) {
+            parts.add(new ArrayList<>());
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            int shard;
+            if (name.equals("createAll")) {
+                shard = shards.nextForInsert();
+            } else if (item instanceof Todo) {
+                shard = ShardContext.shardOf(((Todo) item).getId());
+            } else {
+                shard = ShardContext.shardOf(((Number) item).longValue());
+            }
+            parts.get(shard).add(item);
+            positions.get(shard).add(i);
+        }
+
+        List<List<BatchItemResult>> written = shards.onAll(s -> () -> {
+            if (parts.get(s).isEmpty()) {
+                return new ArrayList<BatchItemResult>();
+            }
+            @SuppressWarnings("unchecked")
+            List<BatchItemResult> results = (List<BatchItemResult>) invocation.getMethod()
+                    .invoke(invocation.getThis(), parts.get(s));
+            return results;
+        });
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (int s = 0; s < written.size(); s++) {
+            for (BatchItemResult result : written.get(s)) {
+                result.setIndex(positions.get(s).get(result.getIndex()));
+                results.add(result);
+            }
+        }
+        results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+        return results;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.tododemo.shard;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * todos_seq with one block cache per shard
+ * 
+ * {@link ShardConfig} registers it in place of the enhanced-sequence
+ * generator of {@link com.example.tododemo.model.Todo}. On a shard the
+ * sequence of that shard is read and its blocks are kept apart from the ones
+ * of the other shards, a shared cache would hand out ids of one lane on
+ * another shard. Outside a shard it is the plain sequence generator.
+ */
+public class ShardedSequenceGenerator extends SequenceStyleGenerator {
+
+    private Class<?> returnedClass;
+
+    private int incrementSize;
+
+    private Optimizer[] lanes = new Optimizer[0];
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+        this.returnedClass = type.getReturnedClass();
+        this.incrementSize = getOptimizer().getIncrementSize();
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        Integer shard = ShardContext.current();
+        if (shard == null) {
+            return super.generate(session, object);
+        }
+        return lane(shard).generate(getDatabaseStructure().buildCallback(session));
+    }
+
+    private synchronized Optimizer lane(int shard) {
+        if (shard >= lanes.length) {
+            Optimizer[] grown = new Optimizer[shard + 1];
+            System.arraycopy(lanes, 0, grown, 0, lanes.length);
+            lanes = grown;
+        }
+        if (lanes[shard] == null) {
+            lanes[shard] = OptimizerFactory.buildOptimizer(
+                    StandardOptimizerDescriptor.POOLED_LO.getExternalName(), returnedClass,
+                    incrementSize, -1);
+        }
+        return lanes[shard];
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.tododemo.shard;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoListFingerprint;
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.repository.TodoSummary;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * TodoRepository over all shards
+ * 
+ * calls with an id go to the shard of the id, new todos go round robin.
+ * Lists are read from every shard in parallel, each shard returns the first
+ * offset + size rows and the merged rows are cut to the page. Counts and
+ * fingerprints are summed up. Streams are merged lazily from a cursor per
+ * shard, see {@link MergedShardStream}.
+ */
+public class ShardedTodoRepository implements MethodInterceptor {
+
+    private static final Comparator<TodoSummary> BY_DUE_DATE = Comparator.comparing(TodoSummary::getDueDate)
+            .thenComparingInt(TodoSummary::getId);
+
+    private static final Comparator<Todo> BY_ID = Comparator.comparingInt(Todo::getId);
+
+    /** how a repository method is spread over the shards */
+    enum Route {
+        /** to the shard of the id in the first argument */
+        BY_ID,
+        /** list ordered by due date and id, with a Pageable as last argument */
+        DUE_DATE_PAGE, SAVE, DELETE, BY_IDS, SAVE_ALL, DELETE_ALL,
+        /** count summed over the shards */
+        SUM, FINGERPRINT, STREAM_BY_ID, STREAM, FIND_ALL, DETACH
+    }
+
+    private static final Map<String, Route> ROUTES = new HashMap<>();
+
+    static {
+        for (String name : Arrays.asList("findById", "existsById", "deleteById", "findVersionById",
+                "deleteByIdAndVersion", "updateDone")) {
+            ROUTES.put(name, Route.BY_ID);
+        }
+        for (String name : Arrays.asList("findAllByOrderByDueDateAscIdAsc", "findByDoneFalseOrderByDueDateAscIdAsc",
+                "findAllKeyset", "findAllKeysetAfter", "findUnfinishedKeyset", "findUnfinishedKeysetAfter",
+                "findAllItems", "findAllItemsAfter", "findUnfinishedItems", "findUnfinishedItemsAfter")) {
+            ROUTES.put(name, Route.DUE_DATE_PAGE);
+        }
+        for (String name : Arrays.asList("count", "countByDoneFalse", "countByDoneFalseAndDueDateBefore")) {
+            ROUTES.put(name, Route.SUM);
+        }
+        ROUTES.put("save", Route.SAVE);
+        ROUTES.put("delete", Route.DELETE);
+        ROUTES.put("findAllById", Route.BY_IDS);
+        ROUTES.put("findDueDatesByIdIn", Route.BY_IDS);
+        ROUTES.put("saveAll", Route.SAVE_ALL);
+        ROUTES.put("deleteAll", Route.DELETE_ALL);
+        ROUTES.put("fingerprintAll", Route.FINGERPRINT);
+        ROUTES.put("fingerprintUnfinished", Route.FINGERPRINT);
+        ROUTES.put("streamAllByOrderByIdAsc", Route.STREAM_BY_ID);
+        ROUTES.put("streamUnfinishedDueBetween", Route.STREAM);
+        ROUTES.put("findAll", Route.FIND_ALL);
+        ROUTES.put("detach", Route.DETACH);
+    }
+
+    private final Object target;
+
+    private final Shards shards;
+
+    /**
+     * @param target repository of a single database
+     * @param shards runs the calls on the shards
+     */
+    public ShardedTodoRepository(Object target, Shards shards) {
+        this.target = target;
+        this.shards = shards;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object[] args = invocation.getArguments();
+        String name = method.getName();
+        if (!method.getDeclaringClass().isAssignableFrom(TodoRepository.class)
+                || method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        Route route = route(method);
+        if (route == null) {
+            throw new UnsupportedOperationException(name + " is not supported on sharded todos");
+        }
+        switch (route) {
+        case BY_ID:
+            return shards.on(ShardContext.shardOf(((Number) args[0]).longValue()), call(method, args));
+        case DUE_DATE_PAGE:
+            return page(method, args, BY_DUE_DATE);
+        case SAVE:
+            return save(method, (Todo) args[0]);
+        case DELETE:
+            return shards.on(ShardContext.shardOf(((Todo) args[0]).getId()), call(method, args));
+        case BY_IDS:
+            return byIds(method, args);
+        case SAVE_ALL:
+            return saveAll(method, args);
+        case DELETE_ALL:
+            return deleteAll(method, args);
+        case SUM:
+            return shards.onAll(s -> call(method, args)).stream().mapToLong(c -> (Long) c).sum();
+        case FINGERPRINT:
+            return fingerprint(method, args);
+        case STREAM_BY_ID:
+            return stream(method, args, BY_ID);
+        case STREAM:
+            return stream(method, args, null);
+        case FIND_ALL:
+            return findAll(method, args);
+        case DETACH:
+            // todos of the shards are read on other threads, nothing is tracked here
+            return null;
+        default:
+            throw new IllegalStateException("no handling of " + route);
+        }
+    }
+
+    /**
+     * @param method repository method
+     * @return how it is spread over the shards, null if it is not supported
+     */
+    static Route route(Method method) {
+        return ROUTES.get(method.getName());
+    }
+
+    private Object save(Method method, Todo todo) {
+        int shard = todo.getId() == 0 ? shards.nextForInsert() : ShardContext.shardOf(todo.getId());
+        return shards.on(shard, call(method, new Object[] { todo }));
+    }
+
+    private Object saveAll(Method method, Object[] args) throws NoSuchMethodException {
+        Method save = CrudRepository.class.getMethod("save", Object.class);
+        List<Object> saved = new ArrayList<>();
+        for (Object todo : (Iterable<?>) args[0]) {
+            saved.add(save(save, (Todo) todo));
+        }
+        return saved;
+    }
+
+    /**
+     * deletes everything on every shard, or the given todos on their shards
+     */
+    private Object deleteAll(Method method, Object[] args) {
+        if (args.length == 0) {
+            shards.onAll(s -> call(method, args));
+            return null;
+        }
+        Map<Integer, List<Todo>> byShard = new TreeMap<>();
+        for (Object todo : (Iterable<?>) args[0]) {
+            byShard.computeIfAbsent(ShardContext.shardOf(((Todo) todo).getId()), s -> new ArrayList<>())
+                    .add((Todo) todo);
+        }
+        shards.onAll(s -> byShard.containsKey(s) ? call(method, new Object[] { byShard.get(s) }) : () -> null);
+        return null;
+    }
+
+    /**
+     * groups the ids by shard and asks only the shards that have some
+     */
+    private Object byIds(Method method, Object[] args) {
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (Object id : (Iterable<?>) args[0]) {
+            byShard.computeIfAbsent(ShardContext.shardOf(((Number) id).longValue()), s -> new ArrayList<>())
+                    .add(((Number) id).intValue());
+        }
+        List<Object> found = new ArrayList<>();
+        for (Object part : shards.onAll(s -> byShard.containsKey(s) ? call(method, new Object[] { byShard.get(s) })
+                : () -> null)) {
+            if (part != null) {
+                ((Iterable<?>) part).forEach(found::add);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * reads offset + size rows from every shard and cuts the merged rows
+     */
+    private <T> List<T> page(Method method, Object[] args, Comparator<? super T> order) {
+        Pageable pageable = (Pageable) args[args.length - 1];
+        List<T> merged = merge(shards.onAll(s -> call(method, withPage(args, pageable))), order);
+        return cut(merged, pageable);
+    }
+
+    private Object findAll(Method method, Object[] args) {
+        if (args.length == 0) {
+            return merge(shards.onAll(s -> call(method, args)), BY_ID);
+        }
+        if (args[0] instanceof Sort) {
+            return merge(shards.onAll(s -> call(method, args)), comparator((Sort) args[0]));
+        }
+        Pageable pageable = (Pageable) args[0];
+        List<Object> pages = shards.onAll(s -> call(method, withPage(args, pageable)));
+        long total = pages.stream().mapToLong(p -> ((Page<?>) p).getTotalElements()).sum();
+        List<Todo> merged = merge(pages.stream().map(p -> ((Page<?>) p).getContent()).collect(Collectors.toList()),
+                comparator(pageable.getSort()));
+        return new PageImpl<>(cut(merged, pageable), pageable, total);
+    }
+
+    private Object fingerprint(Method method, Object[] args) {
+        long total = 0;
+        long maxId = 0;
+        long versionSum = 0;
+        for (Object part : shards.onAll(s -> call(method, args))) {
+            TodoListFingerprint fingerprint = (TodoListFingerprint) part;
+            total += fingerprint.getTotal();
+            maxId = Math.max(maxId, fingerprint.getMaxId());
+            versionSum += fingerprint.getVersionSum();
+        }
+        return new Fingerprint(total, maxId, versionSum);
+    }
+
+    private Object stream(Method method, Object[] args, Comparator<Todo> order) {
+        return MergedShardStream.open(shards, () -> (Stream<?>) invoke(method, args), order,
+                Integer.parseInt(TodoRepository.STREAM_FETCH_SIZE));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> merge(List<?> parts, Comparator<? super T> order) {
+        List<T> merged = new ArrayList<>();
+        for (Object part : parts) {
+            ((Iterable<T>) part).forEach(merged::add);
+        }
+        // every part is sorted already, the merge sort only merges runs
+        merged.sort(order);
+        return merged;
+    }
+
+    private static <T> List<T> cut(List<T> merged, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return merged;
+        }
+        int from = (int) Math.min(merged.size(), pageable.getOffset());
+        return new ArrayList<>(merged.subList(from, Math.min(merged.size(), from + pageable.getPageSize())));
+    }
+
+    /**
+     * @return args with the first offset + size rows instead of the page
+     */
+    private static Object[] withPage(Object[] args, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return args;
+        }
+        Object[] copy = args.clone();
+        copy[copy.length - 1] = PageRequest.of(0, (int) (pageable.getOffset() + pageable.getPageSize()),
+                pageable.getSort());
+        return copy;
+    }
+
+    private static Comparator<Todo> comparator(Sort sort) {
+        Comparator<Todo> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Todo> next = new PropertyComparator<>(
+                    new MutableSortDefinition(order.getProperty(), order.isIgnoreCase(), order.isAscending()));
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? BY_ID : comparator.thenComparing(BY_ID);
+    }
+
+    private Callable<Object> call(Method method, Object[] args) {
+        return () -> invoke(method, args);
+    }
+
+    private Object invoke(Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Fingerprint implements TodoListFingerprint {
+
+        private final long total;
+
+        private final long maxId;
+
+        private final long versionSum;
+
+        Fingerprint(long total, long maxId, long versionSum) {
+            this.total = total;
+            this.maxId = maxId;
+            this.versionSum = versionSum;
+        }
+
+        @Override
+        public long getTotal() {
+            return total;
+        }
+
+        @Override
+        public long getMaxId() {
+            return maxId;
+        }
+
+        @Override
+        public long getVersionSum() {
+            return versionSum;
+        }
+    }
+}
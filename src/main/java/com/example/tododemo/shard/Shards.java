@@ -0,0 +1,168 @@
+package com.example.tododemo.shard;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * runs work on shards
+ * 
+ * the work always runs on a thread of the shard pool, never on the caller's.
+ * The caller may hold an entity manager with a connection to another shard
+ * (open session in view, an outer transaction), a fresh thread starts without
+ * one.
+ */
+public class Shards implements Closeable {
+
+    private final int count;
+
+    private final ExecutorService executor;
+
+    private final ExecutorService cursors;
+
+    private final TransactionTemplate readOnlyTx;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param count              number of shards
+     * @param threads            threads of the shard pool
+     * @param transactionManager for reads that need a transaction
+     */
+    public Shards(int count, int threads, PlatformTransactionManager transactionManager) {
+        this.count = count;
+        AtomicInteger created = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "shard-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger cursorThreads = new AtomicInteger();
+        this.cursors = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "shard-cursor-" + cursorThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return shard for a new todo, round robin
+     */
+    public int nextForInsert() {
+        return Math.floorMod(next.getAndIncrement(), count);
+    }
+
+    /**
+     * @param shard shard to work on
+     * @param work  runs with the shard's connections
+     * @return result of the work
+     */
+    public <T> T on(int shard, Callable<T> work) {
+        return join(submit(shard, work));
+    }
+
+    /**
+     * @param work work per shard, all shards in parallel
+     * @return results in shard order
+     */
+    public <T> List<T> onAll(IntFunction<Callable<T>> work) {
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            futures.add(submit(shard, work.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(count);
+        for (Future<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    /**
+     * starts work on every shard without waiting for it
+     * 
+     * the work gets a thread of its own instead of one of the shard pool, so
+     * it may wait for the caller, e.g. to hand over the rows of a cursor, as
+     * long as it likes
+     * 
+     * @param work work per shard, all shards in parallel
+     */
+    void startOnAll(IntFunction<Runnable> work) {
+        for (int shard = 0; shard < count; shard++) {
+            int on = shard;
+            Runnable run = work.apply(shard);
+            cursors.execute(() -> {
+                ShardContext.set(on);
+                try {
+                    run.run();
+                } finally {
+                    ShardContext.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * @param work runs in a read-only transaction, e.g. to consume a stream
+     * @return result of the work
+     */
+    <T> Callable<T> inReadOnlyTransaction(Callable<T> work) {
+        return () -> readOnlyTx.execute(status -> {
+            try {
+                return work.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private <T> Future<T> submit(int shard, Callable<T> work) {
+        return executor.submit(() -> {
+            ShardContext.set(shard);
+            try {
+                return work.call();
+            } finally {
+                ShardContext.clear();
+            }
+        });
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        cursors.shutdownNow();
+    }
+}
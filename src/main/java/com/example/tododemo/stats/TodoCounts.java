@@ -0,0 +1,50 @@
+package com.example.tododemo.stats;
+
+import java.time.Instant;
+
+/**
+ * snapshot of the counters of {@link TodoStats}
+ */
+public class TodoCounts {
+
+    private final long total;
+
+    private final long done;
+
+    private final long overdue;
+
+    private final Instant reconciledAt;
+
+    public TodoCounts(long total, long done, long overdue, Instant reconciledAt) {
+        this.total = total;
+        this.done = done;
+        this.overdue = overdue;
+        this.reconciledAt = reconciledAt;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getDone() {
+        return done;
+    }
+
+    public long getUnfinished() {
+        return total - done;
+    }
+
+    /**
+     * @return unfinished todos past their due date
+     */
+    public long getOverdue() {
+        return overdue;
+    }
+
+    /**
+     * @return last comparison with the database, null before the first
+     */
+    public Instant getReconciledAt() {
+        return reconciledAt;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.tododemo.stats;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.tododemo.event.TodoOverdueEvent;
+import com.example.tododemo.repository.TodoDueDate;
+import com.example.tododemo.repository.TodoRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * counts of all, done and overdue todos, kept up to date by the writes of the
+ * controller so reading them costs no query
+ * 
+ * the counters are {@link LongAdder}s, concurrent writes add to different
+ * cells instead of retrying on one. Todos that pass their due date are counted
+ * from the {@link TodoOverdueEvent}s of the reminders. Writes that bypass the
+ * controller, and time passing while reminders are off, make the counters
+ * drift. So they are compared with COUNT queries periodically, a difference
+ * seen in two comparisons in a row is corrected. A difference seen once may
+ * just be a write that was committed but not counted yet.
+ */
+public class TodoStats implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoStats.class);
+
+    private static final String[] NAMES = { "total", "done", "overdue" };
+
+    private static final int TOTAL = 0;
+
+    private static final int DONE = 1;
+
+    private static final int OVERDUE = 2;
+
+    private final TodoRepository todoRepo;
+
+    private final TransactionTemplate tx;
+
+    private final Clock clock;
+
+    private final long reconcileMs;
+
+    private final LongAdder[] counters = { new LongAdder(), new LongAdder(), new LongAdder() };
+
+    private final LongAdder corrected = new LongAdder();
+
+    /** difference of the last comparison, guarded by this */
+    private final long[] lastDrift = new long[3];
+
+    private volatile Instant reconciledAt;
+
+    private ScheduledExecutorService reconciler;
+
+    private volatile boolean running;
+
+    /**
+     * @param todoRepo           repository for the COUNT queries
+     * @param transactionManager for the COUNT queries
+     * @param clock              time source of the overdue check
+     * @param reconcileEvery     time between two comparisons with the database
+     */
+    public TodoStats(TodoRepository todoRepo, PlatformTransactionManager transactionManager, Clock clock,
+            Duration reconcileEvery) {
+        this.todoRepo = todoRepo;
+        // not read-only, replicas may lag behind the counters
+        this.tx = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.reconcileMs = reconcileEvery.toMillis();
+    }
+
+    @Override
+    public synchronized void start() {
+        reconcileQuietly();
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "todo-stats");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, reconcileMs, reconcileMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        reconciler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return current counts, independent of the number of todos
+     */
+    public TodoCounts counts() {
+        return new TodoCounts(counters[TOTAL].sum(), counters[DONE].sum(), counters[OVERDUE].sum(), reconciledAt);
+    }
+
+    /**
+     * @return todos added or removed by reconciliation
+     */
+    public long getCorrected() {
+        return corrected.sum();
+    }
+
+    /**
+     * @param todo committed new todo
+     */
+    public void created(TodoDueDate todo) {
+        add(todo, 1, clock.instant());
+    }
+
+    /**
+     * @param before state before the update
+     * @param after  committed state
+     */
+    public void updated(TodoDueDate before, TodoDueDate after) {
+        Instant now = clock.instant();
+        add(before, -1, now);
+        add(after, 1, now);
+    }
+
+    /**
+     * an update that flipped done and nothing else
+     * 
+     * @param after committed state
+     */
+    public void doneChanged(TodoDueDate after) {
+        boolean done = after.isDone();
+        counters[DONE].add(done ? 1 : -1);
+        if (after.getDueDate().isBefore(clock.instant())) {
+            counters[OVERDUE].add(done ? -1 : 1);
+        }
+    }
+
+    /**
+     * @param before state of the deleted todo
+     */
+    public void deleted(TodoDueDate before) {
+        add(before, -1, clock.instant());
+    }
+
+    @EventListener
+    public void onOverdue(TodoOverdueEvent event) {
+        counters[OVERDUE].increment();
+    }
+
+    private void add(TodoDueDate todo, int delta, Instant now) {
+        counters[TOTAL].add(delta);
+        if (todo.isDone()) {
+            counters[DONE].add(delta);
+        } else if (todo.getDueDate().isBefore(now)) {
+            counters[OVERDUE].add(delta);
+        }
+    }
+
+    /**
+     * compares the counters with COUNT queries, the first comparison sets them
+     */
+    public synchronized void reconcile() {
+        Instant now = clock.instant();
+        long[] counted = tx.execute(status -> {
+            long total = todoRepo.count();
+            return new long[] { total, total - todoRepo.countByDoneFalse(),
+                    todoRepo.countByDoneFalseAndDueDateBefore(now) };
+        });
+        boolean first = reconciledAt == null;
+        for (int i = 0; i < counters.length; i++) {
+            long drift = counted[i] - counters[i].sum();
+            if (first) {
+                counters[i].add(drift);
+                continue;
+            }
+            // only the part seen both times, the rest may be a write in flight
+            long confirmed = Long.signum(drift) == Long.signum(lastDrift[i])
+                    ? Long.signum(drift) * Math.min(Math.abs(drift), Math.abs(lastDrift[i]))
+                    : 0;
+            if (confirmed != 0) {
+                log.warn("{} todos counted {}, drifted by {}, corrected", NAMES[i], counters[i].sum(), confirmed);
+                counters[i].add(confirmed);
+                corrected.add(Math.abs(confirmed));
+                drift -= confirmed;
+            }
+            lastDrift[i] = drift;
+        }
+        reconciledAt = now;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("could not reconcile todo counts: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.tododemo.stats;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import com.example.tododemo.repository.TodoRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * provides the {@link TodoStats} behind GET /todos/stats, compared with the
+ * database every todo.stats.reconcile-seconds
+ */
+@Configuration
+public class TodoStatsConfig {
+
+    @Bean
+    public TodoStats todoStats(TodoRepository todoRepo, PlatformTransactionManager transactionManager,
+            @Value("${todo.stats.reconcile-seconds:60}") long reconcileSeconds) {
+        return new TodoStats(todoRepo, transactionManager, Clock.systemUTC(), Duration.ofSeconds(reconcileSeconds));
+    }
+
+    @Bean
+    public MeterBinder todoStatsMetrics(TodoStats todoStats) {
+        return registry -> {
+            Gauge.builder("todo.stats.total", todoStats, s -> s.counts().getTotal()).register(registry);
+            Gauge.builder("todo.stats.done", todoStats, s -> s.counts().getDone()).register(registry);
+            Gauge.builder("todo.stats.overdue", todoStats, s -> s.counts().getOverdue()).register(registry);
+            FunctionCounter.builder("todo.stats.corrected", todoStats, TodoStats::getCorrected)
+                    .description("todos added or removed from the counts by reconciliation").register(registry);
+        };
+    }
+}
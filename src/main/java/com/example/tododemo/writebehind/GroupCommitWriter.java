@@ -0,0 +1,220 @@
+package com.example.tododemo.writebehind;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.event.TodoChangedEvent;
+import com.example.tododemo.model.BatchItemResult;
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.service.TodoBatchService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+
+/**
+ * group commit of new todos
+ * 
+ * creates are queued and a single writer inserts them together, one
+ * transaction per group of at most maxBatch todos, waiting no longer than
+ * maxDelay for a group to fill. The future of every todo completes after its
+ * group was committed. A group that fails is written again one todo at a
+ * time, so a bad todo only fails its own request.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final TodoBatchService batchService;
+
+    private final ApplicationEventPublisher events;
+
+    private final BlockingQueue<Pending> queue;
+
+    private final int maxBatch;
+
+    private final long maxDelayNanos;
+
+    private final boolean relaxed;
+
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    private final Timer flushTimer;
+
+    private final Timer waitTimer;
+
+    private final DistributionSummary groupSize;
+
+    private final Counter rejected;
+
+    private static final class Pending {
+
+        final Todo todo;
+
+        final long enqueued = System.nanoTime();
+
+        final CompletableFuture<Todo> created = new CompletableFuture<>();
+
+        Pending(Todo todo) {
+            this.todo = todo;
+        }
+    }
+
+    /**
+     * @param batchService  writes the groups
+     * @param events        receives a created event per todo
+     * @param queueCapacity todos waiting at most
+     * @param maxBatch      todos per group commit
+     * @param maxDelayMs    time the first todo of a group waits for more
+     * @param relaxed       callers do not wait for the commit
+     * @param registry      for the todo.write-behind.* metrics
+     */
+    public GroupCommitWriter(TodoBatchService batchService, ApplicationEventPublisher events, int queueCapacity,
+            int maxBatch, long maxDelayMs, boolean relaxed, MeterRegistry registry) {
+        this.batchService = batchService;
+        this.events = events;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.relaxed = relaxed;
+        Gauge.builder("todo.write-behind.queued", queue, BlockingQueue::size).register(registry);
+        this.flushTimer = Timer.builder("todo.write-behind.flush").description("time to write and commit a group")
+                .register(registry);
+        this.waitTimer = Timer.builder("todo.write-behind.latency")
+                .description("time from queueing a todo until it is committed").publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.groupSize = DistributionSummary.builder("todo.write-behind.group.size").register(registry);
+        this.rejected = Counter.builder("todo.write-behind.rejected").register(registry);
+        this.writer = new Thread(this::run, "write-behind");
+        this.writer.start();
+    }
+
+    /**
+     * @return true if callers should answer before the commit
+     */
+    public boolean isRelaxed() {
+        return relaxed;
+    }
+
+    /**
+     * queues a new todo
+     * 
+     * @param todo valid todo, its id is ignored
+     * @return completes with the saved todo once committed, null if the queue
+     *         is full
+     */
+    public CompletableFuture<Todo> submit(Todo todo) {
+        Pending pending = new Pending(todo);
+        if (closed || !queue.offer(pending)) {
+            rejected.increment();
+            return null;
+        }
+        return pending.created;
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = first.enqueued + maxDelayNanos;
+                while (group.size() < maxBatch) {
+                    // whatever is already waiting goes along without delay
+                    if (queue.drainTo(group, maxBatch - group.size()) > 0) {
+                        continue;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    Pending next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                closed = true;
+            }
+            if (!group.isEmpty()) {
+                try {
+                    flush(group);
+                } catch (RuntimeException e) {
+                    log.error("group commit failed", e);
+                    group.forEach(p -> p.created.completeExceptionally(e));
+                }
+                group.clear();
+            }
+        }
+        // submitted while closing, after the last look at the queue
+        for (Pending pending; (pending = queue.poll()) != null;) {
+            pending.created.completeExceptionally(new IllegalStateException("write-behind is closed"));
+        }
+    }
+
+    private void flush(List<Pending> group) {
+        List<Todo> todos = new ArrayList<>(group.size());
+        group.forEach(p -> todos.add(p.todo));
+        long start = System.nanoTime();
+        List<BatchItemResult> results = batchService.createAll(todos);
+        if (results.stream().anyMatch(r -> r.getStatus() != HttpStatus.CREATED.value())) {
+            log.warn("group commit of {} todos failed, writing them one by one", group.size());
+            results = new ArrayList<>(group.size());
+            for (Todo todo : todos) {
+                results.add(batchService.createAll(Collections.singletonList(todo)).get(0));
+            }
+        }
+        long end = System.nanoTime();
+        flushTimer.record(end - start, TimeUnit.NANOSECONDS);
+        groupSize.record(group.size());
+
+        for (int i = 0; i < group.size(); i++) {
+            Pending pending = group.get(i);
+            waitTimer.record(end - pending.enqueued, TimeUnit.NANOSECONDS);
+            if (results.get(i).getStatus() != HttpStatus.CREATED.value()) {
+                pending.created.completeExceptionally(new IllegalStateException("todo could not be written"));
+                continue;
+            }
+            try {
+                events.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, pending.todo.getId(),
+                        pending.todo));
+            } catch (RuntimeException e) {
+                log.error("listener failed on created todo {}", pending.todo.getId(), e);
+            }
+            pending.created.complete(pending.todo);
+        }
+    }
+
+    /**
+     * stops taking todos and writes the queued ones
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("write-behind queue not empty after {} s, {} todos lost", CLOSE_TIMEOUT_SECONDS, queue.size());
+        }
+    }
+}
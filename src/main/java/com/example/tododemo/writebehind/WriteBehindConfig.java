@@ -0,0 +1,32 @@
+package com.example.tododemo.writebehind;
+
+import com.example.tododemo.service.TodoBatchService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * write-behind for POST /todos, on with todo.write-behind.enabled=true
+ * 
+ * new todos are committed in groups by a {@link GroupCommitWriter}, the
+ * request answers 201 after the commit or, with todo.write-behind.relaxed,
+ * 202 right away
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.write-behind.enabled", havingValue = "true")
+public class WriteBehindConfig {
+
+    @Bean(destroyMethod = "close")
+    public GroupCommitWriter groupCommitWriter(TodoBatchService batchService, ApplicationEventPublisher events,
+            MeterRegistry registry, @Value("${todo.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${todo.write-behind.max-batch:500}") int maxBatch,
+            @Value("${todo.write-behind.max-delay-ms:5}") long maxDelayMs,
+            @Value("${todo.write-behind.relaxed:false}") boolean relaxed) {
+        return new GroupCommitWriter(batchService, events, queueCapacity, maxBatch, maxDelayMs, relaxed, registry);
+    }
+}
@@ -6,10 +6,13 @@
 --    done BOOLEAN
 --);
 
-INSERT INTO todos(title,description,duedate,done)VALUES ('test','test object','1970-01-01T00:00:00Z',false);
-INSERT INTO todos(title,description,duedate,done)VALUES ('test1','test object','1970-01-01T00:00:00Z',true);
-INSERT INTO todos(title,description,duedate,done)VALUES ('test2','test object','1970-01-01T00:00:00Z',false);
-INSERT INTO todos(title,description,duedate,done)VALUES ('test3','test object','1970-01-01T00:00:00Z',true);
-INSERT INTO todos(title,description,duedate,done)VALUES ('test4','test object','1970-01-01T00:00:00Z',false);
-INSERT INTO todos(title,description,duedate,done)VALUES ('test5','test object','1970-01-01T00:00:00Z',true);
-INSERT INTO todos(title,description,duedate,done)VALUES ('test6','test object','1970-01-01T00:00:00Z',false);
\ No newline at end of file
+INSERT INTO todos(id,title,description,duedate,done,version)VALUES (1,'test','test object','1970-01-01T00:00:00Z',false,0);
+INSERT INTO todos(id,title,description,duedate,done,version)VALUES (2,'test1','test object','1970-01-01T00:00:00Z',true,0);
+INSERT INTO todos(id,title,description,duedate,done,version)VALUES (3,'test2','test object','1970-01-01T00:00:00Z',false,0);
+INSERT INTO todos(id,title,description,duedate,done,version)VALUES (4,'test3','test object','1970-01-01T00:00:00Z',true,0);
+INSERT INTO todos(id,title,description,duedate,done,version)VALUES (5,'test4','test object','1970-01-01T00:00:00Z',false,0);
+INSERT INTO todos(id,title,description,duedate,done,version)VALUES (6,'test5','test object','1970-01-01T00:00:00Z',true,0);
+INSERT INTO todos(id,title,description,duedate,done,version)VALUES (7,'test6','test object','1970-01-01T00:00:00Z',false,0);
+
+-- ids are handed out in blocks from todos_seq (pooled-lo), start behind the rows above
+ALTER SEQUENCE todos_seq RESTART WITH 8;
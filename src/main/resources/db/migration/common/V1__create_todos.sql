@@ -0,0 +1,16 @@
+-- ids come from todos_seq in blocks of 50 (pooled-lo, see Todo)
+CREATE SEQUENCE todos_seq START WITH 1 INCREMENT BY 50;
+
+-- lengths are the limits of the todo validation
+CREATE TABLE todos (
+    id          INTEGER                  NOT NULL,
+    title       VARCHAR(30)              NOT NULL,
+    description VARCHAR(500)             NOT NULL,
+    duedate     TIMESTAMP WITH TIME ZONE NOT NULL,
+    done        BOOLEAN                  NOT NULL,
+    version     BIGINT                   NOT NULL,
+    CONSTRAINT pk_todos PRIMARY KEY (id)
+);
+
+-- GET /todos?state=all, offset and keyset pages ordered by due date
+CREATE INDEX idx_todos_duedate ON todos (duedate, id);
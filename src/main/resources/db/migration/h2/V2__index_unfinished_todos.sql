@@ -0,0 +1,2 @@
+-- H2 has no partial indexes, done leads instead, see the postgresql version
+CREATE INDEX idx_todos_unfinished_duedate ON todos (done, duedate, id);
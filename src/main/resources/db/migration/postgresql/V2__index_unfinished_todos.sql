@@ -0,0 +1,3 @@
+-- GET /todos?state=unfinished and the due date reminders only read unfinished
+-- todos, done ones are left out of the index
+CREATE INDEX idx_todos_unfinished_duedate ON todos (duedate, id) WHERE NOT done;
@@ -0,0 +1,45 @@
+package com.example.tododemo;
+
+import com.example.tododemo.admission.AdmissionFilter;
+import com.example.tododemo.admission.EndpointClass;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * admission control in front of the controller, read only. Own database,
+ * data.sql inserts fixed ids.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "todo.admission.enabled=true", "spring.datasource.url=jdbc:h2:mem:admissiontest" })
+@AutoConfigureMockMvc
+public class AdmissionModeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdmissionFilter admissionFilter;
+
+    @Test
+    public void admittedTest() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/todos/2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/todos/search?q=test1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        Assert.assertEquals(1, admissionFilter.limit(EndpointClass.READ).getAdmitted());
+        Assert.assertEquals(1, admissionFilter.limit(EndpointClass.LIST).getAdmitted());
+        Assert.assertEquals(0, admissionFilter.limit(EndpointClass.READ).getInFlight());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.tododemo;
+
+import com.example.tododemo.async.BoundedExecutor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * handlers on the persistence executor, read only since the executor threads
+ * do not take part in test transactions. Own database, data.sql inserts fixed
+ * ids.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "todo.async.enabled=true", "todo.async.threads=2",
+        "spring.datasource.url=jdbc:h2:mem:asynctest" })
+@AutoConfigureMockMvc
+public class AsyncModeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BoundedExecutor persistenceExecutor;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void getTodoAsyncTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/2").accept(MediaType.APPLICATION_JSON);
+
+        MvcResult result = this.mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("test1"));
+
+        Assert.assertEquals(2, persistenceExecutor.getThreads());
+
+        // recorded on completion, with the select run on the executor
+        result.getRequest().getAsyncContext().complete();
+        DistributionSummary queries = registry.get("todo.request.queries").tag("uri", "/todos/{id}").summary();
+        Assert.assertEquals(1, queries.count());
+        Assert.assertTrue(queries.totalAmount() >= 1);
+    }
+
+    @Test
+    public void getTodosAsyncTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos?state=all&limit=2&offset=0")
+                .accept(MediaType.APPLICATION_JSON);
+
+        MvcResult result = this.mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+    }
+}
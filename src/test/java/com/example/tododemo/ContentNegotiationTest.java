@@ -0,0 +1,129 @@
+package com.example.tododemo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import com.example.tododemo.json.TodoJson;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * CBOR, Smile and gzip over a real connection, the compression is done by
+ * Tomcat and not seen by MockMvc. Own database, data.sql inserts fixed ids.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:negotiationtest" })
+public class ContentNegotiationTest {
+
+    private static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory());
+
+    private static final ObjectMapper SMILE = new ObjectMapper(new SmileFactory());
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private ResponseEntity<byte[]> get(String url, String accept, String acceptEncoding) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, accept);
+        if (acceptEncoding != null) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+    }
+
+    @Test
+    public void cborListTest() throws IOException {
+        ResponseEntity<byte[]> response = get("/todos?state=all&limit=10&offset=0", TodoJson.CBOR_VALUE, null);
+
+        Assert.assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        Assert.assertTrue(
+                MediaType.valueOf(TodoJson.CBOR_VALUE).isCompatibleWith(response.getHeaders().getContentType()));
+        // Tomcat's compression rewrites Vary in lower case
+        Assert.assertTrue(response.getHeaders().getVary().stream().anyMatch(HttpHeaders.ACCEPT::equalsIgnoreCase));
+        JsonNode list = CBOR.readTree(response.getBody());
+        Assert.assertEquals(7, list.size());
+        Assert.assertEquals(1, list.get(0).get("id").asInt());
+        Assert.assertEquals("test", list.get(0).get("title").asText());
+        // epoch milliseconds instead of an ISO-8601 string
+        Assert.assertTrue(list.get(0).get("dueDate").isNumber());
+        Assert.assertEquals(0, list.get(0).get("dueDate").asLong());
+    }
+
+    @Test
+    public void smileTodoTest() throws IOException {
+        ResponseEntity<byte[]> response = get("/todos/2", TodoJson.SMILE_VALUE, null);
+
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode todo = SMILE.readTree(response.getBody());
+        Assert.assertEquals("test1", todo.get("title").asText());
+        Assert.assertTrue(todo.get("done").asBoolean());
+        Assert.assertEquals(0, todo.get("dueDate").asLong());
+
+        // JSON is still the default
+        response = get("/todos/2", MediaType.ALL_VALUE, null);
+
+        Assert.assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(response.getHeaders().getContentType()));
+    }
+
+    @Test
+    public void dataRestCborTest() throws IOException {
+        ResponseEntity<byte[]> response = get("/", TodoJson.CBOR_VALUE, null);
+
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode links = CBOR.readTree(response.getBody()).get("_links");
+        String profile = links.get("profile").get("href").asText();
+        // profile and the todos
+        Assert.assertEquals(2, links.size());
+
+        // the collection itself is shadowed by GET /todos of the controller
+        response = get(profile, TodoJson.CBOR_VALUE, null);
+
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertTrue(
+                MediaType.valueOf(TodoJson.CBOR_VALUE).isCompatibleWith(response.getHeaders().getContentType()));
+        links = CBOR.readTree(response.getBody()).get("_links");
+        Assert.assertEquals(profile, links.get("self").get("href").asText());
+        Assert.assertTrue(links.size() > 1);
+
+        // JSON is still the default
+        response = get(profile, MediaType.ALL_VALUE, null);
+
+        Assert.assertTrue(MediaTypes.HAL_JSON.isCompatibleWith(response.getHeaders().getContentType()));
+    }
+
+    @Test
+    public void compressionTest() throws IOException {
+        ResponseEntity<byte[]> response = get("/todos?state=all&limit=10&offset=0", MediaType.APPLICATION_JSON_VALUE,
+                "gzip");
+
+        Assert.assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            Assert.assertEquals(7, new ObjectMapper().readTree(in).size());
+        }
+
+        // only for clients asking for it
+        response = get("/todos?state=all&limit=10&offset=0", MediaType.APPLICATION_JSON_VALUE, null);
+
+        Assert.assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(7, new ObjectMapper().readTree(response.getBody()).size());
+    }
+}
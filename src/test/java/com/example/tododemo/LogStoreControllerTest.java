@@ -0,0 +1,74 @@
+package com.example.tododemo;
+
+import java.time.Instant;
+
+import com.example.tododemo.logstore.LogTodoStore;
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.service.TodoSearchService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * the tests of {@link TodoControllerTest} against the log store
+ * 
+ * rollbacks undo nothing there, every test starts from an empty log with the
+ * todos of data.sql
+ */
+@SpringBootTest(properties = "todo.logstore.path=target/logstore-test/todos.log")
+@ActiveProfiles("logstore")
+public class LogStoreControllerTest extends TodoControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogTodoStore store;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoSearchService searchService;
+
+    @Before
+    public void seed() throws Exception {
+        store.clear();
+        for (int i = 0; i < 7; i++) {
+            todoRepository.save(new Todo(0, i == 0 ? "test" : "test" + i, "test object", Instant.EPOCH, i % 2 == 1));
+        }
+        searchService.rebuild();
+    }
+
+    /**
+     * no hibernate statistics, the log store has its own
+     */
+    @Override
+    @Test
+    public void metricsTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/2");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+
+        builder = MockMvcRequestBuilders.get("/actuator/metrics/todo.request.queries").param("tag", "uri:/todos/{id}");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+
+        builder = MockMvcRequestBuilders.get("/actuator/metrics/todo.logstore.size");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+
+        builder = MockMvcRequestBuilders.get("/actuator/metrics/hibernate.query.executions");
+
+        this.mockMvc.perform(builder).andExpect(status().isNotFound());
+    }
+}
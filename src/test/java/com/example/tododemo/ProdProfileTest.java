@@ -0,0 +1,94 @@
+package com.example.tododemo;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import com.example.tododemo.model.Todo;
+
+import com.jayway.jsonpath.JsonPath;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * prod profile against H2 in PostgreSQL mode, the schema comes from the
+ * migrations and hibernate validates it against the entity
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:prodtest;MODE=PostgreSQL",
+        "spring.datasource.driverClassName=org.h2.Driver", "spring.datasource.username=sa",
+        "spring.datasource.password=", "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect" })
+@ActiveProfiles("prod")
+@AutoConfigureMockMvc
+public class ProdProfileTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void schemaTest() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            // H2 keeps unquoted names in upper case
+            try (ResultSet columns = connection.getMetaData().getColumns(null, null, "TODOS", null)) {
+                int found = 0;
+                while (columns.next()) {
+                    String name = columns.getString("COLUMN_NAME");
+                    if (name.equals("DUEDATE")) {
+                        Assert.assertTrue(columns.getString("TYPE_NAME").contains("TIME ZONE"));
+                        found++;
+                    } else if (name.equals("TITLE")) {
+                        Assert.assertEquals(30, columns.getInt("COLUMN_SIZE"));
+                        found++;
+                    }
+                }
+                Assert.assertEquals(2, found);
+            }
+            Set<String> indexes = new HashSet<>();
+            try (ResultSet index = connection.getMetaData().getIndexInfo(null, null, "TODOS", false, false)) {
+                while (index.next()) {
+                    indexes.add(index.getString("INDEX_NAME"));
+                }
+            }
+            Assert.assertTrue(indexes.contains("IDX_TODOS_DUEDATE"));
+            Assert.assertTrue(indexes.contains("IDX_TODOS_UNFINISHED_DUEDATE"));
+        }
+    }
+
+    @Test
+    public void createTodoTest() throws Exception {
+        Todo todo = new Todo(0, "migrated", "test object", Instant.parse("2030-01-01T10:00:00Z"), false);
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON())
+                .contentType(MediaType.APPLICATION_JSON);
+
+        String body = this.mockMvc.perform(builder).andExpect(status().isCreated()).andReturn().getResponse()
+                .getContentAsString();
+        int id = JsonPath.read(body, "$.id");
+
+        builder = MockMvcRequestBuilders.get("/todos/" + id).accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.dueDate").value("2030-01-01T10:00:00Z"));
+    }
+}
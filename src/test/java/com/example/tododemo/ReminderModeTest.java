@@ -0,0 +1,54 @@
+package com.example.tododemo;
+
+import java.time.Instant;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.reminder.ReminderScheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * reminders of todos created through the API, not transactional since the
+ * scheduler reads the todo again before it reports it. Own database, data.sql
+ * inserts fixed ids.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "todo.reminder.enabled=true", "todo.reminder.tick-ms=100",
+        "spring.datasource.url=jdbc:h2:mem:remindertest" })
+@AutoConfigureMockMvc
+public class ReminderModeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Test
+    public void overdueTest() throws Exception {
+        long fired = reminderScheduler.getFired();
+        Todo todo = new Todo(0, "soon", "test object", Instant.now().plusSeconds(2), false);
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON())
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isCreated());
+
+        for (int i = 0; i < 100 && reminderScheduler.getFired() == fired; i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(fired + 1, reminderScheduler.getFired());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.tododemo;
+
+import java.time.Instant;
+
+import javax.servlet.http.Cookie;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.replica.ReplicaRoutingDataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * one primary and two replicas, all in-memory H2. The first replica is never
+ * reachable, the second one has its own todo 1, so reads show where they went.
+ * Not transactional, a test transaction would pin everything to the primary.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "todo.replica.enabled=true", "todo.cache.type=none",
+        "spring.datasource.url=jdbc:h2:mem:rwprimary", "todo.replica.connection-timeout-ms=250",
+        "todo.replica.urls=jdbc:h2:tcp://localhost:1/mem:down,"
+                + "jdbc:h2:mem:rwreplica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:replica.sql'" })
+@AutoConfigureMockMvc
+public class ReplicaRoutingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReplicaRoutingDataSource routing;
+
+    @Test
+    public void readFromReplicaTest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/1")
+                    .accept(MediaType.APPLICATION_JSON);
+
+            this.mockMvc.perform(builder).andExpect(status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("from replica"));
+        }
+        // the unreachable replica is skipped instead of falling back to the primary
+        Assert.assertEquals(1, routing.getReplicasDown());
+        Assert.assertEquals(0, routing.getFallbacks());
+    }
+
+    @Test
+    public void readYourWritesTest() throws Exception {
+        Todo todo = new Todo(0, "on the primary", "test object", Instant.EPOCH, false);
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON())
+                .contentType(MediaType.APPLICATION_JSON);
+
+        Cookie cookie = this.mockMvc.perform(builder).andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.cookie().exists("TODO_PRIMARY_UNTIL")).andReturn().getResponse()
+                .getCookie("TODO_PRIMARY_UNTIL");
+
+        builder = MockMvcRequestBuilders.get("/todos/1").cookie(cookie).accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("test"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.tododemo;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.shard.ShardContext;
+import com.example.tododemo.shard.ShardRoutingDataSource;
+import com.jayway.jsonpath.JsonPath;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * two in-memory H2 shards. Not transactional, the shards are written from the
+ * threads of the sharding layer.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "todo.shard.enabled=true",
+        "todo.shard.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1" })
+@AutoConfigureMockMvc
+public class ShardingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void shardedTodosTest() throws Exception {
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 1; i <= 4; i++) {
+            Todo todo = new Todo(0, "sharded " + i, "test object", Instant.parse("2030-01-0" + i + "T00:00:00Z"),
+                    false);
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON())
+                    .contentType(MediaType.APPLICATION_JSON);
+            String body = this.mockMvc.perform(builder).andExpect(status().isCreated()).andReturn().getResponse()
+                    .getContentAsString();
+            int id = JsonPath.read(body, "$.id");
+            Assert.assertTrue(ids.add(id));
+
+            // point lookups find it on its shard
+            builder = MockMvcRequestBuilders.get("/todos/" + id).accept(MediaType.APPLICATION_JSON);
+            this.mockMvc.perform(builder).andExpect(status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("sharded " + i));
+        }
+
+        // new todos went to both shards, each one to the shard of its id
+        Map<Integer, DataSource> shards = dataSource.unwrap(ShardRoutingDataSource.class).getShards();
+        int stored = 0;
+        for (Map.Entry<Integer, DataSource> shard : shards.entrySet()) {
+            JdbcTemplate jdbc = new JdbcTemplate(shard.getValue());
+            int count = 0;
+            for (Integer id : ids) {
+                if (jdbc.queryForObject("select count(*) from todos where id = ?", Integer.class, id) == 1) {
+                    Assert.assertEquals((int) shard.getKey(), ShardContext.shardOf(id));
+                    count++;
+                }
+            }
+            Assert.assertTrue(count > 0);
+            stored += count;
+        }
+        Assert.assertEquals(4, stored);
+
+        // the second page of 5 merges the rows of data.sql and both shards by due date
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos?state=all&limit=5&offset=1")
+                .accept(MediaType.APPLICATION_JSON);
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.header().string("X-Total-Count", "11"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(6))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].title").value("sharded 1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[4].title").value("sharded 3"));
+
+        // batches are split by shard, the results keep the request order
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 4; i++) {
+            body.append(i > 0 ? "," : "")
+                    .append(new Todo(0, "batch " + i, "test object", Instant.EPOCH, false).toJSON());
+        }
+        builder = MockMvcRequestBuilders.post("/todos/batch")
+                .content(body.append(']').toString()).contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isMultiStatus())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].index").value(0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value(201))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[3].index").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[3].status").value(201));
+
+        // the export merges the cursors of both shards by id
+        String export = this.mockMvc.perform(MockMvcRequestBuilders.get("/todos/export")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = export.trim().split("\n");
+        Assert.assertEquals(15, lines.length);
+        int last = 0;
+        for (String line : lines) {
+            int id = JsonPath.read(line, "$.id");
+            Assert.assertTrue(id > last);
+            last = id;
+        }
+    }
+}
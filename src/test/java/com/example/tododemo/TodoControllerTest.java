@@ -1,11 +1,23 @@
 package com.example.tododemo;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.zip.GZIPInputStream;
 
+import javax.persistence.EntityManager;
+
+import com.example.tododemo.cache.TodoCache;
+import com.example.tododemo.changes.ChangeFeed;
 import com.example.tododemo.controller.TodoController;
 import com.example.tododemo.repository.TodoRepository;
 import com.example.tododemo.model.Todo;
 
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -15,6 +27,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -33,12 +46,34 @@ public class TodoControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private TodoCache todoCache;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    /** none with the log store, which writes right away */
+    @Autowired(required = false)
+    private EntityManager entityManager;
+
     @Mock
     TodoRepository todoRepo;
 
     @InjectMocks
     private TodoController todoController;
 
+    @After
+    public void clearCache() {
+        // the transaction of each test is rolled back, the cache is not
+        todoCache.clear();
+    }
+
+    private void flush() {
+        if (entityManager != null) {
+            entityManager.flush();
+        }
+    }
+
     private void save(Todo todo) {
         when(todoRepo.save(todo)).thenReturn(todo);
     }
@@ -85,8 +120,9 @@ public class TodoControllerTest {
                 .accept(MediaType.APPLICATION_JSON);
 
         this.mockMvc.perform(builder).andExpect(status().isBadRequest())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray()).andExpect(MockMvcResultMatchers
-                        .jsonPath("$[0]").value("{'code': 'TITLE_NULL','message':'title must not be null'}"));
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].code").value("TITLE_NULL"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].message").value("title must not be null"));
 
     }
 
@@ -111,19 +147,24 @@ public class TodoControllerTest {
     @Test
     public void postTodoTest() throws Exception {
 
-        // all good
-        Todo todo1 = new Todo(1, "test", "test object", Instant.EPOCH, false);
+        // all good, the id of an existing todo is ignored
+        Todo todo1 = new Todo(1, "posted", "test object", Instant.EPOCH, false);
 
         MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo1.toJSON())
                 .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
 
         this.mockMvc.perform(builder).andExpect(status().isCreated())
-                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(todo1.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(Matchers.greaterThan(7)))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.title").value(todo1.getTitle()))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.description").value(todo1.getDescription()))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.dueDate").value(todo1.getDueDate().toString()))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.done").value(todo1.isDone()));
 
+        builder = MockMvcRequestBuilders.get("/todos/1").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("test"));
+
         // title is null
         String todo2 = "{\"id\": 1,\"title\": \"\",\"description\": \"test1\",\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": false}";
 
@@ -131,8 +172,9 @@ public class TodoControllerTest {
                 .accept(MediaType.APPLICATION_JSON);
 
         this.mockMvc.perform(builder).andExpect(status().isPreconditionFailed())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray()).andExpect(MockMvcResultMatchers
-                        .jsonPath("$[0]").value("{'code': 'TITLE_NULL','message':'title must not be null'}"));
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].code").value("TITLE_NULL"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].message").value("title must not be null"));
 
         // description is above 500
         String todo3 = "{\"id\": 1,\"title\": \"title1\",\"description\": \"Lorem ipsum dolor sit amet, consetetur sadipscing elitr, sed diam nonumy eirmod tempor invidunt ut labore et dolore magna aliquyam erat, sed diam voluptua. At vero eos et accusam et justo duo dolores et ea rebum. Stet clita kasd gubergren, no sea takimata sanctus est Lorem ipsum dolor sit amet. Lorem ipsum dolor sit amet, consetetur sadipscing elitr, sed diam nonumy eirmod tempor invidunt ut labore et dolore magna aliquyam erat, sed diam voluptua. At vero eos et accusam et justo duo dolores et ea rebum. Stet clita kasd gubergren, no sea takimata sanctus est Lorem ipsum dolor sit amet. Lorem ipsum dolor sit amet, consetetur sadipscing elitr, sed diam nonumy eirmod tempor invidunt ut labore et dolore magna aliquyam erat, sed diam voluptua. At vero eos et accusam et justo duo dolores et ea rebum. Stet clita kasd gubergren, no sea takimata sanctus est Lorem ipsum dolor sit amet.   Duis autem vel eum iriure dolor in hendrerit in vulputate velit esse molestie consequat, vel illum dolore eu feugiat nulla facilisis at vero eros et accumsan et iusto odio dignissim qui blandit praesent luptatum zzril delenit augue duis dolore te feugait nulla facilisi. Lorem ipsum dolor sit amet, consectetuer adipiscing elit, sed diam nonummy nibh euismod tincidunt ut laoreet dolore magna aliquam erat volutpat.           Ut wisi enim ad minim veniam, quis nostrud exerci tation ullamcorper suscipit lobortis nisl ut aliquip ex ea commodo consequat. Duis autem vel eum iriure dolor in hendrerit in vulputate velit esse molestie consequat, vel illum dolore eu feugiat nulla facilisis at vero eros et accumsan et iusto odio dignissim qui blandit praesent luptatum zzril delenit augue duis dolore te feugait nulla facilisi.           Nam liber tempor cum soluta nobis eleifend option congue nihil imperdiet doming id quod mazim placerat facer possim assum. Lorem ipsum dolor sit amet, consectetuer adipiscing elit, sed diam nonummy nibh euismod tincidunt ut laoreet dolore magna aliquam erat volutpat. Ut wisi enim ad minim veniam, quis nostrud exerci tation ullamcorper suscipit lobortis nisl ut aliquip ex ea commodo consequat.           Duis autem vel eum iriure dolor in hendrerit in vulputate velit esse molestie consequat, vel illum dolore eu feugiat nulla facilisis.           At vero eos et accusam et justo duo dolores et ea rebum. Stet clita kasd gubergren, no sea takimata sanctus est Lorem ipsum dolor sit amet. Lorem ipsum dolor sit amet, consetetur sadipscing elitr, sed diam nonumy eirmod tempor invidunt ut labore et dolore magna aliquyam erat, sed diam voluptua. At vero eos et accusam et justo duo dolores et ea rebum. Stet clita kasd gubergren, no sea takimata sanctus est Lorem ipsum dolor sit amet. Lorem ipsum dolor sit amet, consetetur sadipscing elitr, At accusam aliquyam diam diam dolore dolores duo eirmod eos erat, et nonumy sed tempor et et invidunt justo labore Stet clita ea et gubergren, kasd magna no rebum. sanctus sea sed takimata ut vero voluptua. est Lorem ipsum dolor sit amet. Lorem ipsum dolor sit amet, consetetur sadipscing\",\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": false}";
@@ -142,8 +184,9 @@ public class TodoControllerTest {
 
         this.mockMvc.perform(builder).andExpect(status().isPreconditionFailed())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
-                .andExpect(MockMvcResultMatchers.jsonPath("$[0]")
-                        .value("{'code': 'DESCRIPTION_SIZE','message':'description size must be between 0 and 500'}"));
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].code").value("DESCRIPTION_SIZE"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].message")
+                        .value("description size must be between 0 and 500"));
 
     }
 
@@ -163,5 +206,401 @@ public class TodoControllerTest {
         builder = MockMvcRequestBuilders.get("/todos?state=unfinished&limit=10&offset=0")
                 .accept(MediaType.APPLICATION_JSON);
 
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.header().string("X-Total-Count", "4"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].done").value(Matchers.everyItem(Matchers.is(false))));
+
+        // second page of two
+        builder = MockMvcRequestBuilders.get("/todos?state=unfinished&limit=2&offset=1")
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(5))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(7));
+
+    }
+
+    @Test
+    public void getAllTodosFieldsTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
+                .get("/todos?state=all&limit=10&offset=0&fields=id,title,dueDate,done")
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("test"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].dueDate").value("1970-01-01T00:00:00Z"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].done").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].description").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].version").doesNotExist());
+
+        builder = MockMvcRequestBuilders.get("/todos?state=unfinished&limit=2&offset=0&fields=description,id")
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].description").value("test object"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].title").doesNotExist());
+
+        builder = MockMvcRequestBuilders.get("/todos?state=unfinished&limit=3&after=&fields=id")
+                .accept(MediaType.APPLICATION_JSON);
+
+        MvcResult result = this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].id").value(5))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].dueDate").doesNotExist())
+                .andExpect(MockMvcResultMatchers.header().exists("X-Next-Cursor")).andReturn();
+
+        String cursor = result.getResponse().getHeader("X-Next-Cursor");
+        builder = MockMvcRequestBuilders.get("/todos?state=unfinished&limit=3&fields=id&after=" + cursor)
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(7));
+
+        builder = MockMvcRequestBuilders.get("/todos?state=all&fields=id,colour").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].code").value("FIELDS_UNKNOWN"));
+    }
+
+    @Test
+    public void getAllTodosKeysetTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos?state=unfinished&limit=3&after=")
+                .accept(MediaType.APPLICATION_JSON);
+
+        MvcResult result = this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].id").value(5))
+                .andExpect(MockMvcResultMatchers.header().exists("X-Next-Cursor")).andReturn();
+
+        String cursor = result.getResponse().getHeader("X-Next-Cursor");
+        builder = MockMvcRequestBuilders.get("/todos?state=unfinished&limit=3&after=" + cursor)
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(7))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("X-Next-Cursor"));
+
+        builder = MockMvcRequestBuilders.get("/todos?state=all&limit=3&after=garbage").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void exportTodosTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/export");
+
+        MvcResult result = this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        Assert.assertEquals(7, lines.length);
+        Assert.assertTrue(lines[0].startsWith("{\"id\":1,"));
+
+        builder = MockMvcRequestBuilders.get("/todos/export?gzip=true");
+
+        result = this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Content-Encoding", "gzip")).andReturn();
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())),
+                StandardCharsets.UTF_8))) {
+            Assert.assertEquals(7, in.lines().count());
+        }
+    }
+
+    @Test
+    public void batchTodosTest() throws Exception {
+        String todos = "[{\"title\": \"a\",\"description\": \"\",\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": false},"
+                + "{\"title\": \"\",\"description\": \"\",\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": false},"
+                + "{\"title\": \"c\",\"description\": \"\",\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": true}]";
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos/batch").content(todos)
+                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isMultiStatus())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value(201))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").isNumber())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].index").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value(412))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].errors[0].code").value("TITLE_NULL"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].errors[0].message").value("title must not be null"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].index").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].status").value(201));
+
+        long lastEventId = changeFeed.lastEventId();
+        builder = MockMvcRequestBuilders.put("/todos/batch")
+                .content("[{\"id\": 2,\"title\": \"b\",\"description\": \"\",\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": false},"
+                        + "{\"id\": 100,\"title\": \"b\",\"description\": \"\",\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": false}]")
+                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isMultiStatus())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value(204))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value(404));
+
+        // the change carries the todo as written, not as sent
+        builder = MockMvcRequestBuilders.get("/todos/changes").header("Last-Event-ID", String.valueOf(lastEventId))
+                .accept(MediaType.TEXT_EVENT_STREAM);
+        String events = this.mockMvc.perform(builder).andReturn().getResponse().getContentAsString();
+        Assert.assertThat(events, Matchers.containsString("\"title\":\"b\""));
+        Assert.assertThat(events, Matchers.containsString("\"version\":1"));
+
+        builder = MockMvcRequestBuilders.delete("/todos/batch").content("[1, 100]")
+                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isMultiStatus())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value(404));
+    }
+
+    @Test
+    public void patchTodoTest() throws Exception {
+        // done only
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.patch("/todos/1").content("{\"done\": true}")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+
+        builder = MockMvcRequestBuilders.get("/todos/1").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.done").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("test"));
+
+        // done already, nothing is written
+        builder = MockMvcRequestBuilders.patch("/todos/1").content("{\"done\": true}")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+
+        builder = MockMvcRequestBuilders.get("/todos/1").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version").value(1));
+
+        // outdated version
+        builder = MockMvcRequestBuilders.patch("/todos/1").content("{\"title\": \"outdated\", \"version\": 0}")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isConflict());
+
+        // several fields with version
+        builder = MockMvcRequestBuilders.patch("/todos/1").content("{\"title\": \"patched\", \"version\": 1}")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+
+        // invalid title
+        builder = MockMvcRequestBuilders.patch("/todos/1").content("{\"title\": \"\"}")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].code").value("TITLE_NULL"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].message").value("title must not be null"));
+
+        builder = MockMvcRequestBuilders.patch("/todos/100").content("{\"done\": true}")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void putTodoConflictTest() throws Exception {
+        Todo outdated = new Todo(1, "new title", "test object", Instant.EPOCH, false);
+        outdated.setVersion(5);
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.put("/todos").content(outdated.toJSON())
+                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isConflict());
+    }
+
+    @Test
+    public void putTodoIfMatchTest() throws Exception {
+        Todo changed = new Todo(1, "changed", "test object", Instant.EPOCH, false);
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.put("/todos").content(changed.toJSON())
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+        flush();
+
+        // no version in the body, the tag is the precondition
+        String body = "{\"id\": 1,\"title\": \"changed again\",\"description\": \"test object\","
+                + "\"dueDate\": \"1970-01-01T00:00:00Z\",\"done\": false}";
+
+        builder = MockMvcRequestBuilders.put("/todos").header("If-Match", "\"1-0\"").content(body)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isPreconditionFailed());
+
+        builder = MockMvcRequestBuilders.put("/todos").header("If-Match", "\"1-1\"").content(body)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+        flush();
+
+        builder = MockMvcRequestBuilders.get("/todos/1").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("changed again"))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-2\""));
+    }
+
+    @Test
+    public void getTodoCachedTest() throws Exception {
+        long hits = todoCache.stats().getHits();
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/3").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("test2"));
+
+        Assert.assertEquals(hits + 1, todoCache.stats().getHits());
+
+        // writes invalidate the cached todo
+        builder = MockMvcRequestBuilders.patch("/todos/3").content("{\"title\": \"changed\"}")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+
+        builder = MockMvcRequestBuilders.get("/todos/3").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("changed"));
+    }
+
+    @Test
+    public void conditionalRequestTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/1").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-0\""));
+
+        builder = MockMvcRequestBuilders.get("/todos/1").header("If-None-Match", "\"1-0\"")
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        // list
+        builder = MockMvcRequestBuilders.get("/todos?state=all&limit=10&offset=0").accept(MediaType.APPLICATION_JSON);
+
+        String etag = this.mockMvc.perform(builder).andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", Matchers.startsWith("W/")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        builder = MockMvcRequestBuilders.get("/todos?state=all&limit=10&offset=0").header("If-None-Match", etag)
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNotModified());
+
+        // lost update
+        builder = MockMvcRequestBuilders.delete("/todos/1").header("If-Match", "\"1-7\"");
+
+        this.mockMvc.perform(builder).andExpect(status().isPreconditionFailed());
+
+        builder = MockMvcRequestBuilders.delete("/todos/1").header("If-Match", "\"1-0\"");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+
+        // the list changed
+        builder = MockMvcRequestBuilders.get("/todos?state=all&limit=10&offset=0").header("If-None-Match", etag)
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isPartialContent());
+    }
+
+    @Test
+    public void metricsTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/2").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+
+        builder = MockMvcRequestBuilders.get("/actuator/metrics/http.server.requests").param("tag", "uri:/todos/{id}")
+                .param("tag", "status:200");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.measurements[0].statistic").value("COUNT"));
+
+        builder = MockMvcRequestBuilders.get("/actuator/metrics/todo.request.queries").param("tag", "uri:/todos/{id}");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+
+        builder = MockMvcRequestBuilders.get("/actuator/metrics/todo.cache.misses");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+
+        builder = MockMvcRequestBuilders.get("/actuator/metrics/hibernate.query.executions");
+
+        this.mockMvc.perform(builder).andExpect(status().isOk());
+    }
+
+    @Test
+    public void searchTodosTest() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/search?q=test1")
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("test1"));
+
+        // new todos are found right away, by prefix too
+        Todo todo = new Todo(0, "water the plants", "balcony and kitchen", Instant.EPOCH, false);
+        builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON()).contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isCreated());
+
+        builder = MockMvcRequestBuilders.get("/todos/search").param("q", "plan balc").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("X-Total-Count", "1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("water the plants"));
+
+        builder = MockMvcRequestBuilders.get("/todos/search").param("q", " ").accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].code").value("QUERY_EMPTY"));
+    }
+
+    @Test
+    public void changeFeedTest() throws Exception {
+        long lastEventId = changeFeed.lastEventId();
+
+        Todo todo = new Todo(0, "feed the cat", "test object", Instant.EPOCH, false);
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON())
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isCreated());
+
+        // a client resuming after lastEventId gets the creation replayed
+        builder = MockMvcRequestBuilders.get("/todos/changes").header("Last-Event-ID", String.valueOf(lastEventId))
+                .accept(MediaType.TEXT_EVENT_STREAM);
+
+        MvcResult result = this.mockMvc.perform(builder).andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        String events = result.getResponse().getContentAsString();
+        Assert.assertThat(events, Matchers.containsString("id:" + (lastEventId + 1)));
+        Assert.assertThat(events, Matchers.containsString("event:created"));
+        Assert.assertThat(events, Matchers.containsString("\"title\":\"feed the cat\""));
+
+        // an unknown position can not be resumed
+        builder = MockMvcRequestBuilders.get("/todos/changes").header("Last-Event-ID", "nonsense")
+                .accept(MediaType.TEXT_EVENT_STREAM);
+
+        result = this.mockMvc.perform(builder).andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+        Assert.assertThat(result.getResponse().getContentAsString(), Matchers.containsString("event:reset"));
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,28 @@
 package com.example.tododemo;
 
+import com.example.tododemo.admission.AdmissionFilter;
+import com.example.tododemo.reminder.ReminderScheduler;
+
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.junit4.SpringRunner;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+// own database, data.sql inserts fixed ids
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:contextloads")
 public class TodoDemoApplicationTests {
 
+	@Autowired
+	private ApplicationContext context;
+
 	@Test
 	public void contextLoads() {
+		// optional mechanisms are off unless configured
+		Assert.assertEquals(0, context.getBeanNamesForType(AdmissionFilter.class).length);
+		Assert.assertEquals(0, context.getBeanNamesForType(ReminderScheduler.class).length);
 	}
 }
@@ -0,0 +1,84 @@
+package com.example.tododemo;
+
+import java.time.Instant;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+import com.jayway.jsonpath.JsonPath;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * counters of GET /todos/stats. Not transactional, the counters follow
+ * committed writes and a rollback would leave them off. Own database, only
+ * todos created here are changed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:statstest" })
+@AutoConfigureMockMvc
+public class TodoStatsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TodoRepository todoRepo;
+
+    private void expectStats(int total, int done, int overdue) throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get("/todos/stats")
+                .accept(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(total))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.done").value(done))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.unfinished").value(total - done))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.overdue").value(overdue));
+    }
+
+    private int create(Todo todo) throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON())
+                .contentType(MediaType.APPLICATION_JSON);
+        String body = this.mockMvc.perform(builder).andExpect(status().isCreated()).andReturn().getResponse()
+                .getContentAsString();
+        return JsonPath.read(body, "$.id");
+    }
+
+    @Test
+    public void statsTest() throws Exception {
+        // data.sql, counted at startup
+        expectStats(7, 3, 4);
+
+        int later = create(new Todo(0, "later", "test object", Instant.parse("2100-01-01T00:00:00Z"), false));
+        int late = create(new Todo(0, "late", "test object", Instant.EPOCH, false));
+
+        expectStats(9, 3, 5);
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.patch("/todos/" + late)
+                .content("{\"done\": true}").contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+        // the same patch again changes nothing and is not counted again
+        this.mockMvc.perform(builder).andExpect(status().isNoContent());
+
+        expectStats(9, 4, 4);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.delete("/todos/" + later)).andExpect(status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.delete("/todos/" + late)).andExpect(status().isOk());
+
+        // counted by the writes, without a query, and the same as the table
+        expectStats(7, 3, 4);
+        expectStats((int) todoRepo.count(), 3, (int) todoRepo.countByDoneFalseAndDueDateBefore(Instant.now()));
+    }
+}
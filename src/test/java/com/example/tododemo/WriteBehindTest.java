@@ -0,0 +1,82 @@
+package com.example.tododemo;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.model.Todo;
+import com.example.tododemo.repository.TodoRepository;
+import com.example.tododemo.writebehind.GroupCommitWriter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * creates through the group commit writer, not transactional since the writer
+ * commits on its own thread. Own database, data.sql inserts fixed ids.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "todo.write-behind.enabled=true", "todo.write-behind.max-delay-ms=200",
+        "spring.datasource.url=jdbc:h2:mem:writebehindtest" })
+@AutoConfigureMockMvc
+public class WriteBehindTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GroupCommitWriter writer;
+
+    @Autowired
+    private TodoRepository todoRepo;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void createTodoTest() throws Exception {
+        Todo todo = new Todo(0, "written behind", "test object", Instant.EPOCH, false);
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.post("/todos").content(todo.toJSON())
+                .contentType(MediaType.APPLICATION_JSON);
+
+        this.mockMvc.perform(builder).andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(Matchers.greaterThan(7)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("written behind"));
+    }
+
+    @Test
+    public void groupCommitTest() throws Exception {
+        List<CompletableFuture<Todo>> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(writer.submit(new Todo(0, "group " + i, "test object", Instant.EPOCH, false)));
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (CompletableFuture<Todo> future : created) {
+            Todo saved = future.get(5, TimeUnit.SECONDS);
+            ids.add(saved.getId());
+            Assert.assertTrue(todoRepo.existsById(saved.getId()));
+        }
+        Assert.assertEquals(10, ids.size());
+        // queued within the delay, so they shared commits
+        Assert.assertTrue(registry.get("todo.write-behind.group.size").summary().max() > 1);
+    }
+}
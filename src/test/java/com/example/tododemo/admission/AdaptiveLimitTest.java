@@ -0,0 +1,61 @@
+package com.example.tododemo.admission;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveLimitTest {
+
+    private static void request(AdaptiveLimit limit, long latencyMs, int inFlightAtStart) {
+        Assert.assertTrue(limit.tryAcquire());
+        limit.release(TimeUnit.MILLISECONDS.toNanos(latencyMs), inFlightAtStart);
+    }
+
+    @Test
+    public void rejectTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, 1.5);
+
+        Assert.assertTrue(limit.tryAcquire());
+        Assert.assertTrue(limit.tryAcquire());
+        Assert.assertFalse(limit.tryAcquire());
+        Assert.assertEquals(2, limit.getInFlight());
+        Assert.assertEquals(1, limit.getRejected());
+
+        limit.release(TimeUnit.MILLISECONDS.toNanos(1), 1);
+
+        Assert.assertTrue(limit.tryAcquire());
+        Assert.assertEquals(3, limit.getAdmitted());
+    }
+
+    @Test
+    public void adaptTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 50, 1.5);
+
+        // fast and busy: the limit grows
+        for (int i = 0; i < 100; i++) {
+            request(limit, 5, limit.getLimit());
+        }
+        int grown = limit.getLimit();
+        Assert.assertTrue("limit " + grown, grown > 10);
+
+        // the database slows down: the limit shrinks
+        for (int i = 0; i < 30; i++) {
+            request(limit, 50, limit.getLimit());
+        }
+        int shrunk = limit.getLimit();
+        Assert.assertTrue("limit " + shrunk, shrunk < grown / 2);
+        Assert.assertTrue(shrunk >= 2);
+    }
+
+    @Test
+    public void idleTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 50, 1.5);
+
+        // nobody waits for the limit, so it is not raised
+        for (int i = 0; i < 100; i++) {
+            request(limit, 5, 1);
+        }
+        Assert.assertEquals(10, limit.getLimit());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.tododemo.admission;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class AdmissionFilterTest {
+
+    /** one request per class at a time */
+    private final AdmissionFilter filter = new AdmissionFilter(type -> new AdaptiveLimit(1, 1, 1, 1.5), 0.75, 503);
+
+    private static MockHttpServletRequest request(String method, String path) {
+        return new MockHttpServletRequest(method, path);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, FilterChain chain)
+            throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    public void classifyTest() {
+        Assert.assertEquals(EndpointClass.READ, EndpointClass.of(request("GET", "/todos/1")));
+        Assert.assertEquals(EndpointClass.READ, EndpointClass.of(request("GET", "/todos/stats")));
+        Assert.assertEquals(EndpointClass.WRITE, EndpointClass.of(request("PATCH", "/todos/1")));
+        Assert.assertEquals(EndpointClass.WRITE, EndpointClass.of(request("POST", "/todos")));
+        Assert.assertEquals(EndpointClass.BULK, EndpointClass.of(request("GET", "/todos")));
+        Assert.assertEquals(EndpointClass.BULK, EndpointClass.of(request("PUT", "/todos/batch")));
+        Assert.assertEquals(EndpointClass.BULK, EndpointClass.of(request("GET", "/todos/export")));
+        Assert.assertEquals(EndpointClass.LIST, EndpointClass.of(request("GET", "/todos/search")));
+        Assert.assertNull(EndpointClass.of(request("GET", "/todos/changes")));
+        Assert.assertNull(EndpointClass.of(request("GET", "/actuator/health")));
+
+        MockHttpServletRequest list = request("GET", "/todos");
+        list.setParameter("state", "all");
+        Assert.assertEquals(EndpointClass.LIST, EndpointClass.of(list));
+    }
+
+    @Test
+    public void rejectTest() throws Exception {
+        MockHttpServletResponse[] inner = new MockHttpServletResponse[1];
+
+        MockHttpServletResponse outer = perform(request("GET", "/todos/1"), (req, res) -> {
+            // the slot of point reads is taken
+            inner[0] = perform(request("GET", "/todos/2"), (r, s) -> Assert.fail("must not run"));
+        });
+
+        Assert.assertEquals(200, outer.getStatus());
+        Assert.assertEquals(503, inner[0].getStatus());
+        Assert.assertEquals("1", inner[0].getHeader(HttpHeaders.RETRY_AFTER));
+        Assert.assertTrue(inner[0].getContentAsString().contains("OVERLOADED"));
+        Assert.assertEquals(1, filter.limit(EndpointClass.READ).getRejected());
+
+        // the slot is given back
+        Assert.assertEquals(200, perform(request("GET", "/todos/2"), (r, s) -> {
+        }).getStatus());
+        Assert.assertEquals(0, filter.limit(EndpointClass.READ).getInFlight());
+    }
+
+    @Test
+    public void priorityTest() throws Exception {
+        MockHttpServletResponse[] inner = new MockHttpServletResponse[2];
+
+        perform(request("PUT", "/todos"), (req, res) -> {
+            // writes use their whole limit, lists and exports have to wait
+            inner[0] = perform(request("GET", "/todos/search"), (r, s) -> Assert.fail("must not run"));
+            inner[1] = perform(request("GET", "/todos/3"), (r, s) -> {
+            });
+        });
+
+        Assert.assertEquals(503, inner[0].getStatus());
+        Assert.assertTrue(inner[0].getContentAsString().contains("SHED"));
+        Assert.assertEquals(1, filter.getShed(EndpointClass.LIST));
+        // other priority classes still run
+        Assert.assertEquals(200, inner[1].getStatus());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.tododemo.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedExecutorTest {
+
+    @Test
+    public void rejectWhenSaturatedTest() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor(1, 1, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Runnable blocking = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+
+        Assert.assertTrue(executor.tryExecute(blocking));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.tryExecute(done::countDown));
+        // one running, one waiting
+        Assert.assertFalse(executor.tryExecute(done::countDown));
+        Assert.assertEquals(1, executor.getActive());
+        Assert.assertEquals(1, executor.getQueued());
+        Assert.assertEquals(1, executor.getRejected());
+
+        release.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.close();
+    }
+
+    @Test
+    public void virtualThreadsFallbackTest() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor(2, 0, true);
+        CountDownLatch done = new CountDownLatch(1);
+
+        Assert.assertTrue(executor.tryExecute(done::countDown));
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.close();
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.tododemo.async;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import com.example.tododemo.metrics.QueryCountInspector;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+
+public class OffloadingHandlerAdapterTest {
+
+    /** one running task, one waiting */
+    private final BoundedExecutor executor = new BoundedExecutor(1, 1, false);
+
+    private final OffloadingHandlerAdapter adapter = new OffloadingHandlerAdapter(executor, 60000);
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("PATCH", "/todos/1");
+
+    /** holds the tasks that keep the executor busy */
+    private final CountDownLatch busy = new CountDownLatch(1);
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @RestController
+    public class WriteController {
+
+        public ResponseEntity<String> write() throws InterruptedException {
+            entered.countDown();
+            new QueryCountInspector().inspect("update todo set done = true where id = 1");
+            release.await(5, TimeUnit.SECONDS);
+            writes.incrementAndGet();
+            return ResponseEntity.ok("written");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.refresh();
+        adapter.setApplicationContext(context);
+        adapter.getMessageConverters().add(new MappingJackson2HttpMessageConverter());
+        adapter.afterPropertiesSet();
+        request.setAsyncSupported(true);
+    }
+
+    @After
+    public void shutdown() {
+        busy.countDown();
+        release.countDown();
+        executor.close();
+    }
+
+    private MockHttpServletResponse handle() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        adapter.handle(request, response, new HandlerMethod(new WriteController(), "write"));
+        return response;
+    }
+
+    private void occupy() {
+        Assert.assertTrue(executor.tryExecute(() -> {
+            try {
+                busy.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    /**
+     * lets the container time the request out, as Tomcat would
+     */
+    private ResponseEntity<?> timeout() throws IOException {
+        MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onTimeout(new AsyncEvent(context));
+        }
+        return (ResponseEntity<?>) WebAsyncUtils.getAsyncManager(request).getConcurrentResult();
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        for (int i = 0; i < 500 && (executor.getActive() > 0 || executor.getQueued() > 0); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void saturatedTest() throws Exception {
+        occupy();
+        occupy();
+
+        MockHttpServletResponse response = handle();
+
+        Assert.assertFalse(request.isAsyncStarted());
+        Assert.assertEquals(503, response.getStatus());
+        Assert.assertEquals(OffloadingHandlerAdapter.RETRY_AFTER_SECONDS, response.getHeader(HttpHeaders.RETRY_AFTER));
+        Assert.assertTrue(response.getContentAsString().contains("SATURATED"));
+        Assert.assertEquals(1, executor.getRejected());
+    }
+
+    @Test
+    public void resultTest() throws Exception {
+        release.countDown();
+
+        handle();
+        WebAsyncManager async = WebAsyncUtils.getAsyncManager(request);
+        for (int i = 0; i < 500 && !async.hasConcurrentResult(); i++) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(ResponseEntity.ok("written"), async.getConcurrentResult());
+        // the statement of the executor thread is counted for the request
+        Assert.assertEquals(1, QueryCountInspector.offloaded(request));
+    }
+
+    @Test
+    public void timeoutQueuedTest() throws Exception {
+        occupy();
+
+        handle();
+        Assert.assertTrue(request.isAsyncStarted());
+        ResponseEntity<?> timedOut = timeout();
+
+        // it did not run and never will, so the client may retry
+        Assert.assertEquals(503, timedOut.getStatusCodeValue());
+        Assert.assertEquals(OffloadingHandlerAdapter.RETRY_AFTER_SECONDS,
+                timedOut.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        busy.countDown();
+        awaitIdle();
+        Assert.assertEquals(1, entered.getCount());
+        Assert.assertEquals(0, writes.get());
+    }
+
+    @Test
+    public void timeoutRunningTest() throws Exception {
+        handle();
+        Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+        ResponseEntity<?> timedOut = timeout();
+
+        // the write may still commit, a retry could repeat it
+        Assert.assertEquals(504, timedOut.getStatusCodeValue());
+        Assert.assertNull(timedOut.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        release.countDown();
+        awaitIdle();
+        Assert.assertEquals(1, writes.get());
+        Assert.assertSame(timedOut, WebAsyncUtils.getAsyncManager(request).getConcurrentResult());
+        Assert.assertEquals(0, QueryCountInspector.offloaded(request));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.tododemo.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.tododemo.model.Todo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LruTodoCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Optional<Todo> load(int id) {
+        loads.incrementAndGet();
+        return id < 0 ? Optional.empty() : Optional.of(new Todo(id, "todo " + id, "", Instant.EPOCH, false));
+    }
+
+    @Test
+    public void readThroughTest() {
+        LruTodoCache cache = new LruTodoCache(100, Duration.ofMinutes(1));
+
+        Assert.assertEquals("todo 1", cache.getOrLoad(1, this::load).get().getTitle());
+        Assert.assertEquals("todo 1", cache.getOrLoad(1, this::load).get().getTitle());
+        Assert.assertFalse(cache.getOrLoad(-1, this::load).isPresent());
+
+        Assert.assertEquals(2, loads.get());
+        CacheStats stats = cache.stats();
+        Assert.assertEquals(1, stats.getHits());
+        Assert.assertEquals(2, stats.getMisses());
+        Assert.assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void invalidateTest() {
+        LruTodoCache cache = new LruTodoCache(100, Duration.ofMinutes(1));
+
+        cache.getOrLoad(1, this::load);
+        cache.invalidate(1);
+        cache.getOrLoad(1, this::load);
+
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void invalidateDuringLoadTest() {
+        LruTodoCache cache = new LruTodoCache(100, Duration.ofMinutes(1));
+
+        // a write commits while the todo is read
+        cache.getOrLoad(1, id -> {
+            cache.invalidate(id);
+            return load(id);
+        });
+        cache.getOrLoad(1, this::load);
+
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void evictionTest() {
+        LruTodoCache cache = new LruTodoCache(16, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.getOrLoad(i, this::load);
+        }
+
+        CacheStats stats = cache.stats();
+        Assert.assertTrue(stats.getSize() <= 16);
+        Assert.assertEquals(1000 - stats.getSize(), stats.getEvictions());
+    }
+
+    @Test
+    public void ttlTest() {
+        LruTodoCache cache = new LruTodoCache(100, Duration.ZERO);
+
+        cache.getOrLoad(1, this::load);
+        cache.getOrLoad(1, this::load);
+
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(1, cache.stats().getEvictions());
+    }
+}
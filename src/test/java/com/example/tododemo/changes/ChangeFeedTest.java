@@ -0,0 +1,85 @@
+package com.example.tododemo.changes;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.example.tododemo.event.TodoChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class ChangeFeedTest {
+
+    /** one sender thread, sends may block for 100 ms */
+    private final ChangeFeed feed = new ChangeFeed(new ObjectMapper(), 100, 50, 1, 60000, 60, 100);
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        unblock.countDown();
+        feed.close();
+    }
+
+    /**
+     * client that reads every event
+     */
+    private static final class Reader extends SseEmitter {
+
+        final List<SseEventBuilder> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder event) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * client that stops reading, so its TCP window stays full
+     */
+    private final class Stalled extends SseEmitter {
+
+        final CountDownLatch sending = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            sending.countDown();
+            try {
+                unblock.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // what a socket write does when the thread is interrupted
+                throw new IOException("write interrupted", e);
+            }
+        }
+    }
+
+    private void change(int id) {
+        feed.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.DELETED, id, null));
+    }
+
+    @Test
+    public void slowConsumerTest() throws Exception {
+        Stalled stalled = new Stalled();
+        feed.subscribe(stalled, null);
+        change(1);
+        // the only sender thread is stuck in the write
+        Assert.assertTrue(stalled.sending.await(5, TimeUnit.SECONDS));
+
+        Reader reader = new Reader();
+        feed.subscribe(reader, null);
+        change(2);
+
+        for (int i = 0; i < 500 && reader.events.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, reader.events.size());
+        Assert.assertEquals(1, feed.getDropped());
+        Assert.assertEquals(1, feed.getSubscribers());
+    }
+}
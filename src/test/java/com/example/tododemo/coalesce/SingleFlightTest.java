@@ -0,0 +1,152 @@
+package com.example.tododemo.coalesce;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * blocks until released, so concurrent callers find the load running
+     */
+    private String slowLoad(String key) {
+        loads.incrementAndGet();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "value of " + key;
+    }
+
+    private List<Future<String>> callers(SingleFlight<String, String> flight, int n) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            results.add(pool.submit(() -> flight.load("a", this::slowLoad)));
+        }
+        return results;
+    }
+
+    private static void awaitInFlight(SingleFlight<?, ?> flight, long coalesced) throws InterruptedException {
+        for (int i = 0; i < 500 && (flight.getInFlight() == 0 || flight.getCoalesced() < coalesced); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void coalesceTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(100, 5000, v -> v);
+
+        List<Future<String>> results = callers(flight, 5);
+        awaitInFlight(flight, 4);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            Assert.assertEquals("value of a", result.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(4, flight.getCoalesced());
+        Assert.assertEquals(0, flight.getInFlight());
+
+        // done loads are not kept
+        flight.load("a", k -> "again");
+        Assert.assertEquals(2, flight.getLoads());
+    }
+
+    @Test
+    public void timeoutTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(100, 50, v -> v);
+
+        Future<String> first = pool.submit(() -> flight.load("a", this::slowLoad));
+        awaitInFlight(flight, 0);
+
+        // the waiter gives up and loads on its own
+        Assert.assertEquals("own", flight.load("a", k -> "own"));
+        Assert.assertEquals(1, flight.getTimeouts());
+
+        release.countDown();
+        Assert.assertEquals("value of a", first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void forgetTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(100, 5000, v -> v);
+
+        Future<String> first = pool.submit(() -> flight.load("a", this::slowLoad));
+        awaitInFlight(flight, 0);
+
+        // after a write the next caller does not get the running load
+        flight.forget("a");
+        Assert.assertEquals("fresh", flight.load("a", k -> "fresh"));
+        Assert.assertEquals(0, flight.getCoalesced());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(100, 5000, v -> v);
+        CountDownLatch loading = new CountDownLatch(1);
+
+        Future<String> first = pool.submit(() -> flight.load("a", k -> {
+            loading.countDown();
+            slowLoad(k);
+            throw new IllegalStateException("database down");
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+        Future<String> waiter = pool.submit(() -> flight.load("a", this::slowLoad));
+        awaitInFlight(flight, 1);
+        release.countDown();
+
+        for (Future<String> result : Arrays.asList(first, waiter)) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                Assert.fail("the failure must reach every caller");
+            } catch (ExecutionException e) {
+                Assert.assertEquals("database down", e.getCause().getMessage());
+            }
+        }
+        Assert.assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    public void boundedTest() throws Exception {
+        // no shared loads at all
+        SingleFlight<String, String> flight = new SingleFlight<>(0, 5000, v -> v);
+
+        List<Future<String>> results = callers(flight, 3);
+        for (int i = 0; i < 500 && loads.get() < 3; i++) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            Assert.assertEquals("value of a", result.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(3, loads.get());
+        Assert.assertEquals(0, flight.getCoalesced());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.tododemo.logstore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntLongMapTest {
+
+    @Test
+    public void sameAsHashMapTest() {
+        IntLongMap map = new IntLongMap(0);
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int key = 1 + random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                Assert.assertEquals(removed == null ? -1 : removed, map.remove(key));
+            } else {
+                Long previous = expected.put(key, (long) i);
+                Assert.assertEquals(previous == null ? -1 : previous, map.put(key, i));
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        for (int key = 1; key <= 5000; key++) {
+            Assert.assertEquals(expected.getOrDefault(key, -1L).longValue(), map.get(key));
+        }
+        int[] keys = map.sortedKeys();
+        Assert.assertEquals(expected.size(), keys.length);
+        for (int i = 1; i < keys.length; i++) {
+            Assert.assertTrue(keys[i - 1] < keys[i]);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.tododemo.logstore;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import com.example.tododemo.model.Todo;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+public class LogTodoStoreTest {
+
+    private static final int CHUNK = LogTodoStore.MIN_CHUNK_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LogTodoStore store;
+
+    private Path path() {
+        return folder.getRoot().toPath().resolve("todos.log");
+    }
+
+    private LogTodoStore open() throws Exception {
+        store = new LogTodoStore(path(), CHUNK, false, 0.5, Long.MAX_VALUE);
+        return store;
+    }
+
+    private static Todo todo(String title, boolean done) {
+        return new Todo(0, title, "test object", Instant.EPOCH.plusSeconds(title.length()), done);
+    }
+
+    @After
+    public void close() throws Exception {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void putTest() throws Exception {
+        open();
+        Todo first = store.put(todo("first", false));
+        Assert.assertEquals(1, first.getId());
+        Assert.assertEquals(0, first.getVersion());
+
+        // unchanged todos keep their version
+        Assert.assertEquals(0, store.put(first).getVersion());
+        first.setDone(true);
+        Assert.assertEquals(1, store.put(first).getVersion());
+        try {
+            store.put(first);
+            Assert.fail("outdated version was written");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // expected
+        }
+        Assert.assertTrue(store.setDone(1, false));
+        // no change, no new version
+        Assert.assertFalse(store.setDone(1, false));
+        Assert.assertFalse(store.setDone(2, false));
+        Assert.assertEquals(2L, (long) store.version(1));
+        Assert.assertFalse(store.delete(1, 1L));
+        Assert.assertTrue(store.delete(1, 2L));
+        Assert.assertNull(store.get(1));
+        Assert.assertEquals(0, store.count(false));
+    }
+
+    @Test
+    public void orderTest() throws Exception {
+        open();
+        store.put(todo("ccc", false));
+        store.put(todo("a", true));
+        store.put(todo("bb", false));
+
+        List<Todo> all = store.page(false, null, 0, 10);
+        Assert.assertEquals("a", all.get(0).getTitle());
+        Assert.assertEquals("ccc", all.get(2).getTitle());
+        List<Todo> unfinished = store.page(true, DueKey.of(all.get(1)), 0, 10);
+        Assert.assertEquals(1, unfinished.size());
+        Assert.assertEquals("ccc", unfinished.get(0).getTitle());
+        Assert.assertEquals(2, store.unfinishedDueBetween(Instant.EPOCH, Instant.EPOCH.plusSeconds(10)).size());
+        Assert.assertEquals(2, store.fingerprint(true).getTotal());
+        Assert.assertEquals(3, store.fingerprint(true).getMaxId());
+    }
+
+    @Test
+    public void recoveryTest() throws Exception {
+        open();
+        for (int i = 0; i < 100; i++) {
+            store.put(todo("todo " + i, i % 2 == 0));
+        }
+        Todo changed = store.get(10);
+        changed.setTitle("changed");
+        store.put(changed);
+        store.delete(20, null);
+        store.delete(100, null);
+        store.close();
+
+        open();
+        Assert.assertEquals(98, store.count(false));
+        Assert.assertEquals("changed", store.get(10).getTitle());
+        Assert.assertEquals(1, store.get(10).getVersion());
+        Assert.assertNull(store.get(20));
+        // ids of deleted todos are not handed out again
+        Assert.assertEquals(101, store.put(todo("new", false)).getId());
+    }
+
+    @Test
+    public void tornWriteTest() throws Exception {
+        open();
+        store.put(todo("kept", false));
+        long tail = store.getSize();
+        store.close();
+
+        // a record that got its length but not all of its body
+        try (FileChannel channel = FileChannel.open(path(), StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(12).putInt(40).put((byte) 1).putInt(2).put(new byte[3]);
+            torn.flip();
+            channel.write(torn, tail);
+        }
+
+        open();
+        Assert.assertEquals(1, store.count(false));
+        Assert.assertEquals(tail, store.getSize());
+        store.put(todo("after", false));
+        store.close();
+
+        open();
+        Assert.assertEquals(2, store.count(false));
+        Assert.assertEquals("after", store.get(2).getTitle());
+    }
+
+    @Test
+    public void compactionTest() throws Exception {
+        open();
+        for (int i = 0; i < 50; i++) {
+            store.put(todo("todo " + i, false));
+        }
+        // about 20000 records, more than one chunk
+        for (int round = 0; round < 400; round++) {
+            for (int id = 1; id <= 50; id++) {
+                store.setDone(id, round % 2 == 0);
+            }
+        }
+        store.delete(50, null);
+        long before = store.getSize();
+        Assert.assertTrue(before > CHUNK);
+
+        store.compact();
+        Assert.assertEquals(1, store.getCompactions());
+        Assert.assertTrue(store.getSize() < before / 100);
+        Assert.assertEquals(0, store.getGarbage());
+        Assert.assertEquals(49, store.count(false));
+        Assert.assertEquals(400, store.get(1).getVersion());
+        store.setDone(1, true);
+        store.close();
+
+        open();
+        Assert.assertEquals(49, store.count(false));
+        Assert.assertEquals(401, store.get(1).getVersion());
+        Assert.assertEquals(51, store.put(todo("new", false)).getId());
+    }
+}
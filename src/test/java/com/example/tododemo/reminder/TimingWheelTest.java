@@ -0,0 +1,90 @@
+package com.example.tododemo.reminder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    private static final int[] LEVELS = { 60, 60, 24, 64 };
+
+    private final TimingWheel wheel = new TimingWheel(1000, LEVELS, START);
+
+    private final List<Integer> fired = new ArrayList<>();
+
+    private void advanceTo(long ms) {
+        wheel.advance(ms, (id, due) -> fired.add(id));
+    }
+
+    @Test
+    public void fireOnTimeTest() {
+        wheel.schedule(1, START + 1500);
+        // moves down from the minute and hour levels
+        wheel.schedule(2, START + 90_000);
+        wheel.schedule(3, START + 2 * 3_600_000 + 1);
+
+        advanceTo(START + 1999);
+        Assert.assertTrue(fired.isEmpty());
+        advanceTo(START + 2000);
+        Assert.assertEquals(Arrays.asList(1), fired);
+
+        advanceTo(START + 89_999);
+        Assert.assertEquals(Arrays.asList(1), fired);
+        advanceTo(START + 90_000);
+        Assert.assertEquals(Arrays.asList(1, 2), fired);
+
+        advanceTo(START + 2 * 3_600_000);
+        Assert.assertEquals(Arrays.asList(1, 2), fired);
+        advanceTo(START + 2 * 3_600_000 + 1000);
+        Assert.assertEquals(Arrays.asList(1, 2, 3), fired);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelAndRescheduleTest() {
+        wheel.schedule(1, START + 10_000);
+        wheel.schedule(2, START + 10_000);
+        Assert.assertTrue(wheel.cancel(2));
+        Assert.assertFalse(wheel.cancel(2));
+        // moving replaces the timer
+        wheel.schedule(1, START + 20_000);
+
+        advanceTo(START + 10_000);
+        Assert.assertTrue(fired.isEmpty());
+        advanceTo(START + 20_000);
+        Assert.assertEquals(Arrays.asList(1), fired);
+    }
+
+    @Test
+    public void pastAndHorizonTest() {
+        // already due, fires with the next tick
+        wheel.schedule(1, START - 5000);
+        Assert.assertFalse(wheel.schedule(2, wheel.horizon() + 1));
+        Assert.assertFalse(wheel.contains(2));
+        Assert.assertTrue(wheel.schedule(3, wheel.horizon()));
+
+        advanceTo(START + 1000);
+        Assert.assertEquals(Arrays.asList(1), fired);
+        Assert.assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void manyTimersTest() {
+        for (int id = 1; id <= 100_000; id++) {
+            wheel.schedule(id, START + id * 37L);
+        }
+        long last = START + 100_000 * 37L;
+        List<Long> dues = new ArrayList<>();
+        wheel.advance(last + 1000, (id, due) -> {
+            Assert.assertEquals(START + id * 37L, due);
+            dues.add(due);
+        });
+        Assert.assertEquals(100_000, dues.size());
+        Assert.assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.tododemo.search;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.tododemo.model.Todo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TodoSearchIndexTest {
+
+    private final TodoSearchIndex index = new TodoSearchIndex();
+
+    private void put(int id, String title, String description) {
+        index.put(new Todo(id, title, description, Instant.EPOCH, false));
+    }
+
+    private List<Integer> ids(String query) {
+        return index.search(query, 10).getHits().stream().map(SearchHit::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void tokenizeTest() {
+        Assert.assertEquals(Arrays.asList("buy", "milk", "2x", "today"),
+                Tokenizer.tokenize("Buy MILK, 2x today!"));
+    }
+
+    @Test
+    public void rankingTest() {
+        put(1, "buy milk", "from the store");
+        put(2, "store taxes", "milk the government");
+        put(3, "milkshake", "");
+
+        // title before description, the word itself before longer words
+        Assert.assertEquals(Arrays.asList(1, 2, 3), ids("milk"));
+        // every word has to match, as word or prefix
+        Assert.assertEquals(Arrays.asList(1, 2), ids("mil sto"));
+        Assert.assertEquals(Arrays.asList(2), ids("TAXES"));
+        Assert.assertTrue(ids("milk coffee").isEmpty());
+        // single characters only match whole words
+        Assert.assertTrue(ids("m").isEmpty());
+        Assert.assertEquals(3, index.search("milk", 1).getTotal());
+        Assert.assertEquals(1, index.search("milk", 1).getHits().size());
+    }
+
+    @Test
+    public void updateTest() {
+        put(1, "buy milk", "from the store");
+        put(2, "store taxes", "milk the government");
+
+        put(2, "pay taxes", "");
+        Assert.assertEquals(Arrays.asList(1), ids("milk"));
+
+        index.remove(1);
+        Assert.assertTrue(ids("milk").isEmpty());
+        Assert.assertEquals(1, index.size());
+
+        index.clear();
+        Assert.assertTrue(ids("taxes").isEmpty());
+    }
+
+    @Test
+    public void postingsTest() {
+        Postings postings = new Postings();
+        for (int id = 1; id <= 1000; id++) {
+            postings.put(id, id);
+        }
+        for (int id = 1; id <= 1000; id += 2) {
+            postings.remove(id);
+        }
+        Assert.assertEquals(500, postings.size());
+        for (int id = 1; id <= 1000; id++) {
+            Assert.assertEquals(id % 2 == 0 ? id : 0f, postings.get(id), 0f);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.tododemo.shard;
+
+import java.lang.reflect.Method;
+
+import com.example.tododemo.repository.TodoRepository;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ShardedTodoRepositoryTest {
+
+    /**
+     * a repository method without a route fails only at runtime and only with
+     * sharding on
+     */
+    @Test
+    public void everyMethodRoutedTest() {
+        for (Method method : TodoRepository.class.getMethods()) {
+            Assert.assertNotNull(method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                    + " is not routed to the shards", ShardedTodoRepository.route(method));
+        }
+    }
+}
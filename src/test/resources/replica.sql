@@ -0,0 +1,4 @@
+-- stand-in for a replica in ReplicaRoutingTest, runs on every new connection
+CREATE TABLE IF NOT EXISTS todos(id INT PRIMARY KEY, title VARCHAR(30), description VARCHAR(500),
+    duedate TIMESTAMP, done BOOLEAN, version BIGINT);
+MERGE INTO todos KEY(id) VALUES (1, 'from replica', 'test object', '1970-01-01 00:00:00', false, 0);